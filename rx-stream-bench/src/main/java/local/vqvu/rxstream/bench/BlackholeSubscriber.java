@@ -0,0 +1,61 @@
+package local.vqvu.rxstream.bench;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * A {@link Subscriber} that feeds every value to a {@link Blackhole}. It
+ * either requests everything up front or requests one value at a time.
+ *
+ * @author vqvu
+ *
+ * @param <T>
+ */
+public class BlackholeSubscriber<T> implements Subscriber<T> {
+    private final Blackhole bh;
+    private final boolean oneByOne;
+    private final CountDownLatch done;
+
+    private Subscription sub;
+
+    public BlackholeSubscriber(Blackhole bh, boolean oneByOne) {
+        this.bh = bh;
+        this.oneByOne = oneByOne;
+        this.done = new CountDownLatch(1);
+    }
+
+    @Override
+    public void onSubscribe(Subscription sub) {
+        this.sub = sub;
+        sub.request(oneByOne ? 1 : Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(T val) {
+        bh.consume(val);
+        if (oneByOne) {
+            sub.request(1);
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        bh.consume(t);
+        done.countDown();
+    }
+
+    @Override
+    public void onComplete() {
+        done.countDown();
+    }
+
+    /**
+     * Blocks until the stream has ended.
+     */
+    public void await() throws InterruptedException {
+        done.await();
+    }
+}
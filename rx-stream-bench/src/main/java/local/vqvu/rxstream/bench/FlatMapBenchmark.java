@@ -0,0 +1,63 @@
+package local.vqvu.rxstream.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import local.vqvu.rxstream.Publisher;
+import local.vqvu.rxstream.Publishers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of {@code flatMap} over many small inner publishers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FlatMapBenchmark {
+    @Param({"10000"})
+    int outerSize;
+
+    @Param({"0", "1", "4"})
+    int innerSize;
+
+    @Param({"true", "false"})
+    boolean oneByOne;
+
+    private Publisher<Integer> source;
+
+    @Setup
+    public void setup() {
+        Integer[] outer = new Integer[outerSize];
+        for (int i = 0; i < outerSize; i++) {
+            outer[i] = i;
+        }
+        Integer[] inner = new Integer[innerSize];
+        for (int i = 0; i < innerSize; i++) {
+            inner[i] = i;
+        }
+
+        Publisher<Integer> innerPub = Publishers.just(inner);
+        source = Publishers.just(outer).flatMap(x -> innerPub);
+    }
+
+    @Benchmark
+    public void flatMap(Blackhole bh) throws InterruptedException {
+        BlackholeSubscriber<Integer> sub = new BlackholeSubscriber<>(bh, oneByOne);
+        source.subscribe(sub);
+        sub.await();
+    }
+}
@@ -0,0 +1,81 @@
+package local.vqvu.rxstream.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import local.vqvu.rxstream.Publisher;
+import local.vqvu.rxstream.Publishers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of {@code Publishers.from(list).map(f).buffer(n)}, subscribed
+ * with either {@code request(1)} per value or a single
+ * {@code request(Long.MAX_VALUE)}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PipelineBenchmark {
+    @Param({"1000", "100000"})
+    int size;
+
+    @Param({"true", "false"})
+    boolean oneByOne;
+
+    private Publisher<Integer> source;
+
+    @Setup
+    public void setup() {
+        List<Integer> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(i);
+        }
+        source = Publishers.from(list);
+    }
+
+    @Benchmark
+    public void from(Blackhole bh) throws InterruptedException {
+        run(source, bh);
+    }
+
+    @Benchmark
+    public void fromMap(Blackhole bh) throws InterruptedException {
+        run(source.map(x -> x + 1), bh);
+    }
+
+    @Benchmark
+    public void fromMapChain(Blackhole bh) throws InterruptedException {
+        Publisher<Integer> pub = source;
+        for (int i = 0; i < 10; i++) {
+            pub = pub.map(x -> x + 1);
+        }
+        run(pub, bh);
+    }
+
+    @Benchmark
+    public void fromMapBuffer(Blackhole bh) throws InterruptedException {
+        run(source.map(x -> x + 1).buffer(16), bh);
+    }
+
+    private <T> void run(Publisher<T> pub, Blackhole bh) throws InterruptedException {
+        BlackholeSubscriber<T> sub = new BlackholeSubscriber<>(bh, oneByOne);
+        pub.subscribe(sub);
+        sub.await();
+    }
+}
@@ -0,0 +1,71 @@
+package local.vqvu.rxstream.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import local.vqvu.rxstream.Publisher;
+import local.vqvu.rxstream.Publishers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of a map/filter/sum pipeline over {@code long} values, using
+ * boxed {@link Publisher} operators versus the primitive
+ * {@link local.vqvu.rxstream.LongPublisher} ones.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PrimitiveBenchmark {
+    @Param({"1000", "100000"})
+    int size;
+
+    private Publisher<Long> boxedSource;
+
+    @Setup
+    public void setup() {
+        List<Long> list = new ArrayList<>(size);
+        for (long i = 0; i < size; i++) {
+            list.add(i);
+        }
+        boxedSource = Publishers.from(list);
+    }
+
+    @Benchmark
+    public void boxed(Blackhole bh) throws InterruptedException {
+        run(boxedSource
+                .map(x -> x * 3)
+                .filter(x -> (x & 1) == 0)
+                .reduce(Long::sum), bh);
+    }
+
+    @Benchmark
+    public void primitive(Blackhole bh) throws InterruptedException {
+        run(Publishers.rangeLong(0, size)
+                .map(x -> x * 3)
+                .filter(x -> (x & 1) == 0)
+                .sum()
+                .boxed(), bh);
+    }
+
+    private <T> void run(Publisher<T> pub, Blackhole bh) throws InterruptedException {
+        BlackholeSubscriber<T> sub = new BlackholeSubscriber<>(bh, false);
+        pub.subscribe(sub);
+        sub.await();
+    }
+}
@@ -0,0 +1,96 @@
+package local.vqvu.rxstream.bench;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import local.vqvu.rxstream.Publisher;
+import local.vqvu.rxstream.Publishers;
+import local.vqvu.rxstream.SyncPublisher;
+import local.vqvu.rxstream.emitter.StreamEmitter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Pull-based iteration over a {@link SyncPublisher}, both for a synchronous
+ * source and for an asynchronous source bridged by
+ * {@link Publisher#toSynchronousPublisher()}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SyncPublisherBenchmark {
+    @Param({"10000"})
+    int size;
+
+    private List<Integer> list;
+    private SyncPublisher<Integer> syncSource;
+    private ExecutorService executor;
+    private Publisher<Integer> asyncSource;
+
+    @Setup
+    public void setup() {
+        list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(i);
+        }
+        syncSource = Publishers.from(list);
+
+        executor = Executors.newSingleThreadExecutor();
+        asyncSource = Publishers.create(() -> {
+            Iterator<Integer> it = list.iterator();
+            return (StreamEmitter<Integer>) cb -> executor.execute(() -> {
+                if (it.hasNext()) {
+                    cb.acceptValue(it.next());
+                    cb.next();
+                } else {
+                    cb.acceptEnd();
+                }
+            });
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public void listIterator(Blackhole bh) {
+        for (Integer val : list) {
+            bh.consume(val);
+        }
+    }
+
+    @Benchmark
+    public void syncIterator(Blackhole bh) {
+        for (Integer val : syncSource) {
+            bh.consume(val);
+        }
+    }
+
+    @Benchmark
+    public void toSynchronousPublisher(Blackhole bh) {
+        for (Integer val : asyncSource.toSynchronousPublisher()) {
+            bh.consume(val);
+        }
+    }
+}
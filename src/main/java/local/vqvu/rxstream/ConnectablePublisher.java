@@ -0,0 +1,364 @@
+package local.vqvu.rxstream;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import local.vqvu.rxstream.emitter.StreamEmitter;
+import local.vqvu.rxstream.util.StreamToken;
+import local.vqvu.rxstream.util.Trampoline;
+
+/**
+ * A publisher that shares a single subscription to its source among all of
+ * its subscribers. Nothing is requested from the source until
+ * {@link #connect()} is called.
+ * <p>
+ * The source's values are written to a bounded ring buffer, and each
+ * subscriber reads from it with its own cursor, at its own pace. The source is
+ * only asked for as many values as the slowest subscriber has room for. While
+ * there are no subscribers, the source runs freely and its values are
+ * dropped. Subscribers only see the values emitted after they subscribe.
+ * <p>
+ * Once the source ends, later subscribers receive the terminal token right
+ * away. After {@link #disconnect()}, subscribers end once they have read the
+ * values already in the buffer, and the next subscriber starts a new
+ * connection.
+ *
+ * @author vqvu
+ *
+ * @param <T>
+ */
+public class ConnectablePublisher<T> extends Publisher<T> {
+    static final int DEFAULT_CAPACITY = 128;
+
+    private final Hub<T> hub;
+
+    ConnectablePublisher(Publisher<? extends T> source, int capacity, boolean refCount) {
+        this(new Hub<T>(source, capacity, refCount));
+    }
+
+    private ConnectablePublisher(Hub<T> hub) {
+        super(hub::subscribe);
+        this.hub = hub;
+    }
+
+    /**
+     * Start requesting values from the source. Does nothing if the current
+     * connection is already started.
+     */
+    public void connect() {
+        hub.current().start();
+    }
+
+    /**
+     * Stop the current connection to the source.
+     */
+    public void disconnect() {
+        hub.disconnect(null);
+    }
+
+    /**
+     * Returns a publisher that connects this one once it has
+     * {@code numSubscribers} subscribers.
+     */
+    public Publisher<T> autoConnect(int numSubscribers) {
+        if (numSubscribers <= 0) {
+            throw new IllegalArgumentException("numSubscribers must be positive. Actual: " + numSubscribers);
+        }
+
+        AtomicInteger count = new AtomicInteger(0);
+        return Publishers.create(() -> {
+            StreamEmitter<T> emitter = createEmitter();
+            if (count.incrementAndGet() == numSubscribers) {
+                connect();
+            }
+            return emitter;
+        });
+    }
+
+    private static class Hub<T> {
+        private final Publisher<? extends T> source;
+        private final int capacity;
+        private final boolean refCount;
+
+        // Guarded by this.
+        private Connection<T> current;
+
+        public Hub(Publisher<? extends T> source, int capacity, boolean refCount) {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("Capacity must be positive. Actual: " + capacity);
+            }
+
+            this.source = source;
+            this.capacity = Integer.highestOneBit(capacity) == capacity
+                    ? capacity : Integer.highestOneBit(capacity) << 1;
+            this.refCount = refCount;
+            this.current = null;
+        }
+
+        synchronized Connection<T> current() {
+            if (current == null) {
+                current = new Connection<T>(this);
+            }
+            return current;
+        }
+
+        StreamEmitter<T> subscribe() {
+            Connection<T> conn;
+            StreamEmitter<T> cursor;
+            synchronized (this) {
+                conn = current();
+                cursor = conn.addCursor();
+            }
+
+            if (refCount) {
+                conn.start();
+            }
+            return cursor;
+        }
+
+        /**
+         * Stop {@code conn} if it is the current connection, or stop the
+         * current connection if {@code conn} is {@code null}.
+         */
+        void disconnect(Connection<T> conn) {
+            Connection<T> stopped;
+            synchronized (this) {
+                if (current == null || (conn != null && conn != current)) {
+                    return;
+                }
+                stopped = current;
+                current = null;
+            }
+
+            // Stopping notifies the subscribers, so don't hold the lock.
+            stopped.stop();
+        }
+    }
+
+    /**
+     * A single subscription to the source. Values are written to
+     * {@code ring} at {@code producerIndex}, and a slot may only be reused
+     * once every cursor has moved past it.
+     */
+    private static class Connection<T> {
+        private final Hub<T> hub;
+        private final Object[] ring;
+        private final int mask;
+        private final List<Cursor> cursors;
+
+        private final Object lock;
+        private volatile long producerIndex;
+        private volatile StreamToken<? extends T> terminal;
+
+        private final AtomicBoolean started;
+        private volatile Trampoline<T> upstream;
+
+        public Connection(Hub<T> hub) {
+            this.hub = hub;
+            this.ring = new Object[hub.capacity];
+            this.mask = hub.capacity - 1;
+            this.cursors = new CopyOnWriteArrayList<>();
+
+            this.lock = new Object();
+            this.producerIndex = 0;
+            this.terminal = null;
+
+            this.started = new AtomicBoolean(false);
+            this.upstream = null;
+        }
+
+        void start() {
+            if (started.compareAndSet(false, true)) {
+                upstream = new Trampoline<T>(hub.source.createEmitter(), this::offer,
+                                             this::terminate, this::upstreamDemand);
+                upstream.resume();
+            }
+        }
+
+        void stop() {
+            Trampoline<T> up = upstream;
+            if (up != null) {
+                up.stop();
+            }
+            if (terminal == null) {
+                terminate(StreamToken.end());
+            }
+        }
+
+        private void resumeUpstream() {
+            Trampoline<T> up = upstream;
+            if (up != null) {
+                up.resume();
+            }
+        }
+
+        /**
+         * Must be called while holding the hub's lock, so that the cursor is
+         * not missed by a disconnect.
+         */
+        Cursor addCursor() {
+            Cursor cursor = new Cursor();
+
+            // Registering under the lock keeps the producer from reusing the
+            // new cursor's first slot before it is seen.
+            synchronized (lock) {
+                cursor.index = producerIndex;
+                cursors.add(cursor);
+            }
+            return cursor;
+        }
+
+        void removeCursor(Cursor cursor) {
+            if (cursors.remove(cursor)) {
+                if (hub.refCount && cursors.isEmpty()) {
+                    hub.disconnect(this);
+                } else {
+                    // The slowest cursor may have left.
+                    resumeUpstream();
+                }
+            }
+        }
+
+        private long upstreamDemand() {
+            long min = producerIndex;
+            for (Cursor cursor : cursors) {
+                if (cursor.isCancelled()) {
+                    removeCursor(cursor);
+                } else {
+                    min = Math.min(min, cursor.index);
+                }
+            }
+            return ring.length - (producerIndex - min);
+        }
+
+        private void offer(T value) {
+            synchronized (lock) {
+                long p = producerIndex;
+                ring[(int) p & mask] = value;
+                producerIndex = p + 1;
+            }
+
+            for (Cursor cursor : cursors) {
+                cursor.notifyWaiting();
+            }
+        }
+
+        private void terminate(StreamToken<? extends T> token) {
+            terminal = token;
+            for (Cursor cursor : cursors) {
+                cursor.notifyWaiting();
+            }
+        }
+
+        private class Cursor implements StreamEmitter<T> {
+            private volatile long index;
+            private boolean done;
+
+            // The last callback seen, used to notice cancelled subscribers.
+            private volatile EmitCallback<? super T> lastCallback;
+
+            // The downstream callback that is waiting for the producer.
+            private final AtomicReference<EmitCallback<? super T>> waiting;
+            private volatile long waitingNumValues;
+
+            public Cursor() {
+                this.index = 0;
+                this.done = false;
+                this.lastCallback = null;
+                this.waiting = new AtomicReference<>(null);
+                this.waitingNumValues = 0;
+            }
+
+            boolean isCancelled() {
+                EmitCallback<? super T> cb = lastCallback;
+                return cb != null && cb.isCancelled();
+            }
+
+            void notifyWaiting() {
+                if (waiting.get() != null) {
+                    EmitCallback<? super T> cb = waiting.getAndSet(null);
+                    if (cb != null) {
+                        drainOrWait(waitingNumValues, cb);
+                    }
+                }
+            }
+
+            @Override
+            public void emitOne(EmitCallback<? super T> cb) {
+                emitMany(1, cb);
+            }
+
+            @Override
+            public void emitMany(long n, EmitCallback<? super T> cb) {
+                lastCallback = cb;
+                drainOrWait(n, cb);
+            }
+
+            private void drainOrWait(long n, EmitCallback<? super T> cb) {
+                while (!drain(n, cb)) {
+                    waitingNumValues = n;
+                    waiting.set(cb);
+
+                    // Check again in case the producer missed the callback.
+                    if ((terminal == null && index == producerIndex)
+                            || !waiting.compareAndSet(cb, null)) {
+                        return;
+                    }
+                }
+            }
+
+            /**
+             * Emit up to {@code n} values from the ring, followed by either
+             * {@code next()} or the terminal token.
+             *
+             * @return {@code false} if there was nothing to emit.
+             */
+            private boolean drain(long n, EmitCallback<? super T> cb) {
+                if (done) {
+                    return true;
+                }
+
+                // The terminal token is only set after the last value is
+                // written, so read it first.
+                StreamToken<? extends T> token = terminal;
+                long p = producerIndex;
+                long i = index;
+                long numEmitted = 0;
+                while (numEmitted < n && i < p) {
+                    @SuppressWarnings("unchecked")
+                    T value = (T) ring[(int) i & mask];
+                    cb.acceptValue(value);
+                    i++;
+                    numEmitted++;
+
+                    if (cb.isCancelled()) {
+                        index = i;
+                        done = true;
+                        removeCursor(this);
+                        return true;
+                    }
+                }
+
+                // The slots stay reserved until the index moves past them.
+                index = i;
+
+                if (token != null && i == p) {
+                    done = true;
+                    removeCursor(this);
+                    cb.acceptTerminal(token);
+                    return true;
+                }
+
+                if (numEmitted > 0) {
+                    resumeUpstream();
+                    cb.next();
+                    return true;
+                }
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package local.vqvu.rxstream;
+
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleFunction;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleUnaryOperator;
+
+import local.vqvu.rxstream.emitter.DoubleEmitCallback;
+import local.vqvu.rxstream.operator.DoubleOperators;
+
+/**
+ * A stream of {@code double} values. The operators on this class pass values to
+ * each other through {@link DoubleEmitCallback}, so nothing is boxed until the
+ * stream is turned back into a {@link Publisher} with {@link #boxed()} or
+ * {@link #mapToObj(DoubleFunction)}.
+ *
+ * @author vqvu
+ */
+public class DoublePublisher {
+    private final Publisher<Double> delegate;
+
+    DoublePublisher(Publisher<Double> delegate) {
+        this.delegate = delegate;
+    }
+
+    public DoublePublisher map(DoubleUnaryOperator mapper) {
+        return new DoublePublisher(delegate.transform(DoubleOperators.map(mapper)));
+    }
+
+    public DoublePublisher filter(DoublePredicate predicate) {
+        return new DoublePublisher(delegate.transform(DoubleOperators.filter(predicate)));
+    }
+
+    /**
+     * Folds every value into an accumulator that starts out as
+     * {@code identity}, and emits the result once the stream ends.
+     */
+    public DoublePublisher reduce(double identity, DoubleBinaryOperator reducer) {
+        return new DoublePublisher(delegate.transform(DoubleOperators.reduce(identity, reducer)));
+    }
+
+    public DoublePublisher sum() {
+        return reduce(0.0, Double::sum);
+    }
+
+    public <R> Publisher<R> mapToObj(DoubleFunction<? extends R> mapper) {
+        return delegate.transform(DoubleOperators.mapToObj(mapper));
+    }
+
+    /**
+     * Returns a {@link Publisher} that emits the same values. Values are boxed
+     * as they leave this stream.
+     */
+    public Publisher<Double> boxed() {
+        return delegate;
+    }
+}
@@ -0,0 +1,75 @@
+package local.vqvu.rxstream;
+
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+
+import local.vqvu.rxstream.emitter.IntEmitCallback;
+import local.vqvu.rxstream.operator.IntOperators;
+
+/**
+ * A stream of {@code int} values. The operators on this class pass values to
+ * each other through {@link IntEmitCallback}, so nothing is boxed until the
+ * stream is turned back into a {@link Publisher} with {@link #boxed()} or
+ * {@link #mapToObj(IntFunction)}.
+ *
+ * @author vqvu
+ */
+public class IntPublisher {
+    private final Publisher<Integer> delegate;
+
+    IntPublisher(Publisher<Integer> delegate) {
+        this.delegate = delegate;
+    }
+
+    public IntPublisher map(IntUnaryOperator mapper) {
+        return new IntPublisher(delegate.transform(IntOperators.map(mapper)));
+    }
+
+    public IntPublisher filter(IntPredicate predicate) {
+        return new IntPublisher(delegate.transform(IntOperators.filter(predicate)));
+    }
+
+    /**
+     * Folds every value into an accumulator that starts out as
+     * {@code identity}, and emits the result once the stream ends.
+     */
+    public IntPublisher reduce(int identity, IntBinaryOperator reducer) {
+        return new IntPublisher(delegate.transform(IntOperators.reduce(identity, reducer)));
+    }
+
+    public IntPublisher sum() {
+        return reduce(0, Integer::sum);
+    }
+
+    public LongPublisher mapToLong(IntToLongFunction mapper) {
+        return new LongPublisher(delegate.transform(IntOperators.mapToLong(mapper)));
+    }
+
+    public LongPublisher asLongPublisher() {
+        return mapToLong(x -> x);
+    }
+
+    public DoublePublisher mapToDouble(IntToDoubleFunction mapper) {
+        return new DoublePublisher(delegate.transform(IntOperators.mapToDouble(mapper)));
+    }
+
+    public DoublePublisher asDoublePublisher() {
+        return mapToDouble(x -> x);
+    }
+
+    public <R> Publisher<R> mapToObj(IntFunction<? extends R> mapper) {
+        return delegate.transform(IntOperators.mapToObj(mapper));
+    }
+
+    /**
+     * Returns a {@link Publisher} that emits the same values. Values are boxed
+     * as they leave this stream.
+     */
+    public Publisher<Integer> boxed() {
+        return delegate;
+    }
+}
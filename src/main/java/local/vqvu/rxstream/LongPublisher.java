@@ -0,0 +1,66 @@
+package local.vqvu.rxstream;
+
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+import java.util.function.LongToDoubleFunction;
+import java.util.function.LongUnaryOperator;
+
+import local.vqvu.rxstream.emitter.LongEmitCallback;
+import local.vqvu.rxstream.operator.LongOperators;
+
+/**
+ * A stream of {@code long} values. The operators on this class pass values to
+ * each other through {@link LongEmitCallback}, so nothing is boxed until the
+ * stream is turned back into a {@link Publisher} with {@link #boxed()} or
+ * {@link #mapToObj(LongFunction)}.
+ *
+ * @author vqvu
+ */
+public class LongPublisher {
+    private final Publisher<Long> delegate;
+
+    LongPublisher(Publisher<Long> delegate) {
+        this.delegate = delegate;
+    }
+
+    public LongPublisher map(LongUnaryOperator mapper) {
+        return new LongPublisher(delegate.transform(LongOperators.map(mapper)));
+    }
+
+    public LongPublisher filter(LongPredicate predicate) {
+        return new LongPublisher(delegate.transform(LongOperators.filter(predicate)));
+    }
+
+    /**
+     * Folds every value into an accumulator that starts out as
+     * {@code identity}, and emits the result once the stream ends.
+     */
+    public LongPublisher reduce(long identity, LongBinaryOperator reducer) {
+        return new LongPublisher(delegate.transform(LongOperators.reduce(identity, reducer)));
+    }
+
+    public LongPublisher sum() {
+        return reduce(0, Long::sum);
+    }
+
+    public DoublePublisher mapToDouble(LongToDoubleFunction mapper) {
+        return new DoublePublisher(delegate.transform(LongOperators.mapToDouble(mapper)));
+    }
+
+    public DoublePublisher asDoublePublisher() {
+        return mapToDouble(x -> x);
+    }
+
+    public <R> Publisher<R> mapToObj(LongFunction<? extends R> mapper) {
+        return delegate.transform(LongOperators.mapToObj(mapper));
+    }
+
+    /**
+     * Returns a {@link Publisher} that emits the same values. Values are boxed
+     * as they leave this stream.
+     */
+    public Publisher<Long> boxed() {
+        return delegate;
+    }
+}
@@ -0,0 +1,28 @@
+package local.vqvu.rxstream;
+
+/**
+ * What to do with a value that arrives while a backpressure buffer is full.
+ *
+ * @author vqvu
+ *
+ * @see Publisher#onBackpressureBuffer(int, OverflowStrategy)
+ */
+public enum OverflowStrategy {
+    /**
+     * Stop the source and emit a
+     * {@link local.vqvu.rxstream.exception.BackpressureOverflowException}
+     * after the values already buffered.
+     */
+    ERROR,
+
+    /**
+     * Drop the value that just arrived.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Drop the oldest buffered value to make room for the one that just
+     * arrived.
+     */
+    DROP_OLDEST
+}
@@ -0,0 +1,448 @@
+package local.vqvu.rxstream;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import local.vqvu.rxstream.emitter.StreamEmitter;
+import local.vqvu.rxstream.scheduler.Scheduler;
+import local.vqvu.rxstream.scheduler.Schedulers;
+import local.vqvu.rxstream.util.SpscArrayQueue;
+import local.vqvu.rxstream.util.StreamToken;
+import local.vqvu.rxstream.util.Trampoline;
+
+/**
+ * A stream split across a fixed number of rails. Values from the source are
+ * dealt out to the rails round-robin in batches, and the operators on this
+ * class run on each rail independently. Use {@link #runOn(Scheduler)} to move
+ * the rails onto a thread pool, and {@link #sequential()} or
+ * {@link #sorted(Comparator)} to join them back into a single
+ * {@link Publisher}.
+ * <p>
+ * Each subscription to the joined publisher subscribes to the source once.
+ *
+ * @author vqvu
+ *
+ * @param <T>
+ */
+public class ParallelPublisher<T> {
+    static final int DEFAULT_BATCH_SIZE = 128;
+
+    // The number of full batches each rail may have waiting.
+    private static final int RAIL_CAPACITY = 2;
+
+    private final int numRails;
+    private final Supplier<? extends List<Publisher<T>>> railsGenerator;
+
+    ParallelPublisher(Publisher<? extends T> source, int numRails, int batchSize) {
+        if (numRails <= 0) {
+            throw new IllegalArgumentException("numRails must be positive. Actual: " + numRails);
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive. Actual: " + batchSize);
+        }
+
+        this.numRails = numRails;
+        this.railsGenerator = () -> {
+            return new Splitter<T>(source.createEmitter(), numRails, batchSize).rails();
+        };
+    }
+
+    private ParallelPublisher(int numRails,
+                              Supplier<? extends List<Publisher<T>>> railsGenerator) {
+        this.numRails = numRails;
+        this.railsGenerator = railsGenerator;
+    }
+
+    public int numRails() {
+        return numRails;
+    }
+
+    /**
+     * Applies {@code railOperator} to each rail.
+     */
+    public <R> ParallelPublisher<R> transformRails(
+            Function<? super Publisher<T>, ? extends Publisher<? extends R>> railOperator) {
+        return new ParallelPublisher<R>(numRails, () -> {
+            List<Publisher<R>> rails = new ArrayList<>(numRails);
+            for (Publisher<T> rail : railsGenerator.get()) {
+                rails.add(narrow(railOperator.apply(rail)));
+            }
+            return rails;
+        });
+    }
+
+    public <R> ParallelPublisher<R> map(Function<? super T, ? extends R> mapper) {
+        return transformRails(rail -> rail.map(mapper));
+    }
+
+    public ParallelPublisher<T> filter(Predicate<? super T> predicate) {
+        return transformRails(rail -> rail.filter(predicate));
+    }
+
+    /**
+     * Reduces each rail to a single value.
+     */
+    public <R> ParallelPublisher<R> reduce(Supplier<? extends R> initial,
+                                           BiFunction<R, ? super T, R> reducer) {
+        return transformRails(rail -> rail.reduce(initial, reducer));
+    }
+
+    /**
+     * Reduces each rail, then reduces the results of the rails into a single
+     * value. Emits nothing if the source is empty.
+     */
+    public Publisher<T> reduce(BinaryOperator<T> reducer) {
+        return transformRails(rail -> rail.reduce(reducer))
+            .sequential()
+            .reduce(reducer);
+    }
+
+    /**
+     * Runs the rest of each rail's operators on {@code scheduler}.
+     */
+    public ParallelPublisher<T> runOn(Scheduler scheduler) {
+        return transformRails(rail -> rail.observeOn(scheduler));
+    }
+
+    /**
+     * Runs the rest of each rail's operators on the common
+     * {@link java.util.concurrent.ForkJoinPool}.
+     */
+    public ParallelPublisher<T> runOn() {
+        return runOn(Schedulers.forkJoin());
+    }
+
+    /**
+     * Joins the rails into a single publisher. Values are emitted in whatever
+     * order the rails produce them.
+     */
+    public Publisher<T> sequential() {
+        return Publishers.create(() -> {
+            Publisher<T> merged = Publishers.merge(Publishers.from(railsGenerator.get()), numRails);
+            return merged.createEmitter();
+        });
+    }
+
+    /**
+     * Sorts each rail, then merges the sorted rails into a single publisher.
+     * Every value is buffered, and nothing is emitted until all rails end.
+     */
+    public Publisher<T> sorted(Comparator<? super T> comparator) {
+        return this.<List<T>>transformRails(rail -> rail
+                .reduce(ArrayList::new, (List<T> list, T value) -> {
+                    list.add(value);
+                    return list;
+                })
+                .map(list -> {
+                    list.sort(comparator);
+                    return list;
+                }))
+            .sequential()
+            .buffer(numRails)
+            .flatMap(lists -> Publishers.from(() -> new SortedMergeIterator<T>(lists, comparator)));
+    }
+
+    /**
+     * Publishers only ever produce values, so a publisher of a subtype can
+     * stand in for a publisher of {@code T}.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Publisher<T> narrow(Publisher<? extends T> pub) {
+        return (Publisher<T>) pub;
+    }
+
+    /**
+     * Reads from the source and deals the values out to the rails in batches.
+     * The source is paused when the next rail in line has no room for another
+     * batch, and resumed by that rail once it takes one. The source is stopped
+     * once every rail's subscriber has cancelled.
+     */
+    private static class Splitter<T> {
+        private final int batchSize;
+        private final List<Rail> rails;
+        private final Trampoline<T> upstream;
+
+        // Only accessed by the upstream trampoline.
+        private int nextRail;
+        private List<T> batch;
+
+        private volatile Throwable error;
+
+        public Splitter(StreamEmitter<? extends T> source, int numRails, int batchSize) {
+            this.batchSize = batchSize;
+            this.rails = new ArrayList<>(numRails);
+            for (int i = 0; i < numRails; i++) {
+                rails.add(new Rail());
+            }
+            this.upstream = new Trampoline<T>(source, this::accept, this::terminate, this::demand);
+
+            this.nextRail = 0;
+            this.batch = null;
+            this.error = null;
+        }
+
+        public List<Publisher<T>> rails() {
+            List<Publisher<T>> pubs = new ArrayList<>(rails.size());
+            for (Rail rail : rails) {
+                pubs.add(Publishers.create(() -> rail));
+            }
+            return pubs;
+        }
+
+        private long demand() {
+            if (allRailsCancelled()) {
+                upstream.stop();
+                return 0;
+            }
+
+            if (batch == null) {
+                SpscArrayQueue<List<T>> queue = rails.get(nextRail).batches;
+                if (queue.size() >= queue.capacity()) {
+                    return 0;
+                }
+                return batchSize;
+            }
+            return batchSize - batch.size();
+        }
+
+        private boolean allRailsCancelled() {
+            for (Rail rail : rails) {
+                if (!rail.isCancelled()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void accept(T value) {
+            if (batch == null) {
+                batch = new ArrayList<>(batchSize);
+            }
+
+            batch.add(value);
+            if (batch.size() == batchSize) {
+                flush();
+            }
+        }
+
+        /**
+         * Hands the current batch to the next rail. {@link #demand()} only
+         * allows a batch to start when that rail has room, and only this
+         * class adds to the rail, so the offer never fails.
+         */
+        private void flush() {
+            Rail rail = rails.get(nextRail);
+            rail.batches.offer(batch);
+            batch = null;
+            nextRail = (nextRail + 1 == rails.size()) ? 0 : nextRail + 1;
+            rail.notifyWaiting();
+        }
+
+        private void terminate(StreamToken<? extends T> token) {
+            if (token.isError()) {
+                batch = null;
+                error = ((StreamToken.ErrorStreamToken<?>) token).getError();
+            } else if (batch != null) {
+                flush();
+            }
+
+            for (Rail rail : rails) {
+                rail.done = true;
+                rail.notifyWaiting();
+            }
+        }
+
+        private class Rail implements StreamEmitter<T> {
+            private final SpscArrayQueue<List<T>> batches;
+            private volatile boolean done;
+
+            // Only accessed by the holder of the downstream callback.
+            private List<T> current;
+            private int index;
+
+            // The last callback seen, used to notice cancelled subscribers.
+            private volatile EmitCallback<? super T> lastCallback;
+
+            private final AtomicReference<EmitCallback<? super T>> waiting;
+            private volatile long waitingNumValues;
+
+            public Rail() {
+                this.batches = new SpscArrayQueue<>(RAIL_CAPACITY);
+                this.done = false;
+                this.current = null;
+                this.index = 0;
+                this.lastCallback = null;
+                this.waiting = new AtomicReference<>(null);
+                this.waitingNumValues = 0;
+            }
+
+            boolean isCancelled() {
+                EmitCallback<? super T> cb = lastCallback;
+                return cb != null && cb.isCancelled();
+            }
+
+            private void notifyWaiting() {
+                if (waiting.get() != null) {
+                    EmitCallback<? super T> cb = waiting.getAndSet(null);
+                    if (cb != null) {
+                        drainOrWait(waitingNumValues, cb);
+                    }
+                }
+            }
+
+            @Override
+            public void emitOne(EmitCallback<? super T> cb) {
+                emitMany(1, cb);
+            }
+
+            @Override
+            public void emitMany(long n, EmitCallback<? super T> cb) {
+                lastCallback = cb;
+                upstream.resume();
+                drainOrWait(n, cb);
+            }
+
+            /**
+             * Same handoff as {@link local.vqvu.rxstream.operator.PrefetchOperator}:
+             * whoever holds the callback must be prepared to put it back.
+             */
+            private void drainOrWait(long n, EmitCallback<? super T> cb) {
+                while (!drain(n, cb)) {
+                    waitingNumValues = n;
+                    waiting.set(cb);
+
+                    if ((!done && batches.isEmpty()) || !waiting.compareAndSet(cb, null)) {
+                        return;
+                    }
+                }
+            }
+
+            /**
+             * Emit up to {@code n} values from the current batch and the ones
+             * queued after it, followed by either {@code next()} or a terminal
+             * token.
+             *
+             * @return {@code false} if there was nothing to emit.
+             */
+            private boolean drain(long n, EmitCallback<? super T> cb) {
+                Throwable err = error;
+                if (err != null) {
+                    current = null;
+                    cb.acceptError(err);
+                    return true;
+                }
+
+                long numEmitted = 0;
+                boolean tookBatch = false;
+                while (numEmitted < n) {
+                    if (current == null) {
+                        current = batches.poll();
+                        index = 0;
+                        if (current == null) {
+                            break;
+                        }
+                        tookBatch = true;
+                    }
+
+                    cb.acceptValue(current.get(index++));
+                    numEmitted++;
+                    if (index == current.size()) {
+                        current = null;
+                    }
+
+                    if (cb.isCancelled()) {
+                        if (allRailsCancelled()) {
+                            upstream.stop();
+                        }
+                        return true;
+                    }
+                }
+
+                if (tookBatch) {
+                    upstream.resume();
+                }
+
+                // The done flag is only set after the last batch is queued.
+                if (current == null && done && batches.isEmpty()) {
+                    if (error != null) {
+                        cb.acceptError(error);
+                    } else {
+                        cb.acceptEnd();
+                    }
+                    return true;
+                }
+
+                if (numEmitted > 0) {
+                    cb.next();
+                    return true;
+                }
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Merges sorted lists into a single sorted iterator.
+     */
+    private static class SortedMergeIterator<T> implements Iterator<T> {
+        private final PriorityQueue<Cursor<T>> cursors;
+
+        public SortedMergeIterator(List<? extends List<T>> lists, Comparator<? super T> comparator) {
+            this.cursors = new PriorityQueue<>(Math.max(lists.size(), 1),
+                    (a, b) -> comparator.compare(a.head, b.head));
+            for (List<T> list : lists) {
+                Iterator<T> it = list.iterator();
+                if (it.hasNext()) {
+                    cursors.add(new Cursor<>(it));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !cursors.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            Cursor<T> cursor = cursors.poll();
+            if (cursor == null) {
+                throw new NoSuchElementException();
+            }
+
+            T value = cursor.head;
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+            return value;
+        }
+
+        private static class Cursor<T> {
+            private final Iterator<T> it;
+            private T head;
+
+            public Cursor(Iterator<T> it) {
+                this.it = it;
+                this.head = it.next();
+            }
+
+            public boolean advance() {
+                if (it.hasNext()) {
+                    head = it.next();
+                    return true;
+                }
+                return false;
+            }
+        }
+    }
+}
@@ -1,72 +1,489 @@
 package local.vqvu.rxstream;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
 import local.vqvu.rxstream.emitter.StreamEmitter;
 import local.vqvu.rxstream.emitter.SyncStreamEmitter;
+import local.vqvu.rxstream.hooks.LatencyRecorder;
+import local.vqvu.rxstream.hooks.RxHooks;
+import local.vqvu.rxstream.jmx.PipelineRegistry;
 import local.vqvu.rxstream.operator.BufferOperator;
+import local.vqvu.rxstream.operator.ConcatEagerOperator;
+import local.vqvu.rxstream.operator.DoubleOperators;
+import local.vqvu.rxstream.operator.FilterOperator;
+import local.vqvu.rxstream.operator.IntOperators;
+import local.vqvu.rxstream.operator.LongOperators;
 import local.vqvu.rxstream.operator.MapOperator;
+import local.vqvu.rxstream.operator.ObserveOnOperator;
+import local.vqvu.rxstream.operator.OnBackpressureOperator;
+import local.vqvu.rxstream.operator.PrefetchOperator;
+import local.vqvu.rxstream.operator.ReduceOperator;
+import local.vqvu.rxstream.operator.SubscribeOnOperator;
 import local.vqvu.rxstream.operator.SynchronizeOperator;
+import local.vqvu.rxstream.operator.TimedBufferOperator;
+import local.vqvu.rxstream.operator.WindowOperator;
+import local.vqvu.rxstream.scheduler.Scheduler;
 import local.vqvu.rxstream.util.BasicSubcription;
+import local.vqvu.rxstream.util.Serializer;
 
 import org.reactivestreams.Subscriber;
 
 public class Publisher<T> implements org.reactivestreams.Publisher<T> {
     private final Supplier<? extends StreamEmitter<? extends T>> generator;
 
+    // Only set if this publisher was created by #transform(Operator). Used to
+    // fuse adjacent operators at assembly time.
+    private final Publisher<?> upstream;
+    private final Operator<?, ? extends T> operator;
+
     Publisher(Supplier<? extends StreamEmitter<? extends T>> generator) {
         this.generator = generator;
+        this.upstream = null;
+        this.operator = null;
+    }
+
+    private <S> Publisher(Publisher<S> upstream, Operator<? super S, ? extends T> operator) {
+        this.generator = () -> operator.apply(upstream.createEmitter());
+        this.upstream = upstream;
+        this.operator = operator;
     }
 
     public <R> Publisher<R> map(Function<? super T, ? extends R> mapper) {
         return transform(new MapOperator<T, R>(mapper));
     }
 
+    public IntPublisher mapToInt(ToIntFunction<? super T> mapper) {
+        return new IntPublisher(transform(IntOperators.fromObj(mapper)));
+    }
+
+    public LongPublisher mapToLong(ToLongFunction<? super T> mapper) {
+        return new LongPublisher(transform(LongOperators.fromObj(mapper)));
+    }
+
+    public DoublePublisher mapToDouble(ToDoubleFunction<? super T> mapper) {
+        return new DoublePublisher(transform(DoubleOperators.fromObj(mapper)));
+    }
+
     public <R> Publisher<R> flatMap(Function<? super T, ? extends Publisher<? extends R>> mapper) {
         return Publishers.concat(map(mapper));
     }
 
+    /**
+     * Like {@link #flatMap(Function)}, but emits from up to
+     * {@code maxConcurrency} of the mapped publishers at once. Values from
+     * different publishers are interleaved in the order they arrive.
+     *
+     * @param mapper the function that maps each value to a publisher.
+     * @param maxConcurrency the maximum number of publishers to emit from at
+     *            once.
+     */
+    public <R> Publisher<R> flatMap(Function<? super T, ? extends Publisher<? extends R>> mapper,
+                                    int maxConcurrency) {
+        return Publishers.merge(map(mapper), maxConcurrency);
+    }
+
+    /**
+     * Like {@link #flatMap(Function)}, but starts up to
+     * {@code prefetchInners} of the mapped publishers ahead of time and
+     * buffers their values. Values are still emitted strictly in order, one
+     * mapped publisher after the other.
+     *
+     * @param mapper the function that maps each value to a publisher.
+     * @param prefetchInners the maximum number of mapped publishers to run at
+     *            once, including the one being emitted.
+     */
+    public <R> Publisher<R> concatMapEager(Function<? super T, ? extends Publisher<? extends R>> mapper,
+                                           int prefetchInners) {
+        return map(mapper).transform(new ConcatEagerOperator<R>(prefetchInners));
+    }
+
+    public Publisher<T> filter(Predicate<? super T> predicate) {
+        return transform(new FilterOperator<T>(predicate));
+    }
+
+    /**
+     * Folds every value into an accumulator that starts out as
+     * {@code initial.get()}, and emits the result once this publisher ends.
+     */
+    public <R> Publisher<R> reduce(Supplier<? extends R> initial, BiFunction<R, ? super T, R> reducer) {
+        return transform(new ReduceOperator<T, R>(initial, reducer));
+    }
+
+    /**
+     * Combines every value with {@code reducer} and emits the result once
+     * this publisher ends. Emits nothing if this publisher is empty.
+     */
+    public Publisher<T> reduce(BinaryOperator<T> reducer) {
+        return transform(ReduceOperator.fromFirst(reducer));
+    }
+
     public Publisher<List<T>> buffer(int size) {
         return transform(new BufferOperator<T>(size));
     }
 
+    /**
+     * Like {@link #buffer(int)}, but also emits a partial list once
+     * {@code maxWait} has passed since its first value. The timer runs on
+     * {@code scheduler}.
+     */
+    public Publisher<List<T>> buffer(int maxSize, Duration maxWait, Scheduler scheduler) {
+        return transform(new TimedBufferOperator<T>(maxSize, maxWait, scheduler));
+    }
+
+    /**
+     * Collects values into lists whose total weight, as computed by
+     * {@code weigher}, is at most {@code maxBytes}. A value that weighs more
+     * than {@code maxBytes} is emitted in a list of its own.
+     */
+    public Publisher<List<T>> buffer(long maxBytes, ToLongFunction<? super T> weigher) {
+        return transform(new BufferOperator<T>(maxBytes, weigher));
+    }
+
+    /**
+     * Splits this publisher into consecutive windows of up to {@code size}
+     * values. Unlike {@link #buffer(int)}, each window is a publisher that
+     * streams its values from this one as they are requested.
+     *
+     * @see WindowOperator
+     */
+    public Publisher<Publisher<T>> window(int size) {
+        return window(size, size);
+    }
+
+    /**
+     * Like {@link #window(int)}, but starts a new window every {@code skip}
+     * values. Values between windows are dropped. Windows may not overlap,
+     * so {@code skip} must be at least {@code size}.
+     */
+    public Publisher<Publisher<T>> window(int size, int skip) {
+        return transform(new WindowOperator<T>(size, skip));
+    }
+
     public Publisher<T> concat(Publisher<? extends T> pub) {
         return Publishers.concat(Publishers.just(this, pub));
     }
 
+    /**
+     * Splits this publisher into {@code numRails} rails. Values are dealt out
+     * to the rails round-robin in batches.
+     *
+     * @see ParallelPublisher
+     */
+    public ParallelPublisher<T> parallel(int numRails) {
+        return parallel(numRails, ParallelPublisher.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Like {@link #parallel(int)}, but with a custom number of values per
+     * batch.
+     */
+    public ParallelPublisher<T> parallel(int numRails, int batchSize) {
+        return new ParallelPublisher<T>(this, numRails, batchSize);
+    }
+
+    /**
+     * Returns a publisher that shares a single subscription to this one among
+     * all of its subscribers, once it is connected.
+     *
+     * @see ConnectablePublisher
+     */
+    public ConnectablePublisher<T> publish() {
+        return publish(ConnectablePublisher.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Like {@link #publish()}, but with a custom buffer size. The capacity is
+     * rounded up to a power of two.
+     */
+    public ConnectablePublisher<T> publish(int capacity) {
+        return new ConnectablePublisher<T>(this, capacity, false);
+    }
+
+    /**
+     * Like {@link #publish()}, but connects when the first subscriber
+     * subscribes, and disconnects when the last one leaves. The next
+     * subscriber after that subscribes to this publisher again.
+     */
+    public Publisher<T> share() {
+        return new ConnectablePublisher<T>(this, ConnectablePublisher.DEFAULT_CAPACITY, true);
+    }
+
+    /**
+     * Returns a publisher that subscribes to this one once, and replays
+     * everything it emits to every subscriber.
+     *
+     * @see ReplayPublisher
+     */
+    public Publisher<T> cache() {
+        return ReplayPublisher.unbounded(this);
+    }
+
+    /**
+     * Like {@link #cache()}, but new subscribers only see the last
+     * {@code maxElements} values.
+     */
+    public Publisher<T> replay(int maxElements) {
+        return ReplayPublisher.bounded(this, maxElements);
+    }
+
+    /**
+     * Like {@link #cache()}, but new subscribers only see about the last
+     * {@code maxBytes} worth of values, as computed by {@code weigher}.
+     */
+    public Publisher<T> replay(long maxBytes, ToLongFunction<? super T> weigher) {
+        return ReplayPublisher.bounded(this, maxBytes, weigher);
+    }
+
+    /**
+     * Like {@link #replay(long, ToLongFunction)}, but keeps the recorded
+     * values off the Java heap, serialized with {@code serializer}.
+     */
+    public Publisher<T> replay(long maxBytes, Serializer<T> serializer) {
+        return ReplayPublisher.offHeap(this, maxBytes, serializer);
+    }
+
+    /**
+     * Returns a publisher that makes every request for data on the
+     * {@link Scheduler}. Synchronous sources will emit on the scheduler.
+     *
+     * @param scheduler the scheduler to request data on.
+     */
+    public Publisher<T> subscribeOn(Scheduler scheduler) {
+        return transform(new SubscribeOnOperator<T>(scheduler));
+    }
+
+    /**
+     * Returns a publisher that emits every value and signal on the
+     * {@link Scheduler}.
+     *
+     * @param scheduler the scheduler to emit on.
+     */
+    public Publisher<T> observeOn(Scheduler scheduler) {
+        return transform(new ObserveOnOperator<T>(scheduler));
+    }
+
+    /**
+     * Returns a publisher that requests up to {@code capacity} values from
+     * this publisher ahead of its subscriber and buffers them. Useful when this
+     * publisher emits asynchronously, since it can then keep producing while
+     * the subscriber consumes.
+     *
+     * @param capacity the maximum number of values to buffer.
+     */
+    public Publisher<T> prefetch(int capacity) {
+        return transform(new PrefetchOperator<T>(capacity));
+    }
+
+    /**
+     * Returns a publisher that requests values from this publisher without
+     * bound, and buffers up to {@code capacity} of them until its subscriber
+     * asks for them. Meant for sources that cannot be slowed down, such as
+     * {@link Publishers#push(Consumer)}.
+     *
+     * @param capacity the maximum number of values to buffer.
+     * @param strategy what to do when a value arrives while the buffer is
+     *            full.
+     */
+    public Publisher<T> onBackpressureBuffer(int capacity, OverflowStrategy strategy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive. Actual: " + capacity);
+        }
+        return transform(new OnBackpressureOperator<T>(capacity, strategy, null));
+    }
+
+    /**
+     * Returns a publisher that requests values from this publisher without
+     * bound, and drops the values its subscriber is not waiting for.
+     *
+     * @param onDrop called with every value that is dropped.
+     */
+    public Publisher<T> onBackpressureDrop(Consumer<? super T> onDrop) {
+        return transform(new OnBackpressureOperator<T>(0, OverflowStrategy.DROP_NEWEST, onDrop));
+    }
+
+    /**
+     * Returns a publisher that requests values from this publisher without
+     * bound, and only keeps the latest value its subscriber has not asked for
+     * yet.
+     */
+    public Publisher<T> onBackpressureLatest() {
+        return transform(new OnBackpressureOperator<T>(1, OverflowStrategy.DROP_OLDEST, null));
+    }
+
+    /**
+     * Returns a publisher that applies the {@code operator} to the emitter of
+     * this publisher. If this publisher was itself created by this method, and
+     * its operator can be fused with {@code operator} (see
+     * {@link Operator#fuseWith(Operator)}), the two are replaced by a single
+     * operator stage.
+     *
+     * @param operator the operator to apply.
+     * @return the transformed publisher.
+     */
     public <R> Publisher<R> transform(final Operator<? super T, ? extends R> operator) {
-        return Publishers.create(() -> {
-            return StreamEmitter.safeCast(operator.apply(createEmitter()));
-        });
+        if (this.operator != null) {
+            Publisher<R> fused = fuse(upstream, this.operator, operator);
+            if (fused != null) {
+                return fused;
+            }
+        }
+        return new Publisher<R>(this, operator);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <S, T, R> Publisher<R> fuse(Publisher<S> upstream,
+                                               Operator<?, ? extends T> first,
+                                               Operator<? super T, ? extends R> second) {
+        Operator<S, T> firstOp = (Operator<S, T>) first;
+        Operator<S, ? extends R> fused = firstOp.fuseWith(second);
+        if (fused == null) {
+            return null;
+        }
+        return new Publisher<R>(upstream, fused);
     }
 
     public SyncPublisher<T> toSynchronousPublisher() {
+        return toSynchronousPublisher(new SynchronizeOperator<T>());
+    }
+
+    /**
+     * Like {@link #toSynchronousPublisher()}, but gives up if this publisher
+     * takes longer than {@code timeout} to emit each value. The iterator then
+     * throws an exception caused by a
+     * {@link java.util.concurrent.TimeoutException}.
+     */
+    public SyncPublisher<T> toSynchronousPublisher(Duration timeout) {
+        return toSynchronousPublisher(new SynchronizeOperator<T>(timeout));
+    }
+
+    private SyncPublisher<T> toSynchronousPublisher(SynchronizeOperator<T> operator) {
         return Publishers.createSync(() -> {
             StreamEmitter<T> emitter = createEmitter();
             if (emitter instanceof SyncStreamEmitter) {
                 return (SyncStreamEmitter<T>) emitter;
             } else {
-                return new SynchronizeOperator<T>().apply(emitter);
+                // Keep an asynchronous source busy while the consumer works
+                // through what it already has.
+                StreamEmitter<T> prefetched = new PrefetchOperator<T>(SyncPublisher.DEFAULT_PREFETCH)
+                    .apply(emitter);
+                return operator.apply(prefetched);
             }
         });
     }
 
+    /**
+     * Returns a publisher that records the latency of every value its
+     * subscribers receive into the {@link LatencyRecorder} called
+     * {@code name}. Values are timestamped as they leave the first publisher
+     * of this chain of operators, and the latency is recorded right before
+     * {@code onNext}. Operators applied to the returned publisher are not
+     * measured, so this should be the last stage before subscribing.
+     */
+    public Publisher<T> measured(String name) {
+        LatencyRecorder recorder = LatencyRecorder.get(name);
+        return new Publisher<T>(this::createEmitter) {
+            @Override
+            public void subscribe(Subscriber<? super T> subscriber) {
+                Publisher.this.subscribe(subscriber, recorder.newProbe());
+            }
+        };
+    }
+
     @Override
     public void subscribe(Subscriber<? super T> subscriber) {
-        BasicSubcription<T> sub = new BasicSubcription<>(subscriber, createEmitter());
+        subscribe(subscriber, null);
+    }
+
+    private void subscribe(Subscriber<? super T> subscriber, LatencyRecorder.Probe probe) {
+        String subscriberName = subscriber.getClass().getName();
+        RxHooks hooks = RxHooks.installed();
+        if (hooks != null) {
+            subscriber = hooks.onSubscribe(stageName(), subscriber);
+        }
+
+        StreamEmitter<T> emitter = (probe == null) ? createEmitter() : createEmitter(probe);
+        BasicSubcription<T> sub = new BasicSubcription<>(subscriber, emitter, probe);
+
+        PipelineRegistry registry = PipelineRegistry.enabled();
+        if (registry != null) {
+            registry.register(sub, describe(), subscriberName);
+        }
         subscriber.onSubscribe(sub);
     }
 
     public StreamEmitter<T> createEmitter() {
+        StreamEmitter<T> emitter;
         synchronized (generator) {
-            return StreamEmitter.safeCast(generator.get());
+            emitter = StreamEmitter.safeCast(generator.get());
+        }
+        return withHooks(emitter);
+    }
+
+    /**
+     * Like {@link #createEmitter()}, but the emitter of the first publisher
+     * in this chain of operators is wrapped by {@code probe}.
+     */
+    @SuppressWarnings("unchecked")
+    private StreamEmitter<T> createEmitter(LatencyRecorder.Probe probe) {
+        if (operator == null) {
+            return probe.wrapSource(createEmitter());
         }
+
+        Publisher<Object> up = (Publisher<Object>) upstream;
+        Operator<Object, ? extends T> op = (Operator<Object, ? extends T>) operator;
+        return withHooks(StreamEmitter.safeCast(op.apply(up.createEmitter(probe))));
+    }
+
+    private StreamEmitter<T> withHooks(StreamEmitter<T> emitter) {
+        RxHooks hooks = RxHooks.installed();
+        return (hooks == null) ? emitter : hooks.onEmitter(stageName(), emitter);
+    }
+
+    /**
+     * The names of the stages of this chain of operators, from the source to
+     * this publisher.
+     */
+    String describe() {
+        return (upstream == null) ? stageName() : upstream.describe() + " -> " + stageName();
+    }
+
+    /**
+     * The name this publisher's emitters are reported under to
+     * {@link RxHooks}.
+     */
+    String stageName() {
+        if (operator == null) {
+            return "source";
+        }
+
+        Class<?> cls = operator.getClass();
+        return cls.isAnonymousClass() || cls.isSynthetic() ? cls.getName() : cls.getSimpleName();
     }
 
     public interface Operator<T, R> extends
         Function<StreamEmitter<? extends T>, StreamEmitter<R>> {
-        // This should ideally be a typedef...if Java had such a thing.
+        /**
+         * Attempts to fuse this operator with the {@code next} operator, which
+         * is applied directly to the output of this one. If the two can be
+         * expressed as a single operator, return that operator. Otherwise,
+         * return {@code null}. The default implementation never fuses.
+         *
+         * @param next the operator that follows this one.
+         * @return an operator equivalent to applying this operator then
+         *         {@code next}, or {@code null} if the two cannot be fused.
+         */
+        default <V> Operator<T, V> fuseWith(Operator<? super R, ? extends V> next) {
+            return null;
+        }
     }
 }
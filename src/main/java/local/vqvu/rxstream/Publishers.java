@@ -1,16 +1,27 @@
 package local.vqvu.rxstream;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 import local.vqvu.rxstream.emitter.ErrorEmitter;
+import local.vqvu.rxstream.emitter.IntRangeEmitter;
 import local.vqvu.rxstream.emitter.IteratorEmitter;
+import local.vqvu.rxstream.emitter.LongRangeEmitter;
+import local.vqvu.rxstream.emitter.PushEmitter;
+import local.vqvu.rxstream.emitter.PushSink;
 import local.vqvu.rxstream.emitter.StreamEmitter;
 import local.vqvu.rxstream.emitter.SyncStreamEmitter;
 import local.vqvu.rxstream.operator.ConcatOperator;
+import local.vqvu.rxstream.operator.MergeOperator;
 
 public class Publishers {
+    static final int PUSH_CAPACITY = 128;
+
     private Publishers() {}
 
     public static <T> SyncPublisher<T> empty() {
@@ -40,10 +51,42 @@ public class Publishers {
 
     public static <T> SyncPublisher<T> from(final Iterable<? extends T> iterable) {
         return createSync(() -> {
+            if (iterable instanceof Collection) {
+                int size = ((Collection<?>) iterable).size();
+                return new IteratorEmitter<>(iterable.iterator(), size);
+            }
             return new IteratorEmitter<>(iterable.iterator());
         });
     }
 
+    /**
+     * Returns a stream of {@code count} consecutive {@code int} values,
+     * starting at {@code start}.
+     */
+    public static IntPublisher range(int start, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative. Actual: " + count);
+        }
+        if (count > 0 && start > Integer.MAX_VALUE - (count - 1)) {
+            throw new IllegalArgumentException("Range overflows an int.");
+        }
+        return new IntPublisher(createSync(() -> new IntRangeEmitter(start, count)));
+    }
+
+    /**
+     * Returns a stream of {@code count} consecutive {@code long} values,
+     * starting at {@code start}.
+     */
+    public static LongPublisher rangeLong(long start, long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative. Actual: " + count);
+        }
+        if (count > 0 && start > Long.MAX_VALUE - (count - 1)) {
+            throw new IllegalArgumentException("Range overflows a long.");
+        }
+        return new LongPublisher(createSync(() -> new LongRangeEmitter(start, count)));
+    }
+
     public static <T> SyncPublisher<T> error(final Throwable err) {
         return createSync(() -> {
             return new ErrorEmitter<T>(err);
@@ -54,6 +97,24 @@ public class Publishers {
         return new Publisher<T>(generator);
     }
 
+    /**
+     * Returns a publisher for a push-based source, such as a socket or a
+     * timer. For every subscription, {@code source} is handed a
+     * {@link PushSink} once the subscriber first requests a value, and may
+     * push values to it without waiting for demand. Values the subscriber has
+     * not asked for yet are buffered, up to {@value #PUSH_CAPACITY} of them,
+     * after which the stream fails with a
+     * {@link local.vqvu.rxstream.exception.BackpressureOverflowException}.
+     * Use {@link Publisher#onBackpressureBuffer(int, OverflowStrategy)},
+     * {@link Publisher#onBackpressureDrop(Consumer)} or
+     * {@link Publisher#onBackpressureLatest()} to choose another policy.
+     *
+     * @param source starts the source for a subscription.
+     */
+    public static <T> Publisher<T> push(Consumer<? super PushSink<T>> source) {
+        return create(() -> new PushEmitter<T>(source, PUSH_CAPACITY, OverflowStrategy.ERROR));
+    }
+
     public static <T> SyncPublisher<T> createSync(Supplier<? extends SyncStreamEmitter<? extends T>> generator) {
         return new SyncPublisher<T>(generator);
     }
@@ -61,4 +122,34 @@ public class Publishers {
     public static <T> Publisher<T> concat(Publisher<? extends Publisher<? extends T>> source) {
         return source.transform(new ConcatOperator<T>());
     }
+
+    /**
+     * Returns a publisher that emits the values of all the publishers emitted
+     * by {@code source}, emitting from up to {@code maxConcurrency} of them at
+     * once.
+     *
+     * @param source the publisher of publishers to merge.
+     * @param maxConcurrency the maximum number of publishers to emit from at
+     *            once.
+     */
+    public static <T> Publisher<T> merge(Publisher<? extends Publisher<? extends T>> source,
+                                         int maxConcurrency) {
+        return source.transform(new MergeOperator<T>(maxConcurrency));
+    }
+
+    /**
+     * Returns a publisher that emits the values of all the specified
+     * publishers, emitting from all of them at once.
+     *
+     * @param pubs the publishers to merge.
+     */
+    @SafeVarargs
+    public static <T> Publisher<T> merge(Publisher<? extends T>...pubs) {
+        // Copy the array rather than pass it on, so that it cannot escape.
+        List<Publisher<? extends T>> sources = new ArrayList<>(pubs.length);
+        for (Publisher<? extends T> pub : pubs) {
+            sources.add(pub);
+        }
+        return merge(from(sources), Math.max(pubs.length, 1));
+    }
 }
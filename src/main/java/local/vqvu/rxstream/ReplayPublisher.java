@@ -0,0 +1,478 @@
+package local.vqvu.rxstream;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import local.vqvu.rxstream.emitter.StreamEmitter;
+import local.vqvu.rxstream.util.Serializer;
+import local.vqvu.rxstream.util.StreamToken;
+import local.vqvu.rxstream.util.Trampoline;
+
+/**
+ * A publisher that subscribes to its source once, the first time a
+ * subscriber asks for a value, and records everything the source emits so
+ * that any number of subscribers can replay it.
+ * <p>
+ * Values are appended to a linked list of fixed-size segments. The source is
+ * only asked for more values when a subscriber has read everything recorded
+ * so far. Each subscriber walks the segments with its own cursor. A bounded
+ * replay drops whole segments from the front once enough newer values are
+ * recorded, and new subscribers start from the oldest value still retained.
+ * Subscribers that are already reading keep the segments they still need.
+ * <p>
+ * With a {@link Serializer}, segments are stored in direct
+ * {@link ByteBuffer}s instead of on the heap, and values are deserialized
+ * every time they are replayed.
+ *
+ * @author vqvu
+ *
+ * @param <T>
+ */
+public class ReplayPublisher<T> extends Publisher<T> {
+    // The number of values per heap segment, and the number of bytes per
+    // direct segment.
+    private static final int SEGMENT_SIZE = 128;
+    private static final int DIRECT_SEGMENT_BYTES = 64 * 1024;
+
+    private ReplayPublisher(Recorder<T> recorder) {
+        super(recorder::subscribe);
+    }
+
+    /**
+     * Records every value.
+     */
+    static <T> ReplayPublisher<T> unbounded(Publisher<? extends T> source) {
+        return new ReplayPublisher<T>(new Recorder<T>(source,
+                new Store<T>(Long.MAX_VALUE, Long.MAX_VALUE, () -> new HeapSegment<T>(SEGMENT_SIZE))));
+    }
+
+    /**
+     * Replays at most the last {@code maxElements} values to new subscribers.
+     */
+    static <T> ReplayPublisher<T> bounded(Publisher<? extends T> source, int maxElements) {
+        if (maxElements <= 0) {
+            throw new IllegalArgumentException("maxElements must be positive. Actual: " + maxElements);
+        }
+
+        int segmentSize = Math.min(maxElements, SEGMENT_SIZE);
+        return new ReplayPublisher<T>(new Recorder<T>(source,
+                new Store<T>(maxElements, Long.MAX_VALUE, () -> new HeapSegment<T>(segmentSize))));
+    }
+
+    /**
+     * Replays about the last {@code maxBytes} worth of values, as computed by
+     * {@code weigher}, to new subscribers.
+     */
+    static <T> ReplayPublisher<T> bounded(Publisher<? extends T> source, long maxBytes,
+                                          ToLongFunction<? super T> weigher) {
+        checkMaxBytes(maxBytes);
+        return new ReplayPublisher<T>(new Recorder<T>(source,
+                new Store<T>(Long.MAX_VALUE, maxBytes, () -> new WeighedSegment<T>(SEGMENT_SIZE, weigher))));
+    }
+
+    /**
+     * Like {@link #bounded(Publisher, long, ToLongFunction)}, but stores
+     * values in direct buffers using {@code serializer}.
+     */
+    static <T> ReplayPublisher<T> offHeap(Publisher<? extends T> source, long maxBytes,
+                                          Serializer<T> serializer) {
+        checkMaxBytes(maxBytes);
+        return new ReplayPublisher<T>(new Recorder<T>(source,
+                new Store<T>(Long.MAX_VALUE, maxBytes, () -> new DirectSegment<T>(serializer))));
+    }
+
+    private static void checkMaxBytes(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive. Actual: " + maxBytes);
+        }
+    }
+
+    /**
+     * Holds the subscription to the source and the subscribers' cursors.
+     */
+    private static class Recorder<T> {
+        private final Publisher<? extends T> source;
+        private final Store<T> store;
+        private final List<Cursor> cursors;
+
+        private final AtomicLong requested;
+        private volatile Trampoline<T> upstream;
+        private volatile StreamToken<? extends T> terminal;
+
+        public Recorder(Publisher<? extends T> source, Store<T> store) {
+            this.source = source;
+            this.store = store;
+            this.cursors = new CopyOnWriteArrayList<>();
+
+            this.requested = new AtomicLong(0);
+            this.upstream = null;
+            this.terminal = null;
+        }
+
+        StreamEmitter<T> subscribe() {
+            Cursor cursor = new Cursor();
+            cursors.add(cursor);
+            return cursor;
+        }
+
+        /**
+         * Ask the source for {@code n} more values, subscribing to it if this
+         * is the first request.
+         */
+        private void request(long n) {
+            requested.accumulateAndGet(n, Math::max);
+
+            Trampoline<T> up = upstream;
+            if (up == null) {
+                synchronized (this) {
+                    if (upstream == null) {
+                        upstream = new Trampoline<T>(source.createEmitter(), this::record,
+                                this::terminate, () -> Math.max(requested.get(), 0));
+                    }
+                    up = upstream;
+                }
+            }
+            up.resume();
+        }
+
+        private void record(T value) {
+            store.append(value);
+            requested.decrementAndGet();
+            notifyCursors();
+        }
+
+        private void terminate(StreamToken<? extends T> token) {
+            terminal = token;
+            notifyCursors();
+        }
+
+        private void notifyCursors() {
+            for (Cursor cursor : cursors) {
+                if (cursor.isCancelled()) {
+                    cursors.remove(cursor);
+                } else {
+                    cursor.notifyWaiting();
+                }
+            }
+        }
+
+        private class Cursor implements StreamEmitter<T> {
+            private Segment<T> segment;
+            private int pos;
+            private volatile long index;
+            private boolean done;
+
+            // The last callback seen, used to notice cancelled subscribers.
+            private volatile EmitCallback<? super T> lastCallback;
+
+            // The downstream callback that is waiting for the source.
+            private final AtomicReference<EmitCallback<? super T>> waiting;
+            private volatile long waitingNumValues;
+
+            public Cursor() {
+                this.segment = null;
+                this.pos = 0;
+                this.index = 0;
+                this.done = false;
+                this.lastCallback = null;
+                this.waiting = new AtomicReference<>(null);
+                this.waitingNumValues = 0;
+            }
+
+            boolean isCancelled() {
+                EmitCallback<? super T> cb = lastCallback;
+                return cb != null && cb.isCancelled();
+            }
+
+            void notifyWaiting() {
+                if (waiting.get() != null) {
+                    EmitCallback<? super T> cb = waiting.getAndSet(null);
+                    if (cb != null) {
+                        drainOrWait(waitingNumValues, cb);
+                    }
+                }
+            }
+
+            @Override
+            public void emitOne(EmitCallback<? super T> cb) {
+                emitMany(1, cb);
+            }
+
+            @Override
+            public void emitMany(long n, EmitCallback<? super T> cb) {
+                lastCallback = cb;
+                if (segment == null) {
+                    // Start from the oldest value that is still retained.
+                    index = store.firstIndex();
+                    segment = store.segmentFor(index);
+                    pos = (int) (index - segment.start);
+                }
+
+                drainOrWait(n, cb);
+            }
+
+            private void drainOrWait(long n, EmitCallback<? super T> cb) {
+                while (!drain(n, cb)) {
+                    waitingNumValues = n;
+                    waiting.set(cb);
+
+                    // Check again in case the source missed the callback.
+                    if ((terminal == null && index == store.size)
+                            || !waiting.compareAndSet(cb, null)) {
+                        return;
+                    }
+                }
+            }
+
+            /**
+             * Emit up to {@code n} recorded values, followed by either
+             * {@code next()} or the terminal token. Asks the source for more
+             * values if there is nothing to emit.
+             *
+             * @return {@code false} if there was nothing to emit.
+             */
+            private boolean drain(long n, EmitCallback<? super T> cb) {
+                if (done) {
+                    return true;
+                }
+
+                // The terminal token is only set after the last value is
+                // recorded, so read it first.
+                StreamToken<? extends T> token = terminal;
+                long numEmitted = 0;
+                while (numEmitted < n) {
+                    if (pos < segment.count) {
+                        T value = segment.get(pos);
+                        pos++;
+                        index++;
+                        numEmitted++;
+                        cb.acceptValue(value);
+
+                        if (cb.isCancelled()) {
+                            done = true;
+                            cursors.remove(this);
+                            return true;
+                        }
+                    } else {
+                        // The count is final once the next segment exists.
+                        Segment<T> next = segment.next;
+                        if (next == null) {
+                            break;
+                        }
+                        if (pos < segment.count) {
+                            continue;
+                        }
+                        segment = next;
+                        pos = 0;
+                    }
+                }
+
+                if (token != null && index == store.size) {
+                    done = true;
+                    cursors.remove(this);
+                    cb.acceptTerminal(token);
+                    return true;
+                }
+
+                if (numEmitted > 0) {
+                    cb.next();
+                    return true;
+                }
+
+                if (token == null) {
+                    request(n);
+                }
+                return false;
+            }
+        }
+    }
+
+    /**
+     * The recorded values. Only the source's thread appends, and readers see
+     * a value once the segment's count covers it.
+     */
+    private static class Store<T> {
+        private final long maxElements;
+        private final long maxBytes;
+        private final Supplier<Segment<T>> newSegment;
+
+        // The oldest segment that new cursors may start from.
+        private volatile Segment<T> head;
+        private Segment<T> tail;
+        private long retainedBytes;
+        volatile long size;
+
+        public Store(long maxElements, long maxBytes,
+                     Supplier<Segment<T>> newSegment) {
+            this.maxElements = maxElements;
+            this.maxBytes = maxBytes;
+            this.newSegment = newSegment;
+
+            this.head = newSegment.get();
+            this.tail = head;
+            this.retainedBytes = 0;
+            this.size = 0;
+        }
+
+        long firstIndex() {
+            long first = size - maxElements;
+            return Math.max(first, head.start);
+        }
+
+        Segment<T> segmentFor(long index) {
+            Segment<T> seg = head;
+            while (index >= seg.start + seg.count && seg.next != null) {
+                seg = seg.next;
+            }
+            return seg;
+        }
+
+        void append(T value) {
+            long before = tail.bytes;
+            if (!tail.append(value)) {
+                Segment<T> seg = newSegment.get();
+                seg.start = size;
+                if (!seg.append(value)) {
+                    throw new IllegalStateException("Value does not fit in an empty segment.");
+                }
+
+                // Link only after the value is written, so that the old
+                // segment's count is final before readers move on.
+                tail.next = seg;
+                tail = seg;
+                before = 0;
+            }
+            retainedBytes += tail.bytes - before;
+            size++;
+            trim();
+        }
+
+        private void trim() {
+            Segment<T> h = head;
+            while (h.next != null) {
+                if (size - h.next.start >= maxElements
+                        || retainedBytes - h.bytes >= maxBytes) {
+                    retainedBytes -= h.bytes;
+                    h = h.next;
+                } else {
+                    break;
+                }
+            }
+            head = h;
+        }
+    }
+
+    private abstract static class Segment<T> {
+        // Set before the segment is linked.
+        long start;
+        long bytes;
+
+        volatile int count;
+        volatile Segment<T> next;
+
+        /**
+         * Append the value, unless the segment is full. Only called by the
+         * source's thread.
+         *
+         * @return {@code false} if the segment is full.
+         */
+        abstract boolean append(T value);
+
+        abstract T get(int i);
+    }
+
+    private static class HeapSegment<T> extends Segment<T> {
+        private final Object[] values;
+
+        public HeapSegment(int size) {
+            this.values = new Object[size];
+        }
+
+        @Override
+        boolean append(T value) {
+            int c = count;
+            if (c == values.length) {
+                return false;
+            }
+            values[c] = value;
+            bytes += weigh(value);
+            count = c + 1;
+            return true;
+        }
+
+        long weigh(T value) {
+            return 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        T get(int i) {
+            return (T) values[i];
+        }
+    }
+
+    private static class WeighedSegment<T> extends HeapSegment<T> {
+        private final ToLongFunction<? super T> weigher;
+
+        public WeighedSegment(int size, ToLongFunction<? super T> weigher) {
+            super(size);
+            this.weigher = weigher;
+        }
+
+        @Override
+        long weigh(T value) {
+            return weigher.applyAsLong(value);
+        }
+    }
+
+    /**
+     * Stores serialized values back to back in a direct buffer. A value that
+     * is larger than the usual segment gets a segment of its own.
+     */
+    private static class DirectSegment<T> extends Segment<T> {
+        private final Serializer<T> serializer;
+        private ByteBuffer data;
+        private final int[] offsets;
+
+        public DirectSegment(Serializer<T> serializer) {
+            this.serializer = serializer;
+            this.data = null;
+            this.offsets = new int[SEGMENT_SIZE + 1];
+        }
+
+        @Override
+        boolean append(T value) {
+            int size = serializer.sizeOf(value);
+            int c = count;
+            if (data == null) {
+                data = ByteBuffer.allocateDirect(Math.max(size, DIRECT_SEGMENT_BYTES));
+            }
+
+            int offset = offsets[c];
+            if (c == SEGMENT_SIZE || data.capacity() - offset < size) {
+                return false;
+            }
+
+            ByteBuffer out = data.duplicate();
+            out.position(offset);
+            serializer.write(value, out);
+            offsets[c + 1] = offset + size;
+            bytes += size;
+            count = c + 1;
+            return true;
+        }
+
+        @Override
+        T get(int i) {
+            ByteBuffer in = data.duplicate();
+            in.limit(offsets[i + 1]);
+            in.position(offsets[i]);
+            return serializer.read(in.slice());
+        }
+    }
+}
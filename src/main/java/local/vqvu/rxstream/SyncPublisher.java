@@ -1,16 +1,26 @@
 package local.vqvu.rxstream;
 
+import java.time.Duration;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import local.vqvu.rxstream.emitter.Poller;
+import local.vqvu.rxstream.emitter.StreamEmitter;
 import local.vqvu.rxstream.emitter.SyncStreamEmitter;
 import local.vqvu.rxstream.util.StreamToken;
-
-import org.reactivestreams.Subscriber;
-import org.reactivestreams.Subscription;
+import local.vqvu.rxstream.util.Trampoline;
 
 public class SyncPublisher<T> extends Publisher<T> implements Iterable<T> {
+    /**
+     * The number of values {@link #iterator()} requests at a time.
+     */
+    public static final int DEFAULT_PREFETCH = 128;
+
     SyncPublisher(Supplier<? extends SyncStreamEmitter<? extends T>> generator) {
         super(generator);
     }
@@ -21,72 +31,202 @@ public class SyncPublisher<T> extends Publisher<T> implements Iterable<T> {
     }
 
     @Override
-    public Iterator<T> iterator() {
-        return new It();
+    public SyncPublisher<T> toSynchronousPublisher(Duration timeout) {
+        return this;
+    }
+
+    @Override
+    public ChunkedIterator<T> iterator() {
+        return iterator(DEFAULT_PREFETCH);
+    }
+
+    /**
+     * Returns an iterator that requests up to {@code prefetch} values at a
+     * time and buffers them. Call {@link ChunkedIterator#close()} to cancel the
+     * subscription if you stop iterating before the end.
+     *
+     * @param prefetch the number of values to request at a time.
+     */
+    public ChunkedIterator<T> iterator(int prefetch) {
+        return new ChunkedIterator<T>(createEmitter(), prefetch);
+    }
+
+    /**
+     * Returns an {@link Spliterator#ORDERED} spliterator. It is also
+     * {@link Spliterator#SIZED} if the source knows how many values it will
+     * emit.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return spliterator(iterator());
     }
 
-    private class It implements Iterator<T>, Subscriber<T> {
-        private Subscription sub;
+    private Spliterator<T> spliterator(ChunkedIterator<T> it) {
+        long size = it.knownSize();
+        if (size >= 0) {
+            return Spliterators.spliterator(it, size, Spliterator.ORDERED);
+        } else {
+            return Spliterators.spliteratorUnknownSize(it, Spliterator.ORDERED);
+        }
+    }
+
+    /**
+     * Returns a sequential {@link Stream} of the values. Closing the stream
+     * cancels the subscription.
+     */
+    public Stream<T> stream() {
+        ChunkedIterator<T> it = iterator();
+        return StreamSupport.stream(spliterator(it), false).onClose(it::close);
+    }
 
-        private T nextValue;
+    /**
+     * An iterator that requests values in chunks and buffers them in an array
+     * that is reused for every chunk. A chunk is whatever a single call to the
+     * emitter produces, so {@link #hasNext()} returns as soon as the emitter
+     * has something to give rather than waiting for a full chunk. If the
+     * emitter chain can be fused (see {@link StreamEmitter#fuseSync()}), the
+     * iterator pulls values directly from the fused chain instead.
+     *
+     * @param <T>
+     */
+    public static final class ChunkedIterator<T> implements Iterator<T>, AutoCloseable {
+        private final int prefetch;
+        private final long knownSize;
+        private final Object[] buffer;
+        private final Poller<? extends T> poller;
+        private final Trampoline<T> upstream;
+
+        private int head;
+        private int tail;
         private boolean done;
+        private Throwable error;
 
-        public It() {
-            this.sub = null;
+        ChunkedIterator(StreamEmitter<? extends T> emitter, int prefetch) {
+            if (prefetch <= 0) {
+                throw new IllegalArgumentException("prefetch must be positive. Actual: " + prefetch);
+            }
+
+            this.prefetch = prefetch;
+            this.knownSize = (emitter instanceof SyncStreamEmitter)
+                ? ((SyncStreamEmitter<?>) emitter).knownSize()
+                : -1;
 
-            this.nextValue = null;
+            this.head = 0;
+            this.tail = 0;
             this.done = false;
+            this.error = null;
 
-            subscribe(this);
+            this.poller = emitter.fuseSync();
+            if (poller == null) {
+                this.buffer = new Object[prefetch];
+                this.upstream = new Trampoline<T>(emitter, this::accept, this::terminate,
+                                                  this::upstreamDemand);
+            } else {
+                // One slot to hold the value hasNext() looked ahead at.
+                this.buffer = new Object[1];
+                this.upstream = null;
+            }
+        }
+
+        /**
+         * Returns the number of values left in the source when this iterator
+         * was created, or {@code -1} if unknown.
+         */
+        long knownSize() {
+            return knownSize;
         }
 
         @Override
         public boolean hasNext() {
-            ensureNextValue();
-            return checkHasNext();
-        }
+            if (head < tail) {
+                return true;
+            }
+
+            if (!done) {
+                head = 0;
+                tail = 0;
+                if (poller != null) {
+                    pollOne();
+                } else {
+                    upstream.resume();
+                }
+                if (head < tail) {
+                    return true;
+                }
+            }
 
-        private void ensureNextValue() {
-            if (nextValue == null && !done) {
-                sub.request(1);
+            if (error != null) {
+                Throwable err = error;
+                error = null;
+                throw StreamToken.exception(err);
             }
+            return false;
         }
 
-        private boolean checkHasNext() {
-            return (nextValue != null);
+        private void pollOne() {
+            Object value;
+            try {
+                value = poller.poll();
+            } catch (Exception e) {
+                done = true;
+                error = e;
+                return;
+            }
+
+            if (value == Poller.END) {
+                done = true;
+            } else {
+                buffer[tail++] = value;
+            }
         }
 
         @Override
+        @SuppressWarnings("unchecked")
         public T next() {
-            if (hasNext()) {
-                T ret = nextValue;
-                nextValue = null;
-                return ret;
-            } else {
+            if (!hasNext()) {
                 throw new NoSuchElementException();
             }
+
+            T ret = (T) buffer[head];
+            buffer[head++] = null;
+            return ret;
         }
 
-        @Override
-        public void onSubscribe(Subscription sub) {
-            this.sub = sub;
+        /**
+         * The emitter is synchronous, so the trampoline runs on the thread
+         * that calls {@link #hasNext()}. Asking for nothing once a call to the
+         * emitter has buffered a value makes the trampoline return.
+         */
+        private long upstreamDemand() {
+            return (tail == 0) ? prefetch : 0;
         }
 
-        @Override
-        public void onNext(T val) {
-            assert(nextValue == null);
-            nextValue = val;
+        private void accept(T value) {
+            buffer[tail++] = value;
         }
 
-        @Override
-        public void onError(Throwable t) {
+        private void terminate(StreamToken<? extends T> token) {
             done = true;
-            throw StreamToken.exception(t);
+            if (token.isError()) {
+                error = ((StreamToken.ErrorStreamToken<?>) token).getError();
+            }
         }
 
+        /**
+         * Cancels the subscription and drops any buffered values.
+         */
         @Override
-        public void onComplete() {
-            done = true;
+        public void close() {
+            if (!done) {
+                done = true;
+                if (upstream != null) {
+                    upstream.stop();
+                }
+            }
+
+            while (head < tail) {
+                buffer[head++] = null;
+            }
         }
     }
 }
@@ -0,0 +1,120 @@
+package local.vqvu.rxstream.emitter;
+
+import local.vqvu.rxstream.util.StreamToken;
+
+/**
+ * A {@link StreamEmitter} that transforms its source through a {@link Sink}.
+ * Unlike {@link TransformingStreamEmitter}, the sink itself is the callback
+ * handed to the source, so it can implement a primitive callback such as
+ * {@link IntEmitCallback} and receive values from the source without boxing.
+ * A chain of sinks only boxes where a non-primitive callback sits downstream.
+ *
+ * @author vqvu
+ *
+ * @param <T>
+ * @param <R>
+ */
+public class ChainedSinkEmitter<T, R> implements StreamEmitter<R> {
+    private final StreamEmitter<? extends T> source;
+    private final Sink<T, R> sink;
+
+    public ChainedSinkEmitter(StreamEmitter<? extends T> source, Sink<T, R> sink) {
+        this.source = source;
+        this.sink = sink;
+    }
+
+    @Override
+    public void emitOne(EmitCallback<? super R> cb) {
+        sink.setDownstream(cb);
+        source.emitOne(sink);
+    }
+
+    @Override
+    public void emitMany(long n, EmitCallback<? super R> cb) {
+        sink.setDownstream(cb);
+        source.emitMany(sink.sourceDemand(n), sink);
+    }
+
+    /**
+     * The callback handed to the source. It transforms every value and pushes
+     * the result to the current downstream callback. Once the sink emits an
+     * {@code error} or {@code end} token, everything else from the source is
+     * ignored.
+     * <p>
+     * Only one call to the source is ever in flight, so a single instance is
+     * reused for every call by swapping out the downstream callback.
+     * Subclasses that emit primitives should adapt the downstream callback in
+     * {@link #downstreamChanged()} rather than on every value.
+     */
+    public abstract static class Sink<T, R> implements EmitCallback<T> {
+        protected volatile EmitCallback<? super R> downstream;
+        private volatile boolean done;
+
+        protected Sink() {
+            this.downstream = null;
+            this.done = false;
+        }
+
+        final void setDownstream(EmitCallback<? super R> cb) {
+            if (cb != downstream) {
+                downstream = cb;
+                downstreamChanged();
+            }
+        }
+
+        /**
+         * Called whenever the downstream callback changes.
+         */
+        protected void downstreamChanged() {
+        }
+
+        /**
+         * Returns the number of values to request from the source when the
+         * downstream requests {@code n} values. See
+         * {@link TransformingStreamEmitter.TransformCallback#sourceDemand(long)}.
+         */
+        protected long sourceDemand(long n) {
+            return n;
+        }
+
+        protected final boolean isDone() {
+            return done;
+        }
+
+        /**
+         * Emits {@code error} and ignores everything else from the source.
+         */
+        protected final void fail(Throwable error) {
+            done = true;
+            downstream.acceptError(error);
+        }
+
+        @Override
+        public final void acceptTerminal(StreamToken<? extends T> token) {
+            if (!done) {
+                done = true;
+                onTerminal(token);
+            }
+        }
+
+        /**
+         * Handle an {@code error} or {@code end} token from the source. The
+         * default implementation forwards it to the downstream.
+         */
+        protected void onTerminal(StreamToken<? extends T> token) {
+            downstream.acceptTerminal(token.safeCast());
+        }
+
+        @Override
+        public final void next() {
+            if (!done) {
+                downstream.next();
+            }
+        }
+
+        @Override
+        public final boolean isCancelled() {
+            return done || downstream.isCancelled();
+        }
+    }
+}
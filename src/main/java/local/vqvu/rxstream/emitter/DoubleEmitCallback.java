@@ -0,0 +1,55 @@
+package local.vqvu.rxstream.emitter;
+
+import local.vqvu.rxstream.emitter.StreamEmitter.EmitCallback;
+import local.vqvu.rxstream.util.StreamToken;
+
+/**
+ * An {@link EmitCallback} that accepts {@code double} values without boxing.
+ * Emitters of {@code Double} values should check for this interface and call
+ * {@link #acceptDouble(double)} directly.
+ *
+ * @author vqvu
+ */
+public interface DoubleEmitCallback extends EmitCallback<Double> {
+    /**
+     * The primitive version of {@link #acceptValue(Object)}.
+     */
+    void acceptDouble(double value) throws IllegalStateException;
+
+    @Override
+    default void acceptValue(Double value) throws IllegalStateException {
+        acceptDouble(value);
+    }
+
+    /**
+     * Returns {@code cb} if it is already a {@code DoubleEmitCallback}, or an
+     * adapter that boxes every value otherwise.
+     */
+    static DoubleEmitCallback from(EmitCallback<? super Double> cb) {
+        if (cb instanceof DoubleEmitCallback) {
+            return (DoubleEmitCallback) cb;
+        }
+
+        return new DoubleEmitCallback() {
+            @Override
+            public void acceptDouble(double value) {
+                cb.acceptValue(value);
+            }
+
+            @Override
+            public void acceptTerminal(StreamToken<? extends Double> token) {
+                cb.acceptTerminal(token);
+            }
+
+            @Override
+            public void next() {
+                cb.next();
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return cb.isCancelled();
+            }
+        };
+    }
+}
@@ -19,4 +19,16 @@ public class ErrorEmitter<T> implements SyncStreamEmitter<T> {
     public void emitOne(EmitCallback<? super T> cb) {
         cb.acceptError(error);
     }
+
+    @Override
+    public Poller<T> fuseSync() {
+        if (!(error instanceof Exception)) {
+            return null;
+        }
+
+        Exception e = (Exception) error;
+        return () -> {
+            throw e;
+        };
+    }
 }
@@ -0,0 +1,55 @@
+package local.vqvu.rxstream.emitter;
+
+import local.vqvu.rxstream.emitter.StreamEmitter.EmitCallback;
+import local.vqvu.rxstream.util.StreamToken;
+
+/**
+ * An {@link EmitCallback} that accepts {@code int} values without boxing.
+ * Emitters of {@code Integer} values should check for this interface and call
+ * {@link #acceptInt(int)} directly.
+ *
+ * @author vqvu
+ */
+public interface IntEmitCallback extends EmitCallback<Integer> {
+    /**
+     * The primitive version of {@link #acceptValue(Object)}.
+     */
+    void acceptInt(int value) throws IllegalStateException;
+
+    @Override
+    default void acceptValue(Integer value) throws IllegalStateException {
+        acceptInt(value);
+    }
+
+    /**
+     * Returns {@code cb} if it is already an {@code IntEmitCallback}, or an
+     * adapter that boxes every value otherwise.
+     */
+    static IntEmitCallback from(EmitCallback<? super Integer> cb) {
+        if (cb instanceof IntEmitCallback) {
+            return (IntEmitCallback) cb;
+        }
+
+        return new IntEmitCallback() {
+            @Override
+            public void acceptInt(int value) {
+                cb.acceptValue(value);
+            }
+
+            @Override
+            public void acceptTerminal(StreamToken<? extends Integer> token) {
+                cb.acceptTerminal(token);
+            }
+
+            @Override
+            public void next() {
+                cb.next();
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return cb.isCancelled();
+            }
+        };
+    }
+}
@@ -0,0 +1,59 @@
+package local.vqvu.rxstream.emitter;
+
+/**
+ * Emits a range of {@code int} values. Values are pushed through
+ * {@link IntEmitCallback#acceptInt(int)}, so they are only boxed if the
+ * callback is not an {@link IntEmitCallback}.
+ *
+ * @author vqvu
+ */
+public class IntRangeEmitter implements SyncStreamEmitter<Integer> {
+    private int next;
+    private long remaining;
+
+    public IntRangeEmitter(int start, int count) {
+        this.next = start;
+        this.remaining = count;
+    }
+
+    @Override
+    public long knownSize() {
+        return remaining;
+    }
+
+    @Override
+    public Poller<Integer> fuseSync() {
+        return () -> {
+            if (remaining == 0) {
+                return Poller.END;
+            }
+            remaining--;
+            return next++;
+        };
+    }
+
+    @Override
+    public void emitOne(EmitCallback<? super Integer> cb) {
+        emitMany(1, cb);
+    }
+
+    @Override
+    public void emitMany(long n, EmitCallback<? super Integer> cb) {
+        IntEmitCallback intCb = IntEmitCallback.from(cb);
+        long numToEmit = Math.min(n, remaining);
+        for (long i = 0; i < numToEmit; i++) {
+            remaining--;
+            intCb.acceptInt(next++);
+
+            if (intCb.isCancelled()) {
+                return;
+            }
+        }
+
+        if (remaining == 0) {
+            intCb.acceptEnd();
+        } else {
+            intCb.next();
+        }
+    }
+}
@@ -2,8 +2,6 @@ package local.vqvu.rxstream.emitter;
 
 import java.util.Iterator;
 
-import local.vqvu.rxstream.util.StreamToken;
-
 /**
  * A {@link StreamEmitter} backed by an {@link Iterator}.
  *
@@ -14,27 +12,62 @@ import local.vqvu.rxstream.util.StreamToken;
 public class IteratorEmitter<T> implements SyncStreamEmitter<T> {
     private final Iterator<? extends T> delegate;
 
+    // The number of values left, or -1 if unknown.
+    private long remaining;
+
     public IteratorEmitter(Iterator<? extends T> iter) {
+        this(iter, -1);
+    }
+
+    /**
+     * @param iter the iterator to emit from.
+     * @param size the exact number of values {@code iter} will produce, or
+     *            {@code -1} if unknown.
+     */
+    public IteratorEmitter(Iterator<? extends T> iter, long size) {
         this.delegate = iter;
+        this.remaining = size;
+    }
+
+    @Override
+    public long knownSize() {
+        return remaining;
+    }
+
+    @Override
+    public Poller<T> fuseSync() {
+        return () -> delegate.hasNext() ? delegate.next() : Poller.END;
     }
 
     @Override
     public void emitOne(EmitCallback<? super T> cb) {
-        StreamToken<T> token;
-        if (delegate.hasNext()) {
+        emitMany(1, cb);
+    }
+
+    @Override
+    public void emitMany(long n, EmitCallback<? super T> cb) {
+        for (long i = 0; i < n; i++) {
+            if (!delegate.hasNext()) {
+                cb.acceptEnd();
+                return;
+            }
+
+            T val;
             try {
-                token = StreamToken.<T>value(delegate.next());
+                val = delegate.next();
             } catch (RuntimeException e) {
-                token = StreamToken.error(e);
+                cb.acceptError(e);
+                return;
             }
-        } else {
-            token = StreamToken.end();
-        }
-        cb.accept(token);
+            if (remaining > 0) {
+                remaining--;
+            }
+            cb.acceptValue(val);
 
-        if (token.isValue()) {
-            cb.next();
+            if (cb.isCancelled()) {
+                return;
+            }
         }
+        cb.next();
     }
-
 }
@@ -0,0 +1,55 @@
+package local.vqvu.rxstream.emitter;
+
+import local.vqvu.rxstream.emitter.StreamEmitter.EmitCallback;
+import local.vqvu.rxstream.util.StreamToken;
+
+/**
+ * An {@link EmitCallback} that accepts {@code long} values without boxing.
+ * Emitters of {@code Long} values should check for this interface and call
+ * {@link #acceptLong(long)} directly.
+ *
+ * @author vqvu
+ */
+public interface LongEmitCallback extends EmitCallback<Long> {
+    /**
+     * The primitive version of {@link #acceptValue(Object)}.
+     */
+    void acceptLong(long value) throws IllegalStateException;
+
+    @Override
+    default void acceptValue(Long value) throws IllegalStateException {
+        acceptLong(value);
+    }
+
+    /**
+     * Returns {@code cb} if it is already a {@code LongEmitCallback}, or an
+     * adapter that boxes every value otherwise.
+     */
+    static LongEmitCallback from(EmitCallback<? super Long> cb) {
+        if (cb instanceof LongEmitCallback) {
+            return (LongEmitCallback) cb;
+        }
+
+        return new LongEmitCallback() {
+            @Override
+            public void acceptLong(long value) {
+                cb.acceptValue(value);
+            }
+
+            @Override
+            public void acceptTerminal(StreamToken<? extends Long> token) {
+                cb.acceptTerminal(token);
+            }
+
+            @Override
+            public void next() {
+                cb.next();
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return cb.isCancelled();
+            }
+        };
+    }
+}
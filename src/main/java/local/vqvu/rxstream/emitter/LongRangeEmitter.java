@@ -0,0 +1,59 @@
+package local.vqvu.rxstream.emitter;
+
+/**
+ * Emits a range of {@code long} values. Values are pushed through
+ * {@link LongEmitCallback#acceptLong(long)}, so they are only boxed if the
+ * callback is not an {@link LongEmitCallback}.
+ *
+ * @author vqvu
+ */
+public class LongRangeEmitter implements SyncStreamEmitter<Long> {
+    private long next;
+    private long remaining;
+
+    public LongRangeEmitter(long start, long count) {
+        this.next = start;
+        this.remaining = count;
+    }
+
+    @Override
+    public long knownSize() {
+        return remaining;
+    }
+
+    @Override
+    public Poller<Long> fuseSync() {
+        return () -> {
+            if (remaining == 0) {
+                return Poller.END;
+            }
+            remaining--;
+            return next++;
+        };
+    }
+
+    @Override
+    public void emitOne(EmitCallback<? super Long> cb) {
+        emitMany(1, cb);
+    }
+
+    @Override
+    public void emitMany(long n, EmitCallback<? super Long> cb) {
+        LongEmitCallback longCb = LongEmitCallback.from(cb);
+        long numToEmit = Math.min(n, remaining);
+        for (long i = 0; i < numToEmit; i++) {
+            remaining--;
+            longCb.acceptLong(next++);
+
+            if (longCb.isCancelled()) {
+                return;
+            }
+        }
+
+        if (remaining == 0) {
+            longCb.acceptEnd();
+        } else {
+            longCb.next();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package local.vqvu.rxstream.emitter;
+
+/**
+ * Pull-style access to a fully synchronous chain of emitters. See
+ * {@link StreamEmitter#fuseSync()}.
+ *
+ * @author vqvu
+ *
+ * @param <T>
+ */
+@FunctionalInterface
+public interface Poller<T> {
+    /**
+     * Returned by {@link #poll()} once the stream has ended. Compare by
+     * identity, since {@code null} is a valid value.
+     */
+    Object END = new Object();
+
+    /**
+     * Returns the next value, which may be {@code null}, or {@link #END} if
+     * the stream has ended. The result is an {@code Object} only so that
+     * {@link #END} can be returned whatever {@code T} is. Anything else is a
+     * {@code T}. Errors are thrown. Once this method returns {@link #END} or
+     * throws, it must not be called again.
+     *
+     * @return the next value, or {@link #END} at the end of the stream.
+     * @throws Exception the error the stream ended with.
+     */
+    Object poll() throws Exception;
+}
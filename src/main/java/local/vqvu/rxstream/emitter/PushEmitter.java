@@ -0,0 +1,68 @@
+package local.vqvu.rxstream.emitter;
+
+import java.util.function.Consumer;
+
+import local.vqvu.rxstream.OverflowStrategy;
+import local.vqvu.rxstream.util.OverflowBuffer;
+import local.vqvu.rxstream.util.StreamToken;
+
+/**
+ * An emitter for a push-based source. The source is handed a
+ * {@link PushSink} when the emitter is first asked for a value, and may then
+ * push values from any thread, one call at a time.
+ *
+ * @author vqvu
+ *
+ * @param <T>
+ */
+public class PushEmitter<T> extends OverflowBuffer<T> implements PushSink<T> {
+    private final Consumer<? super PushSink<T>> source;
+
+    public PushEmitter(Consumer<? super PushSink<T>> source, int capacity,
+                       OverflowStrategy strategy) {
+        this(source, capacity, strategy, null);
+    }
+
+    /**
+     * @see OverflowBuffer#OverflowBuffer(int, OverflowStrategy, Consumer)
+     */
+    public PushEmitter(Consumer<? super PushSink<T>> source, int capacity,
+                       OverflowStrategy strategy, Consumer<? super T> onDrop) {
+        super(capacity, strategy, onDrop);
+        this.source = source;
+    }
+
+    /**
+     * Returns an emitter for the same source that handles overflow
+     * differently. Only meaningful before the first emit, since the source
+     * has not been started yet.
+     */
+    public PushEmitter<T> withOverflow(int capacity, OverflowStrategy strategy,
+                                       Consumer<? super T> onDrop) {
+        return new PushEmitter<>(source, capacity, strategy, onDrop);
+    }
+
+    @Override
+    protected void onStart() {
+        try {
+            source.accept(this);
+        } catch (Exception e) {
+            error(e);
+        }
+    }
+
+    @Override
+    public void next(T value) throws NullPointerException {
+        offer(value);
+    }
+
+    @Override
+    public void error(Throwable error) {
+        terminate(StreamToken.error(error));
+    }
+
+    @Override
+    public void complete() {
+        terminate(StreamToken.end());
+    }
+}
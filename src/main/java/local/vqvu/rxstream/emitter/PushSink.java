@@ -0,0 +1,36 @@
+package local.vqvu.rxstream.emitter;
+
+/**
+ * Accepts the values of a push-based source, such as a socket or a timer,
+ * regardless of the downstream demand. Calls must not be made concurrently.
+ *
+ * @author vqvu
+ *
+ * @param <T>
+ *
+ * @see local.vqvu.rxstream.Publishers#push(java.util.function.Consumer)
+ */
+public interface PushSink<T> {
+    /**
+     * Push a value. Does nothing once the stream has terminated.
+     *
+     * @throws NullPointerException if {@code value} is {@code null}.
+     */
+    void next(T value) throws NullPointerException;
+
+    /**
+     * End the stream with an error, after the values already buffered.
+     */
+    void error(Throwable error);
+
+    /**
+     * End the stream, after the values already buffered.
+     */
+    void complete();
+
+    /**
+     * Returns {@code true} once the subscriber has cancelled. The source
+     * should stop pushing and release its resources.
+     */
+    boolean isCancelled();
+}
@@ -30,11 +30,11 @@ public interface StreamEmitter<T> {
      * <li>If the emitter is not ready to emit but has more data, call
      * {@link EmitCallback#next()}.
      * <li>If the emitter is ready to emit a value, call
-     * {@link EmitCallback#accept(StreamToken)} with the {@code value} token.
-     * Then, it must call either {@link EmitCallback#accept(StreamToken)} with
-     * an end token or call {@link EmitCallback#next()}.
+     * {@link EmitCallback#acceptValue(Object)} with the value. Then, it must
+     * call either {@link EmitCallback#acceptEnd()} or
+     * {@link EmitCallback#next()}.
      * <li>If the emitter encountered an error, it must call
-     * {@link EmitCallback#accept(StreamToken)} with the error.
+     * {@link EmitCallback#acceptError(Throwable)} with the error.
      * </ul>
      * After the emitter has performed one of the above actions, it must not
      * make call any other {@link EmitCallback} methods until this method is
@@ -55,9 +55,55 @@ public interface StreamEmitter<T> {
      * </ul>
      *
      * @param cb the callback to push the emitted token to.
-     */
+     */
     void emitOne(EmitCallback<? super T> cb);
 
+    /**
+     * Request that the emitter emit up to {@code n} values via the callback.
+     * This is the bulk version of {@link #emitOne(EmitCallback)}, and all of
+     * its rules still apply with the following exceptions:
+     * <ul>
+     * <li>The emitter may call {@link EmitCallback#acceptValue(Object)} up to
+     * {@code n} times before it calls
+     * {@link EmitCallback#next()} or emits an {@code error} or {@code end}
+     * token.
+     * <li>The emitter may emit fewer than {@code n} values even if it has more
+     * data.
+     * <li>The emitter should stop emitting as soon as
+     * {@link EmitCallback#isCancelled()} returns {@code true}. It must not call
+     * any other {@link EmitCallback} methods after that.
+     * </ul>
+     * The default implementation simply calls {@link #emitOne(EmitCallback)},
+     * so emitters only need to override this method if they can emit in bulk
+     * more efficiently.
+     *
+     * @param n the maximum number of values to emit. Always positive.
+     * @param cb the callback to push the emitted tokens to.
+     * @see #emitOne(EmitCallback)
+     */
+    default void emitMany(long n, EmitCallback<? super T> cb) {
+        emitOne(cb);
+    }
+
+    /**
+     * Negotiates synchronous pull fusion. If this emitter and every emitter
+     * upstream of it are synchronous and can produce values on demand,
+     * returns a {@link Poller} that pulls values directly through the whole
+     * chain, bypassing the callback protocol. Otherwise, returns {@code null}.
+     * <p>
+     * This method must be called before any values are requested. Once it
+     * returns a poller, the caller must only use the poller and never call
+     * {@link #emitOne(EmitCallback)} or
+     * {@link #emitMany(long, EmitCallback)}. The default implementation
+     * returns {@code null}.
+     *
+     * @return a poller over this emitter, or {@code null} if it cannot be
+     *         fused.
+     */
+    default Poller<T> fuseSync() {
+        return null;
+    }
+
     /**
      * Safely casts the emitter from some subtype of {@code T} to {@code T}.
      *
@@ -71,6 +117,9 @@ public interface StreamEmitter<T> {
 
     /**
      * The callback object to use with the {@link StreamEmitter} interface.
+     * Values are pushed directly via {@link #acceptValue(Object)}.
+     * {@link StreamToken} objects are only used for the terminal
+     * {@code error} and {@code end} signals.
      *
      * @author vqvu
      *
@@ -78,9 +127,11 @@ public interface StreamEmitter<T> {
      */
     interface EmitCallback<T> extends Consumer<StreamToken<? extends T>> {
         /**
-         * Emit the token to the callback. Same as {@code accept(token, false)}.
-         * This method may optionally throw an {@link IllegalStateException} if
-         * the {@link StreamEmitter} did not follow the contract outlined in
+         * Emit the token to the callback. This dispatches to
+         * {@link #acceptValue(Object)} or {@link #acceptTerminal(StreamToken)}
+         * depending on the type of the token. This method may optionally throw
+         * an {@link IllegalStateException} if the {@link StreamEmitter} did not
+         * follow the contract outlined in
          * {@link StreamEmitter#emitOne(EmitCallback)}.
          *
          * @param token the token to emit.
@@ -90,62 +141,94 @@ public interface StreamEmitter<T> {
          * @see StreamEmitter#emitOne(EmitCallback)
          */
         @Override
-        void accept(StreamToken<? extends T> token) throws IllegalStateException;
+        default void accept(StreamToken<? extends T> token) throws IllegalStateException {
+            if (token.isValue()) {
+                acceptValue(token.unwrap());
+            } else {
+                acceptTerminal(token);
+            }
+        }
 
         /**
-         * Signals to the owner of the callback that the emitter is ready for
-         * another call to {@link StreamEmitter#emitOne(EmitCallback)}. This
+         * Emit a value to the callback. This method may optionally throw an
+         * {@link IllegalStateException} if the {@link StreamEmitter} did not
+         * follow the contract outlined in
+         * {@link StreamEmitter#emitOne(EmitCallback)}.
+         *
+         * @param value the value to emit.
+         * @throws IllegalStateException if this method is called in a way that
+         *             violates the contract outlined in
+         *             {@link StreamEmitter#emitOne(EmitCallback)}.
+         * @see StreamEmitter#emitOne(EmitCallback)
+         */
+        void acceptValue(T value) throws IllegalStateException;
+
+        /**
+         * Emit an {@code error} or {@code end} token to the callback. This
          * method may optionally throw an {@link IllegalStateException} if the
          * {@link StreamEmitter} did not follow the contract outlined in
          * {@link StreamEmitter#emitOne(EmitCallback)}.
          *
+         * @param token the terminal token to emit. Must not be a
+         *            {@code value} token.
          * @throws IllegalStateException if this method is called in a way that
          *             violates the contract outlined in
          *             {@link StreamEmitter#emitOne(EmitCallback)}.
          * @see StreamEmitter#emitOne(EmitCallback)
          */
-        void next() throws IllegalStateException;
+        void acceptTerminal(StreamToken<? extends T> token) throws IllegalStateException;
 
         /**
-         * Calls {@link #accept(StreamToken)} with the specified value.
+         * Signals to the owner of the callback that the emitter is ready for
+         * another call to {@link StreamEmitter#emitOne(EmitCallback)}. This
+         * method may optionally throw an {@link IllegalStateException} if the
+         * {@link StreamEmitter} did not follow the contract outlined in
+         * {@link StreamEmitter#emitOne(EmitCallback)}.
          *
-         * @param value the value to emit.
          * @throws IllegalStateException if this method is called in a way that
          *             violates the contract outlined in
          *             {@link StreamEmitter#emitOne(EmitCallback)}.
-         * @see {@link #accept(StreamToken)}
          * @see StreamEmitter#emitOne(EmitCallback)
          */
-        default void acceptValue(T value) throws IllegalStateException {
-            accept(StreamToken.value(value));
-        }
+        void next() throws IllegalStateException;
 
         /**
-         * Calls {@link #accept(StreamToken)} with the specified value.
+         * Calls {@link #acceptTerminal(StreamToken)} with an {@code error}
+         * token.
          *
          * @param error the error to emit.
          * @throws IllegalStateException if this method is called in a way that
          *             violates the contract outlined in
          *             {@link StreamEmitter#emitOne(EmitCallback)}.
-         * @see {@link #accept(StreamToken)}
+         * @see #acceptTerminal(StreamToken)
          * @see StreamEmitter#emitOne(EmitCallback)
          */
         default void acceptError(Throwable error) throws IllegalStateException {
-            accept(StreamToken.error(error));
+            acceptTerminal(StreamToken.error(error));
         }
 
         /**
-         * Calls {@link #accept(StreamToken)} with an {@code end} token.
+         * Calls {@link #acceptTerminal(StreamToken)} with an {@code end} token.
          *
          * @throws IllegalStateException if this method is called in a way that
          *             violates the contract outlined in
          *             {@link StreamEmitter#emitOne(EmitCallback)}.
-         * @see {@link #accept(StreamToken)}
+         * @see #acceptTerminal(StreamToken)
          * @see StreamEmitter#emitOne(EmitCallback)
          */
         default void acceptEnd() throws IllegalStateException {
-            accept(StreamToken.end());
+            acceptTerminal(StreamToken.end());
         }
 
+        /**
+         * Returns {@code true} if the owner of the callback is no longer
+         * interested in any more tokens. Emitters that emit many values in a
+         * single call to {@link StreamEmitter#emitMany(long, EmitCallback)}
+         * should check this between values and return early once it is
+         * {@code true}.
+         */
+        default boolean isCancelled() {
+            return false;
+        }
     }
 }
@@ -15,11 +15,37 @@ public interface SyncStreamEmitter<T> extends StreamEmitter<T> {
      * callback. Unlike the more general
      * {@link StreamEmitter#emitOne(EmitCallback)}, this method must
      * synchronously emit to the callback before it returns. All caller and
-     * callee responsibilities remain the same.
+     * callee responsibilities remain the same. In particular, a value must be
+     * followed by {@link EmitCallback#next()} or a terminal token before this
+     * method returns, unless the callback was cancelled. Callers report an
+     * emitter that returns without doing so as an error.
      *
      * @param cb the callback to push the emitted token to.
      * @see StreamEmitter#emitOne(EmitCallback)
      */
     @Override
     void emitOne(EmitCallback<? super T> cb);
-}
\ No newline at end of file
+
+    /**
+     * Request that the emitter emit up to {@code n} values via the callback.
+     * Like {@link #emitOne(EmitCallback)}, this method must synchronously emit
+     * to the callback before it returns.
+     *
+     * @param n the maximum number of values to emit. Always positive.
+     * @param cb the callback to push the emitted tokens to.
+     * @see StreamEmitter#emitMany(long, EmitCallback)
+     */
+    @Override
+    default void emitMany(long n, EmitCallback<? super T> cb) {
+        emitOne(cb);
+    }
+
+    /**
+     * Returns the exact number of values this emitter has left to emit, or
+     * {@code -1} if it does not know. The default implementation returns
+     * {@code -1}.
+     */
+    default long knownSize() {
+        return -1;
+    }
+}
@@ -1,6 +1,5 @@
 package local.vqvu.rxstream.emitter;
 
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 
 import local.vqvu.rxstream.util.StreamToken;
@@ -9,45 +8,173 @@ import local.vqvu.rxstream.util.StreamToken;
 public class TransformingStreamEmitter<T, R> implements StreamEmitter<R> {
     private final StreamEmitter<? extends T> source;
     private final TransformCallback<T,R> consumeCb;
+    private final SourceCallback sourceCb;
 
     public TransformingStreamEmitter(StreamEmitter<? extends T> source, TransformCallback<T,R> consumeCb) {
         this.source = source;
         this.consumeCb = consumeCb;
+        this.sourceCb = new SourceCallback();
     }
 
     @Override
     public void emitOne(EmitCallback<? super R> cb) {
-        source.emitOne(new EmitCallback<T>() {
-            AtomicReference<StreamToken<? extends T>> token = new AtomicReference<>(null);
+        sourceCb.cb = cb;
+        source.emitOne(sourceCb);
+    }
+
+    @Override
+    public void emitMany(long n, EmitCallback<? super R> cb) {
+        sourceCb.cb = cb;
+        source.emitMany(consumeCb.sourceDemand(n), sourceCb);
+    }
+
+    @Override
+    public Poller<R> fuseSync() {
+        Poller<? extends T> upstream = source.fuseSync();
+        return (upstream == null) ? null : consumeCb.fuseSync(upstream);
+    }
+
+    /**
+     * Feeds every token from the source to {@code consumeCb} as soon as it is
+     * emitted and takes care of calling {@link EmitCallback#next()} on the
+     * downstream callback. Once the transform emits an {@code error} or
+     * {@code end} token, everything else from the source is ignored.
+     * <p>
+     * Only one call to the source is ever in flight, so a single instance is
+     * reused for every call by swapping out the downstream callback.
+     */
+    private class SourceCallback implements EmitCallback<T> {
+        private volatile EmitCallback<? super R> cb;
+        private final EmitCallback<R> sink;
+
+        private volatile boolean done;
+
+        public SourceCallback() {
+            this.cb = null;
+            this.sink = new Sink();
+            this.done = false;
+        }
+
+        @Override
+        public void acceptValue(T value) {
+            if (!done) {
+                consumeCb.acceptValue(value, sink);
+            }
+        }
+
+        @Override
+        public void acceptTerminal(StreamToken<? extends T> token) {
+            if (!done) {
+                done = true;
+                consumeCb.acceptTerminal(token, sink);
+            }
+        }
+
+        @Override
+        public void next() throws IllegalStateException {
+            if (!done) {
+                cb.next();
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return done || cb.isCancelled();
+        }
+
+        /**
+         * The callback handed to {@code consumeCb}. Forwards to the current
+         * downstream callback.
+         */
+        private class Sink implements EmitCallback<R> {
+            @Override
+            public void acceptValue(R value) {
+                cb.acceptValue(value);
+            }
 
             @Override
-            public void accept(StreamToken<? extends T> token) {
-                if (token.isValue()) {
-                    this.token.set(token);
-                } else {
-                    consumeCb.accept(token, cb);
-                }
+            public void acceptTerminal(StreamToken<? extends R> token) {
+                done = true;
+                cb.acceptTerminal(token);
             }
 
             @Override
             public void next() throws IllegalStateException {
-                StreamToken<? extends T> token = this.token.getAndSet(null);
-                if (token == null) {
-                    cb.next();
-                } else {
-                    consumeCb.accept(token, cb);
-                }
-            }
-        });
+                throw new IllegalStateException(
+                        "TransformCallback must not call next().");
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return done || cb.isCancelled();
+            }
+        }
     }
 
     public interface TransformCallback<T, R> extends BiConsumer<StreamToken<? extends T>, EmitCallback<? super R>>{
         /**
          * Transform the {@code token} and emit the result to
-         * {@link EmitCallback}. All rules for emitting to a callback specified
-         * in {@link StreamEmitter#emitOne(EmitCallback)} still applies.
+         * {@link EmitCallback}. Dispatches to
+         * {@link #acceptValue(Object, EmitCallback)} or
+         * {@link #acceptTerminal(StreamToken, EmitCallback)} depending on the
+         * type of the token.
          */
         @Override
-        void accept(StreamToken<? extends T> token, EmitCallback<? super R> cb);
+        default void accept(StreamToken<? extends T> token, EmitCallback<? super R> cb) {
+            if (token.isValue()) {
+                acceptValue(token.unwrap(), cb);
+            } else {
+                acceptTerminal(token, cb);
+            }
+        }
+
+        /**
+         * Transform a value from the source and emit the result to
+         * {@link EmitCallback}. This method is called once for every value the
+         * source emits. It may emit any number of values, provided that it
+         * does not emit more than the downstream asked for (see
+         * {@link #sourceDemand(long)}). It may also emit an {@code error}
+         * token instead.
+         * <p>
+         * The transform must never call {@link EmitCallback#next()}. The
+         * {@link TransformingStreamEmitter} does that on its behalf.
+         */
+        void acceptValue(T value, EmitCallback<? super R> cb);
+
+        /**
+         * Handle an {@code error} or {@code end} token from the source. The
+         * transform may emit values, but must finish with an {@code error} or
+         * {@code end} token. It must never call {@link EmitCallback#next()}.
+         */
+        void acceptTerminal(StreamToken<? extends T> token, EmitCallback<? super R> cb);
+
+        /**
+         * Returns the number of values to request from the source when the
+         * downstream requests {@code n} values via
+         * {@link StreamEmitter#emitMany(long, EmitCallback)}. The transform
+         * must not emit more than {@code n} values in response to that many
+         * source values. The default implementation assumes the transform
+         * emits at most one value per source value.
+         *
+         * @param n the number of values requested by the downstream. Always
+         *            positive.
+         * @return the number of values to request from the source. Must be
+         *         positive.
+         */
+        default long sourceDemand(long n) {
+            return n;
+        }
+
+        /**
+         * Returns a {@link Poller} that applies this transform to the values
+         * pulled from {@code upstream}, or {@code null} if the transform
+         * cannot be used in pull mode. See {@link StreamEmitter#fuseSync()}.
+         * The default implementation returns {@code null}.
+         *
+         * @param upstream the poller over the source.
+         */
+        default Poller<R> fuseSync(Poller<? extends T> upstream) {
+            return null;
+        }
     }
 }
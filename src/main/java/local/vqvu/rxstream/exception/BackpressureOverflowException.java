@@ -0,0 +1,13 @@
+package local.vqvu.rxstream.exception;
+
+/**
+ * Signalled when a source produces values faster than its subscriber
+ * requests them, and the buffer between the two is full.
+ */
+public class BackpressureOverflowException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public BackpressureOverflowException(String message) {
+        super(message);
+    }
+}
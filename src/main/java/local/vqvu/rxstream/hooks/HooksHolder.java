@@ -0,0 +1,12 @@
+package local.vqvu.rxstream.hooks;
+
+/**
+ * Holds the installed {@link RxHooks}, since an interface cannot have mutable
+ * static fields.
+ */
+class HooksHolder {
+    static volatile RxHooks hooks = null;
+
+    private HooksHolder() {
+    }
+}
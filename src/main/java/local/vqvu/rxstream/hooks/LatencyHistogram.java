@@ -0,0 +1,153 @@
+package local.vqvu.rxstream.hooks;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non-negative {@code long} values, such as
+ * latencies in nanoseconds, in a fixed amount of memory.
+ * <p>
+ * Values below {@value #SUB_BUCKETS} get a bucket each. Above that, every
+ * power of two is split into {@value #SUB_BUCKETS} equal buckets, so a
+ * bucket's width is at most 1/{@value #SUB_BUCKETS} of the values it holds.
+ * Percentiles are reported as the upper bound of their bucket, so they are
+ * never under-estimated, and over-estimated by at most that much.
+ * <p>
+ * {@link #record(long)} only increments a single array slot.
+ * {@link #snapshot()} and {@link #snapshotAndReset()} read the slots one at a
+ * time without stopping writers, so a snapshot taken while values are being
+ * recorded may count some of them and not others.
+ *
+ * @author vqvu
+ */
+public class LatencyHistogram {
+    static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int NUM_BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts;
+
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(NUM_BUCKETS);
+    }
+
+    /**
+     * Record a value. Negative values are recorded as zero.
+     */
+    public void record(long value) {
+        counts.incrementAndGet(bucketOf(Math.max(value, 0)));
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Returns the largest value that falls into {@code bucket}.
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long lower = (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (lower + width - 1 < lower) ? Long.MAX_VALUE : lower + width - 1;
+    }
+
+    /**
+     * Returns a copy of the current counts.
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[NUM_BUCKETS];
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy);
+    }
+
+    /**
+     * Returns a copy of the current counts and resets them to zero. Every
+     * recorded value is counted by exactly one snapshot.
+     */
+    public Snapshot snapshotAndReset() {
+        long[] copy = new long[NUM_BUCKETS];
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            copy[i] = counts.getAndSet(i, 0);
+        }
+        return new Snapshot(copy);
+    }
+
+    /**
+     * An immutable copy of the counts of a {@link LatencyHistogram}.
+     */
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+
+        Snapshot(long[] counts) {
+            this.counts = counts;
+
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            this.count = total;
+        }
+
+        /**
+         * The number of values recorded.
+         */
+        public long count() {
+            return count;
+        }
+
+        /**
+         * Returns an upper bound on the value below which {@code percentile}
+         * percent of the values fall, or {@code 0} if nothing was recorded.
+         *
+         * @param percentile between {@code 0} and {@code 100}, e.g.
+         *            {@code 99.9}.
+         */
+        public long percentile(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("percentile must be between 0 and 100. Actual: "
+                                                   + percentile);
+            }
+            if (count == 0) {
+                return 0;
+            }
+
+            long rank = Math.max((long) Math.ceil(count * percentile / 100), 1);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return upperBoundOf(i);
+                }
+            }
+            return upperBoundOf(counts.length - 1);
+        }
+
+        /**
+         * An upper bound on the largest value recorded, or {@code 0} if
+         * nothing was recorded.
+         */
+        public long max() {
+            return percentile(100);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d, p50=%d, p99=%d, p999=%d, max=%d",
+                                 count, percentile(50), percentile(99), percentile(99.9), max());
+        }
+    }
+}
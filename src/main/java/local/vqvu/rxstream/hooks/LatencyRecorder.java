@@ -0,0 +1,170 @@
+package local.vqvu.rxstream.hooks;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import local.vqvu.rxstream.emitter.StreamEmitter;
+import local.vqvu.rxstream.emitter.SyncStreamEmitter;
+
+/**
+ * Latency distributions for the subscriptions to a publisher returned by
+ * {@link local.vqvu.rxstream.Publisher#measured(String)}. Every subscription
+ * to a publisher measured under the same name records into the same
+ * histograms:
+ * <ul>
+ * <li>{@link #requestToNext()}: how long the subscriber waits for each
+ * {@code onNext} while it has outstanding demand. The wait starts when demand
+ * goes from zero to positive, or at the previous {@code onNext}.</li>
+ * <li>{@link #sourceToSink()}: how long each value spent in the pipeline,
+ * from when the source emitted it to when {@code onNext} is called. Source
+ * emissions are matched to deliveries in order, so this is exact when every
+ * stage emits one value per value it receives. A stage that emits several
+ * values for one input has all of them measured from that input's emission.
+ * A stage that drops values makes later values look older than they
+ * are.</li>
+ * </ul>
+ * All values are in nanoseconds. Recording takes no locks and allocates
+ * nothing.
+ *
+ * @author vqvu
+ */
+public class LatencyRecorder {
+    private static final ConcurrentHashMap<String, LatencyRecorder> RECORDERS =
+            new ConcurrentHashMap<>();
+
+    private final String name;
+    private final LatencyHistogram requestToNext;
+    private final LatencyHistogram sourceToSink;
+
+    private LatencyRecorder(String name) {
+        this.name = name;
+        this.requestToNext = new LatencyHistogram();
+        this.sourceToSink = new LatencyHistogram();
+    }
+
+    /**
+     * Returns the recorder called {@code name}, creating it if necessary.
+     */
+    public static LatencyRecorder get(String name) {
+        return RECORDERS.computeIfAbsent(name, LatencyRecorder::new);
+    }
+
+    /**
+     * Returns every recorder created so far, by name.
+     */
+    public static Map<String, LatencyRecorder> all() {
+        return Collections.unmodifiableMap(RECORDERS);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public LatencyHistogram requestToNext() {
+        return requestToNext;
+    }
+
+    public LatencyHistogram sourceToSink() {
+        return sourceToSink;
+    }
+
+    /**
+     * Creates the probe for a new subscription.
+     */
+    public Probe newProbe() {
+        return new Probe();
+    }
+
+    @Override
+    public String toString() {
+        return name + ": requestToNext[" + requestToNext.snapshot()
+            + "], sourceToSink[" + sourceToSink.snapshot() + "]";
+    }
+
+    /**
+     * The timestamps of a single subscription. The source's emitter is
+     * wrapped by {@link #wrapSource(StreamEmitter)}, and the subscription
+     * calls {@link #demandArrived()} and {@link #delivered()}.
+     * <p>
+     * The emission time of each source value is kept in a ring until the
+     * value is delivered. The source and the subscriber may be on different
+     * threads, so the ring is read and written like a
+     * {@link local.vqvu.rxstream.util.SpscArrayQueue}. Values emitted while
+     * the ring is full are not timed.
+     */
+    public final class Probe {
+        private static final int MAX_IN_FLIGHT = 256;
+
+        private final AtomicLongArray emitTimes;
+        private final AtomicLong numEmitted;
+        private final AtomicLong numDelivered;
+        // Only used by the subscriber.
+        private long lastEmitTime;
+
+        private volatile long waitingSince;
+
+        Probe() {
+            this.emitTimes = new AtomicLongArray(MAX_IN_FLIGHT);
+            this.numEmitted = new AtomicLong(0);
+            this.numDelivered = new AtomicLong(0);
+            this.lastEmitTime = 0;
+            this.waitingSince = 0;
+        }
+
+        /**
+         * Returns an emitter that timestamps every value {@code emitter}
+         * emits.
+         */
+        public <T> StreamEmitter<T> wrapSource(StreamEmitter<T> emitter) {
+            if (emitter instanceof SyncStreamEmitter) {
+                return new TimestampingEmitter.Sync<T>((SyncStreamEmitter<T>) emitter, this);
+            }
+            return new TimestampingEmitter<T>(emitter, this);
+        }
+
+        void sourceEmitted() {
+            long now = System.nanoTime();
+            long index = numEmitted.get();
+            if (index - numDelivered.get() >= MAX_IN_FLIGHT) {
+                return;
+            }
+
+            emitTimes.lazySet((int) index & (MAX_IN_FLIGHT - 1), now);
+            numEmitted.lazySet(index + 1);
+        }
+
+        /**
+         * Called when the subscription's demand goes from zero to positive.
+         */
+        public void demandArrived() {
+            waitingSince = System.nanoTime();
+        }
+
+        /**
+         * Called right before a value is passed to {@code onNext}.
+         */
+        public void delivered() {
+            long now = System.nanoTime();
+            long since = waitingSince;
+            if (since != 0) {
+                requestToNext.record(now - since);
+            }
+            waitingSince = now;
+
+            // If the source has not emitted anything new, this value came from
+            // the same source value as the previous one.
+            long index = numDelivered.get();
+            if (index < numEmitted.get()) {
+                lastEmitTime = emitTimes.get((int) index & (MAX_IN_FLIGHT - 1));
+                numDelivered.lazySet(index + 1);
+            }
+
+            if (lastEmitTime != 0) {
+                sourceToSink.record(now - lastEmitTime);
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package local.vqvu.rxstream.hooks;
+
+import local.vqvu.rxstream.emitter.Poller;
+import local.vqvu.rxstream.emitter.StreamEmitter;
+import local.vqvu.rxstream.emitter.SyncStreamEmitter;
+import local.vqvu.rxstream.hooks.RxMetrics.StageMetrics;
+import local.vqvu.rxstream.util.StreamToken;
+
+/**
+ * Wraps an emitter and updates a stage's counters on every call.
+ */
+class MeteredEmitter<T> implements StreamEmitter<T> {
+    private final StreamEmitter<T> delegate;
+    private final StageMetrics metrics;
+
+    public MeteredEmitter(StreamEmitter<T> delegate, StageMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void emitOne(EmitCallback<? super T> cb) {
+        emitMany(1, cb);
+    }
+
+    @Override
+    public void emitMany(long n, EmitCallback<? super T> cb) {
+        metrics.emitCalls.increment();
+        boolean unbounded = n >= RxMetrics.UNBOUNDED_DEMAND;
+        if (unbounded) {
+            metrics.unboundedEmitCalls.increment();
+        } else {
+            metrics.pendingDemand.add(n);
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (n == 1) {
+                delegate.emitOne(new Callback(n, unbounded, cb));
+            } else {
+                delegate.emitMany(n, new Callback(n, unbounded, cb));
+            }
+        } finally {
+            metrics.emitNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Fused pipelines are metered one poll at a time.
+     */
+    @Override
+    public Poller<T> fuseSync() {
+        Poller<T> poller = delegate.fuseSync();
+        if (poller == null) {
+            return null;
+        }
+
+        return () -> {
+            metrics.emitCalls.increment();
+            long start = System.nanoTime();
+            try {
+                Object value = poller.poll();
+                if (value != Poller.END) {
+                    metrics.emitted.increment();
+                }
+                return value;
+            } finally {
+                metrics.emitNanos.add(System.nanoTime() - start);
+            }
+        };
+    }
+
+    /**
+     * Counts the values of a single call, and releases the demand that was
+     * not used once the call completes.
+     */
+    private class Callback implements EmitCallback<T> {
+        private final long n;
+        private final boolean unbounded;
+        private final EmitCallback<? super T> cb;
+        private long numValues;
+
+        public Callback(long n, boolean unbounded, EmitCallback<? super T> cb) {
+            this.n = n;
+            this.unbounded = unbounded;
+            this.cb = cb;
+            this.numValues = 0;
+        }
+
+        @Override
+        public void acceptValue(T value) {
+            numValues++;
+            metrics.emitted.increment();
+            if (!unbounded) {
+                metrics.pendingDemand.decrement();
+            }
+            cb.acceptValue(value);
+        }
+
+        @Override
+        public void acceptTerminal(StreamToken<? extends T> token) {
+            release();
+            cb.acceptTerminal(token);
+        }
+
+        @Override
+        public void next() {
+            release();
+            cb.next();
+        }
+
+        private void release() {
+            if (unbounded) {
+                metrics.unboundedEmitCalls.decrement();
+            } else {
+                metrics.pendingDemand.add(numValues - n);
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cb.isCancelled();
+        }
+    }
+
+    static class Sync<T> extends MeteredEmitter<T> implements SyncStreamEmitter<T> {
+        private final SyncStreamEmitter<T> delegate;
+
+        public Sync(SyncStreamEmitter<T> delegate, StageMetrics metrics) {
+            super(delegate, metrics);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public long knownSize() {
+            return delegate.knownSize();
+        }
+    }
+}
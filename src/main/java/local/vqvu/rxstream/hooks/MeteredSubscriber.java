@@ -0,0 +1,109 @@
+package local.vqvu.rxstream.hooks;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import local.vqvu.rxstream.hooks.RxMetrics.StageMetrics;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Wraps a subscriber and its subscription, and measures how long the
+ * subscriber waits for each value it has requested.
+ */
+class MeteredSubscriber<T> implements Subscriber<T> {
+    private final Subscriber<? super T> delegate;
+    private final StageMetrics metrics;
+
+    // The number of values requested but not delivered yet, or
+    // Long.MAX_VALUE once the demand is unbounded, and when the wait for the
+    // next value started.
+    private final AtomicLong outstanding;
+    private volatile long waitingSince;
+
+    public MeteredSubscriber(Subscriber<? super T> delegate, StageMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.outstanding = new AtomicLong(0);
+        this.waitingSince = 0;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        delegate.onSubscribe(new Subscription() {
+            @Override
+            public void request(long n) {
+                if (n > 0) {
+                    long prev = outstanding.getAndUpdate(o -> addDemand(o, n));
+                    if (prev != Long.MAX_VALUE) {
+                        if (addDemand(prev, n) == Long.MAX_VALUE) {
+                            metrics.pendingRequests.add(-Math.max(prev, 0));
+                            metrics.unboundedSubscriptions.increment();
+                        } else {
+                            metrics.pendingRequests.add(n);
+                        }
+                    }
+
+                    if (prev <= 0) {
+                        waitingSince = System.nanoTime();
+                    }
+                }
+                subscription.request(n);
+            }
+
+            @Override
+            public void cancel() {
+                release();
+                subscription.cancel();
+            }
+        });
+    }
+
+    @Override
+    public void onNext(T value) {
+        long now = System.nanoTime();
+        metrics.waitNanos.add(now - waitingSince);
+        metrics.delivered.increment();
+
+        // The wait for the next value starts now, if there is more demand.
+        waitingSince = now;
+        long prev = outstanding.getAndUpdate(o -> (o == Long.MAX_VALUE) ? o : o - 1);
+        if (prev != Long.MAX_VALUE) {
+            metrics.pendingRequests.decrement();
+        }
+        delegate.onNext(value);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        release();
+        delegate.onError(t);
+    }
+
+    @Override
+    public void onComplete() {
+        release();
+        delegate.onComplete();
+    }
+
+    private void release() {
+        long prev = outstanding.getAndSet(0);
+        if (prev == Long.MAX_VALUE) {
+            metrics.unboundedSubscriptions.decrement();
+        } else {
+            metrics.pendingRequests.add(-Math.max(prev, 0));
+        }
+    }
+
+    /**
+     * Adds {@code n} to the {@code outstanding} demand, or returns
+     * {@link Long#MAX_VALUE} if the result is unbounded.
+     */
+    private static long addDemand(long outstanding, long n) {
+        if (outstanding == Long.MAX_VALUE
+                || n >= RxMetrics.UNBOUNDED_DEMAND - Math.max(outstanding, 0)) {
+            return Long.MAX_VALUE;
+        }
+        return outstanding + n;
+    }
+}
@@ -0,0 +1,68 @@
+package local.vqvu.rxstream.hooks;
+
+import local.vqvu.rxstream.emitter.StreamEmitter;
+
+import org.reactivestreams.Subscriber;
+
+/**
+ * Callbacks that may wrap the emitters and subscribers of every pipeline, for
+ * example to collect metrics. At most one set of hooks is installed at a time.
+ * <p>
+ * When no hooks are installed, a publisher checks for them once per emitter it
+ * creates, and nothing is wrapped.
+ *
+ * @author vqvu
+ *
+ * @see RxMetrics
+ */
+public interface RxHooks {
+    /**
+     * Called for every emitter created by a publisher, including the emitters
+     * of each operator stage. The default implementation returns
+     * {@code emitter} unchanged.
+     *
+     * @param name the name of the stage. {@code "source"} for publishers that
+     *            were not created by an operator.
+     * @param emitter the emitter.
+     * @return the emitter to use instead. Should implement
+     *         {@link local.vqvu.rxstream.emitter.SyncStreamEmitter} if
+     *         {@code emitter} does.
+     */
+    default <T> StreamEmitter<T> onEmitter(String name, StreamEmitter<T> emitter) {
+        return emitter;
+    }
+
+    /**
+     * Called for every subscriber before it is subscribed. The default
+     * implementation returns {@code subscriber} unchanged.
+     *
+     * @param name the name of the last stage of the publisher.
+     * @param subscriber the subscriber.
+     * @return the subscriber to subscribe instead.
+     */
+    default <T> Subscriber<? super T> onSubscribe(String name, Subscriber<? super T> subscriber) {
+        return subscriber;
+    }
+
+    /**
+     * Install {@code hooks}, replacing any hooks that are already installed.
+     * Only affects emitters and subscriptions created afterwards.
+     */
+    static void install(RxHooks hooks) {
+        HooksHolder.hooks = hooks;
+    }
+
+    /**
+     * Remove the installed hooks, if any.
+     */
+    static void reset() {
+        HooksHolder.hooks = null;
+    }
+
+    /**
+     * Returns the installed hooks, or {@code null} if there are none.
+     */
+    static RxHooks installed() {
+        return HooksHolder.hooks;
+    }
+}
@@ -0,0 +1,170 @@
+package local.vqvu.rxstream.hooks;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import local.vqvu.rxstream.emitter.StreamEmitter;
+import local.vqvu.rxstream.emitter.SyncStreamEmitter;
+
+import org.reactivestreams.Subscriber;
+
+/**
+ * {@link RxHooks} that count, per stage name, the values emitted, the demand
+ * not yet fulfilled, the time spent inside the emitters, and the time
+ * subscribers wait for each value. All counters are {@link LongAdder}s, so
+ * stages running on many threads do not contend on them.
+ * <p>
+ * Demand from emitter calls and demand from subscriptions are counted
+ * separately. Demand of at least {@link #UNBOUNDED_DEMAND} is never fulfilled
+ * and would swamp everything else, so it is counted as one unbounded caller
+ * rather than added up.
+ * <p>
+ * Stages that share a name share their counters.
+ *
+ * @author vqvu
+ */
+public class RxMetrics implements RxHooks {
+    /**
+     * Demand at least this large is treated as unbounded. Requests for
+     * {@link Long#MAX_VALUE} are, and so are the slightly smaller ones an
+     * emit loop passes on after a few of those values have been emitted.
+     */
+    public static final long UNBOUNDED_DEMAND = Long.MAX_VALUE / 2;
+
+    private final ConcurrentHashMap<String, StageMetrics> stages;
+
+    public RxMetrics() {
+        this.stages = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the counters for the stage called {@code name}, creating them if
+     * necessary.
+     */
+    public StageMetrics get(String name) {
+        return stages.computeIfAbsent(name, k -> new StageMetrics());
+    }
+
+    /**
+     * Returns the counters of every stage seen so far, by name.
+     */
+    public Map<String, StageMetrics> all() {
+        return Collections.unmodifiableMap(stages);
+    }
+
+    @Override
+    public <T> StreamEmitter<T> onEmitter(String name, StreamEmitter<T> emitter) {
+        StageMetrics metrics = get(name);
+        if (emitter instanceof SyncStreamEmitter) {
+            return new MeteredEmitter.Sync<T>((SyncStreamEmitter<T>) emitter, metrics);
+        }
+        return new MeteredEmitter<T>(emitter, metrics);
+    }
+
+    @Override
+    public <T> Subscriber<? super T> onSubscribe(String name, Subscriber<? super T> subscriber) {
+        return new MeteredSubscriber<T>(subscriber, get(name));
+    }
+
+    /**
+     * The counters for one stage.
+     */
+    public static class StageMetrics {
+        final LongAdder emitted = new LongAdder();
+        final LongAdder emitCalls = new LongAdder();
+        final LongAdder emitNanos = new LongAdder();
+        final LongAdder pendingDemand = new LongAdder();
+        final LongAdder unboundedEmitCalls = new LongAdder();
+        final LongAdder pendingRequests = new LongAdder();
+        final LongAdder unboundedSubscriptions = new LongAdder();
+        final LongAdder delivered = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+
+        StageMetrics() {
+        }
+
+        /**
+         * The number of values emitted by this stage's emitters.
+         */
+        public long emitted() {
+            return emitted.sum();
+        }
+
+        /**
+         * The number of calls to this stage's emitters.
+         */
+        public long emitCalls() {
+            return emitCalls.sum();
+        }
+
+        /**
+         * The total time spent inside calls to this stage's emitters, in
+         * nanoseconds. Asynchronous emitters may return before they emit, so
+         * this only counts the time spent on the calling thread.
+         */
+        public long emitNanos() {
+            return emitNanos.sum();
+        }
+
+        /**
+         * The number of values requested from this stage's emitters that have
+         * not been emitted yet. Unbounded calls are not included. See
+         * {@link #unboundedEmitCalls()}.
+         */
+        public long pendingDemand() {
+            return pendingDemand.sum();
+        }
+
+        /**
+         * The number of calls to this stage's emitters in progress that asked
+         * for an unbounded number of values.
+         */
+        public long unboundedEmitCalls() {
+            return unboundedEmitCalls.sum();
+        }
+
+        /**
+         * The number of values requested by subscribers of this stage that
+         * have not been delivered yet. Unbounded subscriptions are not
+         * included. See {@link #unboundedSubscriptions()}.
+         */
+        public long pendingRequests() {
+            return pendingRequests.sum();
+        }
+
+        /**
+         * The number of active subscriptions to this stage that have
+         * requested an unbounded number of values.
+         */
+        public long unboundedSubscriptions() {
+            return unboundedSubscriptions.sum();
+        }
+
+        /**
+         * The number of values delivered to subscribers of this stage.
+         */
+        public long delivered() {
+            return delivered.sum();
+        }
+
+        /**
+         * The total time, in nanoseconds, that subscribers of this stage had
+         * outstanding demand before each value was delivered.
+         */
+        public long waitNanos() {
+            return waitNanos.sum();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("emitted=%d, emitCalls=%d, emitNanos=%d, pendingDemand=%d, "
+                                 + "unboundedEmitCalls=%d, pendingRequests=%d, "
+                                 + "unboundedSubscriptions=%d, delivered=%d, waitNanos=%d",
+                                 emitted(), emitCalls(), emitNanos(), pendingDemand(),
+                                 unboundedEmitCalls(), pendingRequests(),
+                                 unboundedSubscriptions(), delivered(), waitNanos());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package local.vqvu.rxstream.hooks;
+
+import local.vqvu.rxstream.emitter.Poller;
+import local.vqvu.rxstream.emitter.StreamEmitter;
+import local.vqvu.rxstream.emitter.SyncStreamEmitter;
+import local.vqvu.rxstream.hooks.LatencyRecorder.Probe;
+import local.vqvu.rxstream.util.StreamToken;
+
+/**
+ * Wraps a source emitter and tells a {@link Probe} when each value is emitted.
+ */
+class TimestampingEmitter<T> implements StreamEmitter<T> {
+    private final StreamEmitter<T> delegate;
+    private final Probe probe;
+    private final Callback callback;
+
+    public TimestampingEmitter(StreamEmitter<T> delegate, Probe probe) {
+        this.delegate = delegate;
+        this.probe = probe;
+        this.callback = new Callback();
+    }
+
+    @Override
+    public void emitOne(EmitCallback<? super T> cb) {
+        callback.cb = cb;
+        delegate.emitOne(callback);
+    }
+
+    @Override
+    public void emitMany(long n, EmitCallback<? super T> cb) {
+        callback.cb = cb;
+        delegate.emitMany(n, callback);
+    }
+
+    @Override
+    public Poller<T> fuseSync() {
+        Poller<T> poller = delegate.fuseSync();
+        if (poller == null) {
+            return null;
+        }
+
+        return () -> {
+            Object value = poller.poll();
+            if (value != Poller.END) {
+                probe.sourceEmitted();
+            }
+            return value;
+        };
+    }
+
+    /**
+     * Reused for every call, since an emitter is only called again once the
+     * previous call has completed.
+     */
+    private class Callback implements EmitCallback<T> {
+        private volatile EmitCallback<? super T> cb;
+
+        @Override
+        public void acceptValue(T value) {
+            probe.sourceEmitted();
+            cb.acceptValue(value);
+        }
+
+        @Override
+        public void acceptTerminal(StreamToken<? extends T> token) {
+            cb.acceptTerminal(token);
+        }
+
+        @Override
+        public void next() {
+            cb.next();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cb.isCancelled();
+        }
+    }
+
+    static class Sync<T> extends TimestampingEmitter<T> implements SyncStreamEmitter<T> {
+        private final SyncStreamEmitter<T> delegate;
+
+        public Sync(SyncStreamEmitter<T> delegate, Probe probe) {
+            super(delegate, probe);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public long knownSize() {
+            return delegate.knownSize();
+        }
+    }
+}
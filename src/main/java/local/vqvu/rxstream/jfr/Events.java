@@ -0,0 +1,120 @@
+package local.vqvu.rxstream.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The event types. Only loaded by {@link RxEvents} once it knows that
+ * Flight Recorder is available.
+ */
+final class Events {
+    private static final String CATEGORY = "Rx Stream";
+
+    private Events() {
+    }
+
+    static Object beginSubscription(String subscriber) {
+        SubscriptionEvent event = new SubscriptionEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.subscriber = subscriber;
+        event.begin();
+        return event;
+    }
+
+    static void endSubscription(Object handle, String outcome) {
+        SubscriptionEvent event = (SubscriptionEvent) handle;
+        event.outcome = outcome;
+        end(event);
+    }
+
+    static void request(long n, long pending) {
+        RequestEvent event = new RequestEvent();
+        if (event.isEnabled()) {
+            event.requested = n;
+            event.pending = pending;
+            event.commit();
+        }
+    }
+
+    static Object beginStall(String reason) {
+        StallEvent event = new StallEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.reason = reason;
+        event.begin();
+        return event;
+    }
+
+    static Object beginBlockingWait(String side) {
+        BlockingWaitEvent event = new BlockingWaitEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.side = side;
+        event.begin();
+        return event;
+    }
+
+    static void end(Object handle) {
+        Event event = (Event) handle;
+        event.end();
+        if (event.shouldCommit()) {
+            event.commit();
+        }
+    }
+
+    @Name("local.vqvu.rxstream.Subscription")
+    @Label("Subscription")
+    @Category(CATEGORY)
+    @Description("A subscription, from subscribe() until it completes, fails or is cancelled.")
+    @StackTrace(false)
+    static class SubscriptionEvent extends Event {
+        @Label("Subscriber")
+        String subscriber;
+
+        @Label("Outcome")
+        String outcome;
+    }
+
+    @Name("local.vqvu.rxstream.Request")
+    @Label("Request")
+    @Category(CATEGORY)
+    @Description("A call to Subscription.request(n).")
+    @StackTrace(false)
+    static class RequestEvent extends Event {
+        @Label("Requested")
+        long requested;
+
+        @Label("Pending")
+        long pending;
+    }
+
+    @Name("local.vqvu.rxstream.TrampolineStall")
+    @Label("Trampoline Stall")
+    @Category(CATEGORY)
+    @Description("A trampoline that waited for demand, or for an emitter to call back.")
+    @StackTrace(false)
+    @Threshold("10 ms")
+    static class StallEvent extends Event {
+        @Label("Reason")
+        String reason;
+    }
+
+    @Name("local.vqvu.rxstream.BlockingWait")
+    @Label("Blocking Wait")
+    @Category(CATEGORY)
+    @Description("A thread parked by SynchronizeOperator.")
+    @Threshold("10 ms")
+    static class BlockingWaitEvent extends Event {
+        @Label("Side")
+        String side;
+    }
+}
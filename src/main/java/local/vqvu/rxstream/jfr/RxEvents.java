@@ -0,0 +1,110 @@
+package local.vqvu.rxstream.jfr;
+
+/**
+ * Emits Java Flight Recorder events for subscriptions, requests, trampoline
+ * stalls and blocking waits. Every method checks whether its event is enabled
+ * before doing any work, so they are close to free when nothing is recording.
+ * <p>
+ * Duration events are returned as opaque handles, which are {@code null} when
+ * the event is disabled, so that callers never refer to the {@code jdk.jfr}
+ * classes. On a JVM without Flight Recorder, every method does nothing.
+ *
+ * @author vqvu
+ */
+public final class RxEvents {
+    private static final boolean AVAILABLE = isAvailable();
+
+    private RxEvents() {
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Begins a subscription event.
+     *
+     * @param subscriber a description of the subscriber.
+     * @return a handle to pass to {@link #endSubscription(Object, String)}, or
+     *         {@code null} if the event is disabled.
+     */
+    public static Object beginSubscription(String subscriber) {
+        return AVAILABLE ? Events.beginSubscription(subscriber) : null;
+    }
+
+    /**
+     * Ends a subscription event begun by {@link #beginSubscription(String)}.
+     *
+     * @param handle the handle, which may be {@code null}.
+     * @param outcome {@code "complete"}, {@code "error"} or {@code "cancel"}.
+     */
+    public static void endSubscription(Object handle, String outcome) {
+        if (handle != null) {
+            Events.endSubscription(handle, outcome);
+        }
+    }
+
+    /**
+     * Records a call to {@code request(n)}.
+     *
+     * @param n the number of values requested.
+     * @param pending the number of values pending after the request.
+     */
+    public static void request(long n, long pending) {
+        if (AVAILABLE) {
+            Events.request(n, pending);
+        }
+    }
+
+    /**
+     * Begins a trampoline stall event.
+     *
+     * @param reason {@code "demand"} if the trampoline is waiting for demand,
+     *            or {@code "emit"} if it is waiting for an emitter to finish.
+     * @return a handle to pass to {@link #endStall(Object)}, or {@code null}
+     *         if the event is disabled.
+     */
+    public static Object beginStall(String reason) {
+        return AVAILABLE ? Events.beginStall(reason) : null;
+    }
+
+    /**
+     * Ends a stall event begun by {@link #beginStall(String)}. The event is
+     * only recorded if it lasted longer than its threshold.
+     *
+     * @param handle the handle, which may be {@code null}.
+     */
+    public static void endStall(Object handle) {
+        if (handle != null) {
+            Events.end(handle);
+        }
+    }
+
+    /**
+     * Begins a blocking wait event for a thread parked by
+     * {@link local.vqvu.rxstream.operator.SynchronizeOperator}.
+     *
+     * @param side {@code "consumer"} or {@code "producer"}.
+     * @return a handle to pass to {@link #endBlockingWait(Object)}, or
+     *         {@code null} if the event is disabled.
+     */
+    public static Object beginBlockingWait(String side) {
+        return AVAILABLE ? Events.beginBlockingWait(side) : null;
+    }
+
+    /**
+     * Ends a blocking wait event begun by {@link #beginBlockingWait(String)}.
+     *
+     * @param handle the handle, which may be {@code null}.
+     */
+    public static void endBlockingWait(Object handle) {
+        if (handle != null) {
+            Events.end(handle);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package local.vqvu.rxstream.jmx;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import local.vqvu.rxstream.util.BasicSubcription;
+import local.vqvu.rxstream.util.Trampoline;
+
+/**
+ * An optional registry of live subscriptions, exposed over JMX as
+ * {@value #OBJECT_NAME}. Meant for finding streams that have stalled or were
+ * never cancelled.
+ * <p>
+ * While the registry is enabled, every subscription made through
+ * {@link local.vqvu.rxstream.Publisher#subscribe(org.reactivestreams.Subscriber)}
+ * is registered. The registry only holds weak references to them, so it never
+ * keeps a subscription alive. Subscriptions that have terminated, been
+ * cancelled or been collected are dropped as they are found. When the
+ * registry is disabled, subscribing only reads one volatile field.
+ *
+ * @author vqvu
+ */
+public class PipelineRegistry implements PipelineRegistryMXBean {
+    public static final String OBJECT_NAME = "local.vqvu.rxstream:type=PipelineRegistry";
+
+    private static volatile PipelineRegistry enabled = null;
+
+    private final ConcurrentHashMap<Long, Entry> entries;
+    private final ReferenceQueue<BasicSubcription<?>> collected;
+    private final AtomicLong nextId;
+
+    private PipelineRegistry() {
+        this.entries = new ConcurrentHashMap<>();
+        this.collected = new ReferenceQueue<>();
+        this.nextId = new AtomicLong(0);
+    }
+
+    /**
+     * Enables the registry and registers it with the platform MBean server.
+     * Does nothing if it is already enabled.
+     *
+     * @return the registry.
+     */
+    public static synchronized PipelineRegistry enable() {
+        if (enabled == null) {
+            PipelineRegistry registry = new PipelineRegistry();
+            try {
+                server().registerMBean(registry, new ObjectName(OBJECT_NAME));
+            } catch (JMException e) {
+                throw new IllegalStateException("Could not register " + OBJECT_NAME, e);
+            }
+            enabled = registry;
+        }
+        return enabled;
+    }
+
+    /**
+     * Unregisters the registry from the platform MBean server and stops
+     * registering new subscriptions.
+     */
+    public static synchronized void disable() {
+        if (enabled != null) {
+            enabled = null;
+            try {
+                server().unregisterMBean(new ObjectName(OBJECT_NAME));
+            } catch (JMException e) {
+                throw new IllegalStateException("Could not unregister " + OBJECT_NAME, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the registry if it is enabled, or {@code null}.
+     */
+    public static PipelineRegistry enabled() {
+        return enabled;
+    }
+
+    private static MBeanServer server() {
+        return ManagementFactory.getPlatformMBeanServer();
+    }
+
+    /**
+     * Registers a subscription.
+     *
+     * @param sub the subscription.
+     * @param pipeline a description of the stages it subscribes to.
+     * @param subscriber the class name of the subscriber.
+     */
+    public void register(BasicSubcription<?> sub, String pipeline, String subscriber) {
+        expunge();
+
+        long id = nextId.incrementAndGet();
+        entries.put(id, new Entry(id, sub, pipeline, subscriber, collected));
+    }
+
+    private void expunge() {
+        Object ref;
+        while ((ref = collected.poll()) != null) {
+            entries.remove(((Entry) ref).id);
+        }
+    }
+
+    /**
+     * Returns the live subscriptions, dropping the others.
+     */
+    private List<Entry> live() {
+        expunge();
+
+        List<Entry> live = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            BasicSubcription<?> sub = entry.get();
+            if (sub == null || sub.state() == Trampoline.State.DONE) {
+                entries.remove(entry.id);
+            } else {
+                live.add(entry);
+            }
+        }
+        return live;
+    }
+
+    @Override
+    public int getLiveSubscriptions() {
+        return live().size();
+    }
+
+    @Override
+    public long getTotalSubscriptions() {
+        return nextId.get();
+    }
+
+    @Override
+    public int getStalledSubscriptions() {
+        int stalled = 0;
+        for (Entry entry : live()) {
+            BasicSubcription<?> sub = entry.get();
+            if (sub != null && sub.state() == Trampoline.State.WAITING_ON_EMIT) {
+                stalled++;
+            }
+        }
+        return stalled;
+    }
+
+    @Override
+    public long getTotalPendingDemand() {
+        long total = 0;
+        for (Entry entry : live()) {
+            BasicSubcription<?> sub = entry.get();
+            if (sub != null) {
+                long pending = sub.pendingDemand();
+                if (Long.MAX_VALUE - total < pending) {
+                    return Long.MAX_VALUE;
+                }
+                total += pending;
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public List<SubscriptionInfo> getSubscriptions() {
+        long now = System.currentTimeMillis();
+        List<SubscriptionInfo> infos = new ArrayList<>();
+        for (Entry entry : live()) {
+            BasicSubcription<?> sub = entry.get();
+            if (sub != null) {
+                infos.add(new SubscriptionInfo(entry.id, entry.pipeline, entry.subscriber,
+                                               sub.state().name(), sub.pendingDemand(),
+                                               sub.emitted(), now - entry.createdMillis));
+            }
+        }
+        return infos;
+    }
+
+    private static class Entry extends WeakReference<BasicSubcription<?>> {
+        final long id;
+        final String pipeline;
+        final String subscriber;
+        final long createdMillis;
+
+        Entry(long id, BasicSubcription<?> sub, String pipeline, String subscriber,
+              ReferenceQueue<BasicSubcription<?>> queue) {
+            super(sub, queue);
+            this.id = id;
+            this.pipeline = pipeline;
+            this.subscriber = subscriber;
+            this.createdMillis = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package local.vqvu.rxstream.jmx;
+
+import java.util.List;
+
+/**
+ * The management interface of {@link PipelineRegistry}.
+ *
+ * @author vqvu
+ */
+public interface PipelineRegistryMXBean {
+    /**
+     * The number of subscriptions that have neither terminated nor been
+     * cancelled.
+     */
+    int getLiveSubscriptions();
+
+    /**
+     * The number of subscriptions registered since the registry was enabled.
+     */
+    long getTotalSubscriptions();
+
+    /**
+     * The number of live subscriptions waiting for an emitter to call back.
+     */
+    int getStalledSubscriptions();
+
+    /**
+     * The sum of the demand not yet filled over every live subscription, or
+     * {@link Long#MAX_VALUE} if it overflows.
+     */
+    long getTotalPendingDemand();
+
+    /**
+     * The state of every live subscription.
+     */
+    List<SubscriptionInfo> getSubscriptions();
+}
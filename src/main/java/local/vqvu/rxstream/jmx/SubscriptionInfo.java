@@ -0,0 +1,74 @@
+package local.vqvu.rxstream.jmx;
+
+/**
+ * A snapshot of a single live subscription, as reported by
+ * {@link PipelineRegistryMXBean#getSubscriptions()}.
+ *
+ * @author vqvu
+ */
+public class SubscriptionInfo {
+    private final long id;
+    private final String pipeline;
+    private final String subscriber;
+    private final String state;
+    private final long pendingDemand;
+    private final long emitted;
+    private final long ageMillis;
+
+    SubscriptionInfo(long id, String pipeline, String subscriber, String state,
+                     long pendingDemand, long emitted, long ageMillis) {
+        this.id = id;
+        this.pipeline = pipeline;
+        this.subscriber = subscriber;
+        this.state = state;
+        this.pendingDemand = pendingDemand;
+        this.emitted = emitted;
+        this.ageMillis = ageMillis;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * The stages of the pipeline, from the source to the last operator.
+     */
+    public String getPipeline() {
+        return pipeline;
+    }
+
+    /**
+     * The class name of the subscriber.
+     */
+    public String getSubscriber() {
+        return subscriber;
+    }
+
+    /**
+     * The name of a {@link local.vqvu.rxstream.util.Trampoline.State}.
+     */
+    public String getState() {
+        return state;
+    }
+
+    public long getPendingDemand() {
+        return pendingDemand;
+    }
+
+    public long getEmitted() {
+        return emitted;
+    }
+
+    /**
+     * How long ago the subscription was made.
+     */
+    public long getAgeMillis() {
+        return ageMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("#%d %s -> %s: %s, pending=%d, emitted=%d, age=%dms",
+                             id, pipeline, subscriber, state, pendingDemand, emitted, ageMillis);
+    }
+}
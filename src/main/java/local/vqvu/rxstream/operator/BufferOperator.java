@@ -2,19 +2,56 @@ package local.vqvu.rxstream.operator;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.ToLongFunction;
 
 import local.vqvu.rxstream.Publisher.Operator;
+import local.vqvu.rxstream.emitter.Poller;
 import local.vqvu.rxstream.emitter.StreamEmitter;
 import local.vqvu.rxstream.emitter.StreamEmitter.EmitCallback;
 import local.vqvu.rxstream.emitter.TransformingStreamEmitter;
 import local.vqvu.rxstream.emitter.TransformingStreamEmitter.TransformCallback;
 import local.vqvu.rxstream.util.StreamToken;
 
+/**
+ * Collects values into lists of up to {@code bufferSize} values, or, with a
+ * weigher, into lists whose total weight is at most {@code maxWeight}. A
+ * weighted list is emitted as soon as its weight reaches {@code maxWeight}, or
+ * just before the next value would take it over. A single value that weighs
+ * more than {@code maxWeight} gets a list to itself.
+ */
 public class BufferOperator<T> implements Operator<T,List<T>> {
+    /**
+     * Lists are allocated with room for the expected number of values, but
+     * never more than this up front.
+     */
+    static final int MAX_INITIAL_CAPACITY = 1024;
+
     private final int bufferSize;
+    private final long maxWeight;
+    private final ToLongFunction<? super T> weigher;
 
     public BufferOperator(int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be positive. Actual: " + bufferSize);
+        }
+
         this.bufferSize = bufferSize;
+        this.maxWeight = Long.MAX_VALUE;
+        this.weigher = null;
+    }
+
+    /**
+     * @param maxWeight the maximum total weight of a list.
+     * @param weigher returns the weight of a value. Must not be negative.
+     */
+    public BufferOperator(long maxWeight, ToLongFunction<? super T> weigher) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("maxWeight must be positive. Actual: " + maxWeight);
+        }
+
+        this.bufferSize = Integer.MAX_VALUE;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
     }
 
     @Override
@@ -22,39 +59,174 @@ public class BufferOperator<T> implements Operator<T,List<T>> {
         return new TransformingStreamEmitter<T,List<T>>(source, new Callback());
     }
 
+    private long weigh(T value) {
+        if (weigher == null) {
+            return 0;
+        }
+
+        long weight = weigher.applyAsLong(value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight must not be negative. Actual: " + weight);
+        }
+        return weight;
+    }
+
     private class Callback implements TransformCallback<T, List<T>> {
         private List<T> buffer;
+        private long weight;
+        private int lastSize;
 
         private final Object lock;
 
         public Callback() {
             this.buffer = null;
+            this.weight = 0;
+            this.lastSize = 0;
             this.lock = this;
         }
 
+        /**
+         * Returns a list sized for the expected number of values: a full
+         * buffer when counting, or the size of the last list when weighing.
+         */
+        private List<T> newBuffer() {
+            int expected = (weigher == null) ? bufferSize : Math.max(lastSize, 1);
+            return new ArrayList<>(Math.min(expected, MAX_INITIAL_CAPACITY));
+        }
+
         @Override
-        public void accept(StreamToken<? extends T> token,
-                EmitCallback<? super List<T>> cb) {
+        public long sourceDemand(long n) {
+            if (weigher != null) {
+                // Each value completes at most one list.
+                return n;
+            }
+
+            synchronized (lock) {
+                int buffered = (buffer == null) ? 0 : buffer.size();
+                if (n > Long.MAX_VALUE / bufferSize) {
+                    return Long.MAX_VALUE;
+                }
+                return n * bufferSize - buffered;
+            }
+        }
+
+        @Override
+        public void acceptValue(T value, EmitCallback<? super List<T>> cb) {
+            long valueWeight;
+            try {
+                valueWeight = weigh(value);
+            } catch (Exception e) {
+                synchronized (lock) {
+                    buffer = null;
+                }
+                cb.acceptError(e);
+                return;
+            }
+
             synchronized (lock) {
-                if (token.isValue()) {
-                    if (buffer == null) {
-                        buffer = new ArrayList<>();
+                boolean emitted = false;
+                if (buffer != null && valueWeight > maxWeight - weight) {
+                    emit(cb);
+                    emitted = true;
+                }
+
+                if (buffer == null) {
+                    buffer = newBuffer();
+                    weight = 0;
+                }
+
+                buffer.add(value);
+                weight += valueWeight;
+
+                // An oversized value that follows a flush waits for the next
+                // value or the end, so each value emits at most one list.
+                if (!emitted && (buffer.size() == bufferSize || weight >= maxWeight)) {
+                    emit(cb);
+                }
+            }
+        }
+
+        private void emit(EmitCallback<? super List<T>> cb) {
+            lastSize = buffer.size();
+            cb.acceptValue(buffer);
+            buffer = null;
+        }
+
+        /**
+         * Pull mode has a single caller, so the lock is not needed.
+         */
+        @Override
+        public Poller<List<T>> fuseSync(Poller<? extends T> upstream) {
+            return new Poller<List<T>>() {
+                private boolean upstreamDone = false;
+
+                // A value that did not fit into the last list.
+                private boolean hasPending = false;
+                private T pending = null;
+                private long pendingWeight = 0;
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object poll() throws Exception {
+                    if (upstreamDone && !hasPending) {
+                        return Poller.END;
+                    }
+
+                    List<T> result = newBuffer();
+                    long resultWeight = 0;
+                    if (hasPending) {
+                        result.add(pending);
+                        resultWeight = pendingWeight;
+                        hasPending = false;
+                        pending = null;
+                        if (resultWeight >= maxWeight) {
+                            return done(result);
+                        }
                     }
 
-                    buffer.add(token.unwrap());
+                    while (!upstreamDone) {
+                        Object polled = upstream.poll();
+                        if (polled == Poller.END) {
+                            upstreamDone = true;
+                            break;
+                        }
+
+                        T val = (T) polled;
 
-                    if (buffer.size() == bufferSize) {
-                        cb.acceptValue(buffer);
-                        buffer = null;
+                        long valWeight = weigh(val);
+                        if (!result.isEmpty() && valWeight > maxWeight - resultWeight) {
+                            hasPending = true;
+                            pending = val;
+                            pendingWeight = valWeight;
+                            return done(result);
+                        }
+
+                        result.add(val);
+                        resultWeight += valWeight;
+                        if (result.size() == bufferSize || resultWeight >= maxWeight) {
+                            return done(result);
+                        }
                     }
-                    cb.next();
-                } else if (token.isError()) {
+                    return result.isEmpty() ? Poller.END : done(result);
+                }
+
+                private List<T> done(List<T> result) {
+                    lastSize = result.size();
+                    return result;
+                }
+            };
+        }
+
+        @Override
+        public void acceptTerminal(StreamToken<? extends T> token,
+                EmitCallback<? super List<T>> cb) {
+            synchronized (lock) {
+                if (token.isError()) {
                     buffer = null;
-                    cb.accept(token.safeCast());
+                    cb.acceptTerminal(token.safeCast());
                 } else {
                     if (buffer != null) {
-                        cb.acceptValue(buffer);
-                        buffer = null;
+                        emit(cb);
                     }
                     cb.acceptEnd();
                 }
@@ -0,0 +1,29 @@
+package local.vqvu.rxstream.operator;
+
+/**
+ * Emits the values of each child publisher in order, like
+ * {@link ConcatOperator}, but starts up to {@code prefetchInners} children
+ * ahead of time. The children that are not being emitted yet run into bounded
+ * queues, so the time it takes a slow child to start overlaps with the
+ * emission of the children before it.
+ *
+ * @author vqvu
+ *
+ * @param <T>
+ *
+ * @see MergeOperator
+ */
+public class ConcatEagerOperator<T> extends MergeOperator<T> {
+    public ConcatEagerOperator(int prefetchInners) {
+        this(prefetchInners, MergeOperator.DEFAULT_CHILD_CAPACITY);
+    }
+
+    /**
+     * @param prefetchInners the maximum number of child publishers to run at
+     *            once, including the one being emitted.
+     * @param childCapacity the maximum number of values to buffer per child.
+     */
+    public ConcatEagerOperator(int prefetchInners, int childCapacity) {
+        super(prefetchInners, childCapacity, true);
+    }
+}
@@ -1,11 +1,28 @@
 package local.vqvu.rxstream.operator;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import local.vqvu.rxstream.Publisher;
 import local.vqvu.rxstream.Publisher.Operator;
 import local.vqvu.rxstream.emitter.StreamEmitter;
 import local.vqvu.rxstream.exception.StreamEmitterException;
 import local.vqvu.rxstream.util.StreamToken;
 
+/**
+ * Emits the values of each child publisher in turn.
+ * <p>
+ * Calls to the parent and child emitters are made from a single loop,
+ * serialized with a work-in-progress counter in the same way as
+ * {@link local.vqvu.rxstream.util.Trampoline}. A callback that wants the loop
+ * to make another call, because a child ended or the parent emitted a new
+ * child, only bumps the counter, so any number of consecutive empty or
+ * synchronous children are handled without growing the stack. Children that
+ * end without emitting anything do not complete the downstream request.
+ *
+ * @author vqvu
+ *
+ * @param <T>
+ */
 public class ConcatOperator<T> implements Operator<Publisher<? extends T>, T> {
     @Override
     public StreamEmitter<T> apply(StreamEmitter<? extends Publisher<? extends T>> source) {
@@ -14,105 +31,172 @@ public class ConcatOperator<T> implements Operator<Publisher<? extends T>, T> {
 
     private static class Emitter<T> implements StreamEmitter<T> {
         private final StreamEmitter<? extends Publisher<? extends T>> parentSource;
-        private StreamEmitter<? extends T> childSource;
-        private boolean endReached;
+        private final ParentCallback parentCallback;
+        private final ChildCallback childCallback;
+
+        private volatile StreamEmitter<? extends T> childSource;
+        private volatile boolean endReached;
+        private volatile boolean done;
 
-        private final Object lock;
+        // The current downstream request. Cleared before the request is
+        // completed.
+        private volatile EmitCallback<? super T> cb;
+        private volatile long numValues;
+        private volatile long numEmitted;
+
+        private final AtomicInteger wip;
+        private volatile boolean waitingOnEmit;
 
         public Emitter(StreamEmitter<? extends Publisher<? extends T>> source) {
             this.parentSource = source;
+            this.parentCallback = new ParentCallback();
+            this.childCallback = new ChildCallback();
+
             this.childSource = null;
             this.endReached = false;
-            this.lock = this;
+            this.done = false;
+
+            this.cb = null;
+            this.numValues = 0;
+            this.numEmitted = 0;
+
+            this.wip = new AtomicInteger(0);
+            this.waitingOnEmit = false;
         }
 
         @Override
         public void emitOne(EmitCallback<? super T> cb) {
-            synchronized (lock) {
-                if (endReached && childSource == null) {
-                    Throwable err = new StreamEmitterException("Emitter already reached the end.");
-                    cb.accept(StreamToken.error(err));
-                    return;
-                }
+            emitMany(1, cb);
+        }
 
-                if (childSource == null) {
-                    pullChildSourceAndEmit(cb);
-                } else {
-                    emitNext(cb);
-                }
+        @Override
+        public void emitMany(long n, EmitCallback<? super T> cb) {
+            if (done) {
+                Throwable err = new StreamEmitterException("Emitter already reached the end.");
+                cb.accept(StreamToken.error(err));
+                return;
             }
+
+            this.numValues = n;
+            this.numEmitted = 0;
+            this.cb = cb;
+            drain();
         }
 
-        /**
-         * Attempt to pull the next child source, and if successful, attempt to
-         * emit the next token. This method should only be called when the lock
-         * is held and {@code childSource} is {@code null}.
-         *
-         * @param cb a callback
-         */
-        private void pullChildSourceAndEmit(EmitCallback<? super T> cb) {
-            parentSource.emitOne(new EmitCallback<Publisher<? extends T>>() {
-                @Override
-                public void accept(StreamToken<? extends Publisher<? extends T>> token) {
-                    synchronized(lock) {
-                        if (!token.isValue()) {
-                            endReached = true;
-                            if (token.isError() || childSource == null) {
-                                cb.accept(token.safeCast());
-                            } else {
-                                emitNext(cb);
-                            }
-                        } else {
-                            Publisher<? extends T> pub = token.unwrap();
-                            if (pub != null) {
-                                childSource = pub.createEmitter();
-                            }
-                        }
-                    }
-                }
+        private void drain() {
+            // Someone else is already running the loop. Make it do another pass.
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
 
-                @Override
-                public void next() {
-                    if (childSource == null) {
-                        cb.next();
+            int missed = 1;
+            do {
+                EmitCallback<? super T> cb;
+                while (!waitingOnEmit && (cb = this.cb) != null) {
+                    StreamEmitter<? extends T> child = childSource;
+                    if (child != null) {
+                        waitingOnEmit = true;
+                        child.emitMany(numValues - numEmitted, childCallback);
+                    } else if (!endReached) {
+                        waitingOnEmit = true;
+                        parentSource.emitOne(parentCallback);
                     } else {
-                        emitNext(cb);
+                        complete(cb, StreamToken.end());
                     }
                 }
-            });
+
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
         }
 
         /**
-         * Attempt to emit the next from {@code childSource} to the callback.
-         * This method should only be called when {@code childSource} is not
-         * {@code null}.
-         *
-         * @param cb a callback
+         * Let the loop make another call for the current request.
          */
-        private void emitNext(EmitCallback<? super T> cb) {
-            synchronized (lock) {
-                childSource.emitOne(new EmitCallback<T>() {
-                    @Override
-                    public void accept(StreamToken<? extends T> token) {
-                        synchronized (lock) {
-                            if (!token.isValue()) {
-                                childSource = null;
-                                if (endReached || token.isError()) {
-                                    cb.accept(token);
-                                } else {
-                                    next();
-                                }
-                            } else {
-                                cb.accept(token);
-                            }
-                        }
-                    }
+        private void resume() {
+            waitingOnEmit = false;
+            drain();
+        }
 
-                    @Override
-                    public void next() throws IllegalStateException {
-                        cb.next();
-                    }
-                });
+        /**
+         * Complete the current request with {@code next()}.
+         */
+        private void complete(EmitCallback<? super T> cb) {
+            this.cb = null;
+            waitingOnEmit = false;
+            cb.next();
+        }
+
+        /**
+         * Complete the current request with a terminal token.
+         */
+        private void complete(EmitCallback<? super T> cb, StreamToken<? extends T> token) {
+            this.cb = null;
+            done = true;
+            waitingOnEmit = false;
+            cb.acceptTerminal(token);
+        }
+
+        private class ParentCallback implements EmitCallback<Publisher<? extends T>> {
+            @Override
+            public void acceptValue(Publisher<? extends T> pub) {
+                if (pub != null) {
+                    childSource = pub.createEmitter();
+                }
+            }
+
+            @Override
+            public void acceptTerminal(StreamToken<? extends Publisher<? extends T>> token) {
+                endReached = true;
+                if (token.isError()) {
+                    childSource = null;
+                    complete(cb, token.safeCast());
+                } else {
+                    resume();
+                }
+            }
+
+            @Override
+            public void next() {
+                resume();
+            }
+
+            @Override
+            public boolean isCancelled() {
+                EmitCallback<? super T> cb = Emitter.this.cb;
+                return cb != null && cb.isCancelled();
+            }
+        }
+
+        private class ChildCallback implements EmitCallback<T> {
+            @Override
+            public void acceptValue(T value) {
+                numEmitted++;
+                cb.acceptValue(value);
+            }
+
+            @Override
+            public void acceptTerminal(StreamToken<? extends T> token) {
+                childSource = null;
+                if (token.isError()) {
+                    complete(cb, token);
+                } else if (numEmitted > 0) {
+                    complete(cb);
+                } else {
+                    // Move on to the next child without bothering the
+                    // downstream.
+                    resume();
+                }
+            }
+
+            @Override
+            public void next() {
+                complete(cb);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                EmitCallback<? super T> cb = Emitter.this.cb;
+                return cb != null && cb.isCancelled();
             }
         }
     }
@@ -0,0 +1,192 @@
+package local.vqvu.rxstream.operator;
+
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleFunction;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.ToDoubleFunction;
+
+import local.vqvu.rxstream.Publisher.Operator;
+import local.vqvu.rxstream.emitter.ChainedSinkEmitter;
+import local.vqvu.rxstream.emitter.ChainedSinkEmitter.Sink;
+import local.vqvu.rxstream.emitter.DoubleEmitCallback;
+import local.vqvu.rxstream.util.StreamToken;
+
+/**
+ * Operators on streams of {@code double} values. Each one is a
+ * {@link ChainedSinkEmitter.Sink} that implements {@link DoubleEmitCallback}, so
+ * values are passed between them without boxing.
+ *
+ * @author vqvu
+ */
+public final class DoubleOperators {
+    private DoubleOperators() {}
+
+    public static <T> Operator<T, Double> fromObj(ToDoubleFunction<? super T> mapper) {
+        return source -> new ChainedSinkEmitter<T, Double>(source, new FromObjSink<T>(mapper));
+    }
+
+    public static Operator<Double, Double> map(DoubleUnaryOperator mapper) {
+        return source -> new ChainedSinkEmitter<>(source, new MapSink(mapper));
+    }
+
+    public static Operator<Double, Double> filter(DoublePredicate predicate) {
+        return source -> new ChainedSinkEmitter<>(source, new FilterSink(predicate));
+    }
+
+    public static Operator<Double, Double> reduce(double identity, DoubleBinaryOperator reducer) {
+        return source -> new ChainedSinkEmitter<>(source, new ReduceSink(identity, reducer));
+    }
+
+    public static <R> Operator<Double, R> mapToObj(DoubleFunction<? extends R> mapper) {
+        return source -> new ChainedSinkEmitter<Double, R>(source, new MapToObjSink<R>(mapper));
+    }
+
+    /**
+     * A sink that emits {@code double} values.
+     */
+    private abstract static class DoubleSink<T> extends Sink<T, Double> {
+        protected DoubleEmitCallback doubleDownstream;
+
+        @Override
+        protected void downstreamChanged() {
+            doubleDownstream = DoubleEmitCallback.from(downstream);
+        }
+    }
+
+    private static final class FromObjSink<T> extends DoubleSink<T> {
+        private final ToDoubleFunction<? super T> mapper;
+
+        public FromObjSink(ToDoubleFunction<? super T> mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void acceptValue(T value) {
+            if (isDone()) {
+                return;
+            }
+
+            double result;
+            try {
+                result = mapper.applyAsDouble(value);
+            } catch (Exception e) {
+                fail(e);
+                return;
+            }
+            doubleDownstream.acceptDouble(result);
+        }
+    }
+
+    private static final class MapSink extends DoubleSink<Double> implements DoubleEmitCallback {
+        private final DoubleUnaryOperator mapper;
+
+        public MapSink(DoubleUnaryOperator mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void acceptDouble(double value) {
+            if (isDone()) {
+                return;
+            }
+
+            double result;
+            try {
+                result = mapper.applyAsDouble(value);
+            } catch (Exception e) {
+                fail(e);
+                return;
+            }
+            doubleDownstream.acceptDouble(result);
+        }
+    }
+
+    private static final class FilterSink extends DoubleSink<Double> implements DoubleEmitCallback {
+        private final DoublePredicate predicate;
+
+        public FilterSink(DoublePredicate predicate) {
+            this.predicate = predicate;
+        }
+
+        @Override
+        public void acceptDouble(double value) {
+            if (isDone()) {
+                return;
+            }
+
+            boolean keep;
+            try {
+                keep = predicate.test(value);
+            } catch (Exception e) {
+                fail(e);
+                return;
+            }
+            if (keep) {
+                doubleDownstream.acceptDouble(value);
+            }
+        }
+    }
+
+    private static final class ReduceSink extends DoubleSink<Double> implements DoubleEmitCallback {
+        private final DoubleBinaryOperator reducer;
+        private double acc;
+
+        public ReduceSink(double identity, DoubleBinaryOperator reducer) {
+            this.reducer = reducer;
+            this.acc = identity;
+        }
+
+        @Override
+        protected long sourceDemand(long n) {
+            // Only the end token produces a value.
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public void acceptDouble(double value) {
+            if (isDone()) {
+                return;
+            }
+
+            try {
+                acc = reducer.applyAsDouble(acc, value);
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+
+        @Override
+        protected void onTerminal(StreamToken<? extends Double> token) {
+            if (!token.isError()) {
+                doubleDownstream.acceptDouble(acc);
+            }
+            super.onTerminal(token);
+        }
+    }
+
+    private static final class MapToObjSink<R> extends Sink<Double, R> implements DoubleEmitCallback {
+        private final DoubleFunction<? extends R> mapper;
+
+        public MapToObjSink(DoubleFunction<? extends R> mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void acceptDouble(double value) {
+            if (isDone()) {
+                return;
+            }
+
+            R result;
+            try {
+                result = mapper.apply(value);
+            } catch (Exception e) {
+                fail(e);
+                return;
+            }
+            downstream.acceptValue(result);
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+package local.vqvu.rxstream.operator;
+
+import java.util.function.Predicate;
+
+import local.vqvu.rxstream.Publisher.Operator;
+import local.vqvu.rxstream.emitter.StreamEmitter;
+import local.vqvu.rxstream.emitter.Poller;
+import local.vqvu.rxstream.emitter.StreamEmitter.EmitCallback;
+import local.vqvu.rxstream.emitter.TransformingStreamEmitter;
+import local.vqvu.rxstream.emitter.TransformingStreamEmitter.TransformCallback;
+import local.vqvu.rxstream.util.StreamToken;
+
+public final class FilterOperator<T> implements Operator<T, T> {
+    private final Predicate<? super T> predicate;
+
+    public FilterOperator(Predicate<? super T> predicate) {
+        this.predicate = predicate;
+    }
+
+    @Override
+    public StreamEmitter<T> apply(StreamEmitter<? extends T> source) {
+        return new TransformingStreamEmitter<T,T>(source, new Callback());
+    }
+
+    private class Callback implements TransformCallback<T, T> {
+        @Override
+        public void acceptValue(T val, EmitCallback<? super T> cb) {
+            boolean keep = false;
+            Throwable error = null;
+
+            try {
+                keep = predicate.test(val);
+            } catch (Exception e) {
+                error = e;
+            }
+
+            if (error != null) {
+                cb.acceptError(error);
+            } else if (keep) {
+                cb.acceptValue(val);
+            }
+        }
+
+        @Override
+        public void acceptTerminal(StreamToken<? extends T> token, EmitCallback<? super T> cb) {
+            cb.acceptTerminal(token.safeCast());
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Poller<T> fuseSync(Poller<? extends T> upstream) {
+            return () -> {
+                Object val;
+                while ((val = upstream.poll()) != Poller.END) {
+                    if (predicate.test((T) val)) {
+                        return val;
+                    }
+                }
+                return Poller.END;
+            };
+        }
+    }
+}
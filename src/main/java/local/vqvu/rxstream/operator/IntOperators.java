@@ -0,0 +1,263 @@
+package local.vqvu.rxstream.operator;
+
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ToIntFunction;
+
+import local.vqvu.rxstream.Publisher.Operator;
+import local.vqvu.rxstream.emitter.ChainedSinkEmitter;
+import local.vqvu.rxstream.emitter.ChainedSinkEmitter.Sink;
+import local.vqvu.rxstream.emitter.DoubleEmitCallback;
+import local.vqvu.rxstream.emitter.IntEmitCallback;
+import local.vqvu.rxstream.emitter.LongEmitCallback;
+import local.vqvu.rxstream.util.StreamToken;
+
+/**
+ * Operators on streams of {@code int} values. Each one is a
+ * {@link ChainedSinkEmitter.Sink} that implements {@link IntEmitCallback}, so
+ * values are passed between them without boxing.
+ *
+ * @author vqvu
+ */
+public final class IntOperators {
+    private IntOperators() {}
+
+    public static <T> Operator<T, Integer> fromObj(ToIntFunction<? super T> mapper) {
+        return source -> new ChainedSinkEmitter<T, Integer>(source, new FromObjSink<T>(mapper));
+    }
+
+    public static Operator<Integer, Integer> map(IntUnaryOperator mapper) {
+        return source -> new ChainedSinkEmitter<>(source, new MapSink(mapper));
+    }
+
+    public static Operator<Integer, Integer> filter(IntPredicate predicate) {
+        return source -> new ChainedSinkEmitter<>(source, new FilterSink(predicate));
+    }
+
+    public static Operator<Integer, Integer> reduce(int identity, IntBinaryOperator reducer) {
+        return source -> new ChainedSinkEmitter<>(source, new ReduceSink(identity, reducer));
+    }
+
+    public static <R> Operator<Integer, R> mapToObj(IntFunction<? extends R> mapper) {
+        return source -> new ChainedSinkEmitter<Integer, R>(source, new MapToObjSink<R>(mapper));
+    }
+
+    public static Operator<Integer, Long> mapToLong(IntToLongFunction mapper) {
+        return source -> new ChainedSinkEmitter<>(source, new MapToLongSink(mapper));
+    }
+
+    public static Operator<Integer, Double> mapToDouble(IntToDoubleFunction mapper) {
+        return source -> new ChainedSinkEmitter<>(source, new MapToDoubleSink(mapper));
+    }
+
+    /**
+     * A sink that emits {@code int} values.
+     */
+    private abstract static class IntSink<T> extends Sink<T, Integer> {
+        protected IntEmitCallback intDownstream;
+
+        @Override
+        protected void downstreamChanged() {
+            intDownstream = IntEmitCallback.from(downstream);
+        }
+    }
+
+    private static final class FromObjSink<T> extends IntSink<T> {
+        private final ToIntFunction<? super T> mapper;
+
+        public FromObjSink(ToIntFunction<? super T> mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void acceptValue(T value) {
+            if (isDone()) {
+                return;
+            }
+
+            int result;
+            try {
+                result = mapper.applyAsInt(value);
+            } catch (Exception e) {
+                fail(e);
+                return;
+            }
+            intDownstream.acceptInt(result);
+        }
+    }
+
+    private static final class MapSink extends IntSink<Integer> implements IntEmitCallback {
+        private final IntUnaryOperator mapper;
+
+        public MapSink(IntUnaryOperator mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void acceptInt(int value) {
+            if (isDone()) {
+                return;
+            }
+
+            int result;
+            try {
+                result = mapper.applyAsInt(value);
+            } catch (Exception e) {
+                fail(e);
+                return;
+            }
+            intDownstream.acceptInt(result);
+        }
+    }
+
+    private static final class FilterSink extends IntSink<Integer> implements IntEmitCallback {
+        private final IntPredicate predicate;
+
+        public FilterSink(IntPredicate predicate) {
+            this.predicate = predicate;
+        }
+
+        @Override
+        public void acceptInt(int value) {
+            if (isDone()) {
+                return;
+            }
+
+            boolean keep;
+            try {
+                keep = predicate.test(value);
+            } catch (Exception e) {
+                fail(e);
+                return;
+            }
+            if (keep) {
+                intDownstream.acceptInt(value);
+            }
+        }
+    }
+
+    private static final class ReduceSink extends IntSink<Integer> implements IntEmitCallback {
+        private final IntBinaryOperator reducer;
+        private int acc;
+
+        public ReduceSink(int identity, IntBinaryOperator reducer) {
+            this.reducer = reducer;
+            this.acc = identity;
+        }
+
+        @Override
+        protected long sourceDemand(long n) {
+            // Only the end token produces a value.
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public void acceptInt(int value) {
+            if (isDone()) {
+                return;
+            }
+
+            try {
+                acc = reducer.applyAsInt(acc, value);
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+
+        @Override
+        protected void onTerminal(StreamToken<? extends Integer> token) {
+            if (!token.isError()) {
+                intDownstream.acceptInt(acc);
+            }
+            super.onTerminal(token);
+        }
+    }
+
+    private static final class MapToObjSink<R> extends Sink<Integer, R> implements IntEmitCallback {
+        private final IntFunction<? extends R> mapper;
+
+        public MapToObjSink(IntFunction<? extends R> mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void acceptInt(int value) {
+            if (isDone()) {
+                return;
+            }
+
+            R result;
+            try {
+                result = mapper.apply(value);
+            } catch (Exception e) {
+                fail(e);
+                return;
+            }
+            downstream.acceptValue(result);
+        }
+    }
+
+    private static final class MapToLongSink extends Sink<Integer, Long> implements IntEmitCallback {
+        private final IntToLongFunction mapper;
+        private LongEmitCallback longDownstream;
+
+        public MapToLongSink(IntToLongFunction mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        protected void downstreamChanged() {
+            longDownstream = LongEmitCallback.from(downstream);
+        }
+
+        @Override
+        public void acceptInt(int value) {
+            if (isDone()) {
+                return;
+            }
+
+            long result;
+            try {
+                result = mapper.applyAsLong(value);
+            } catch (Exception e) {
+                fail(e);
+                return;
+            }
+            longDownstream.acceptLong(result);
+        }
+    }
+
+    private static final class MapToDoubleSink extends Sink<Integer, Double> implements IntEmitCallback {
+        private final IntToDoubleFunction mapper;
+        private DoubleEmitCallback doubleDownstream;
+
+        public MapToDoubleSink(IntToDoubleFunction mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        protected void downstreamChanged() {
+            doubleDownstream = DoubleEmitCallback.from(downstream);
+        }
+
+        @Override
+        public void acceptInt(int value) {
+            if (isDone()) {
+                return;
+            }
+
+            double result;
+            try {
+                result = mapper.applyAsDouble(value);
+            } catch (Exception e) {
+                fail(e);
+                return;
+            }
+            doubleDownstream.acceptDouble(result);
+        }
+    }
+}
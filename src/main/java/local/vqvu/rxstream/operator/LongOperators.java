@@ -0,0 +1,227 @@
+package local.vqvu.rxstream.operator;
+
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+import java.util.function.LongToDoubleFunction;
+import java.util.function.LongUnaryOperator;
+import java.util.function.ToLongFunction;
+
+import local.vqvu.rxstream.Publisher.Operator;
+import local.vqvu.rxstream.emitter.ChainedSinkEmitter;
+import local.vqvu.rxstream.emitter.ChainedSinkEmitter.Sink;
+import local.vqvu.rxstream.emitter.DoubleEmitCallback;
+import local.vqvu.rxstream.emitter.LongEmitCallback;
+import local.vqvu.rxstream.util.StreamToken;
+
+/**
+ * Operators on streams of {@code long} values. Each one is a
+ * {@link ChainedSinkEmitter.Sink} that implements {@link LongEmitCallback}, so
+ * values are passed between them without boxing.
+ *
+ * @author vqvu
+ */
+public final class LongOperators {
+    private LongOperators() {}
+
+    public static <T> Operator<T, Long> fromObj(ToLongFunction<? super T> mapper) {
+        return source -> new ChainedSinkEmitter<T, Long>(source, new FromObjSink<T>(mapper));
+    }
+
+    public static Operator<Long, Long> map(LongUnaryOperator mapper) {
+        return source -> new ChainedSinkEmitter<>(source, new MapSink(mapper));
+    }
+
+    public static Operator<Long, Long> filter(LongPredicate predicate) {
+        return source -> new ChainedSinkEmitter<>(source, new FilterSink(predicate));
+    }
+
+    public static Operator<Long, Long> reduce(long identity, LongBinaryOperator reducer) {
+        return source -> new ChainedSinkEmitter<>(source, new ReduceSink(identity, reducer));
+    }
+
+    public static <R> Operator<Long, R> mapToObj(LongFunction<? extends R> mapper) {
+        return source -> new ChainedSinkEmitter<Long, R>(source, new MapToObjSink<R>(mapper));
+    }
+
+    public static Operator<Long, Double> mapToDouble(LongToDoubleFunction mapper) {
+        return source -> new ChainedSinkEmitter<>(source, new MapToDoubleSink(mapper));
+    }
+
+    /**
+     * A sink that emits {@code long} values.
+     */
+    private abstract static class LongSink<T> extends Sink<T, Long> {
+        protected LongEmitCallback longDownstream;
+
+        @Override
+        protected void downstreamChanged() {
+            longDownstream = LongEmitCallback.from(downstream);
+        }
+    }
+
+    private static final class FromObjSink<T> extends LongSink<T> {
+        private final ToLongFunction<? super T> mapper;
+
+        public FromObjSink(ToLongFunction<? super T> mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void acceptValue(T value) {
+            if (isDone()) {
+                return;
+            }
+
+            long result;
+            try {
+                result = mapper.applyAsLong(value);
+            } catch (Exception e) {
+                fail(e);
+                return;
+            }
+            longDownstream.acceptLong(result);
+        }
+    }
+
+    private static final class MapSink extends LongSink<Long> implements LongEmitCallback {
+        private final LongUnaryOperator mapper;
+
+        public MapSink(LongUnaryOperator mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void acceptLong(long value) {
+            if (isDone()) {
+                return;
+            }
+
+            long result;
+            try {
+                result = mapper.applyAsLong(value);
+            } catch (Exception e) {
+                fail(e);
+                return;
+            }
+            longDownstream.acceptLong(result);
+        }
+    }
+
+    private static final class FilterSink extends LongSink<Long> implements LongEmitCallback {
+        private final LongPredicate predicate;
+
+        public FilterSink(LongPredicate predicate) {
+            this.predicate = predicate;
+        }
+
+        @Override
+        public void acceptLong(long value) {
+            if (isDone()) {
+                return;
+            }
+
+            boolean keep;
+            try {
+                keep = predicate.test(value);
+            } catch (Exception e) {
+                fail(e);
+                return;
+            }
+            if (keep) {
+                longDownstream.acceptLong(value);
+            }
+        }
+    }
+
+    private static final class ReduceSink extends LongSink<Long> implements LongEmitCallback {
+        private final LongBinaryOperator reducer;
+        private long acc;
+
+        public ReduceSink(long identity, LongBinaryOperator reducer) {
+            this.reducer = reducer;
+            this.acc = identity;
+        }
+
+        @Override
+        protected long sourceDemand(long n) {
+            // Only the end token produces a value.
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public void acceptLong(long value) {
+            if (isDone()) {
+                return;
+            }
+
+            try {
+                acc = reducer.applyAsLong(acc, value);
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+
+        @Override
+        protected void onTerminal(StreamToken<? extends Long> token) {
+            if (!token.isError()) {
+                longDownstream.acceptLong(acc);
+            }
+            super.onTerminal(token);
+        }
+    }
+
+    private static final class MapToObjSink<R> extends Sink<Long, R> implements LongEmitCallback {
+        private final LongFunction<? extends R> mapper;
+
+        public MapToObjSink(LongFunction<? extends R> mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void acceptLong(long value) {
+            if (isDone()) {
+                return;
+            }
+
+            R result;
+            try {
+                result = mapper.apply(value);
+            } catch (Exception e) {
+                fail(e);
+                return;
+            }
+            downstream.acceptValue(result);
+        }
+    }
+
+    private static final class MapToDoubleSink extends Sink<Long, Double> implements LongEmitCallback {
+        private final LongToDoubleFunction mapper;
+        private DoubleEmitCallback doubleDownstream;
+
+        public MapToDoubleSink(LongToDoubleFunction mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        protected void downstreamChanged() {
+            doubleDownstream = DoubleEmitCallback.from(downstream);
+        }
+
+        @Override
+        public void acceptLong(long value) {
+            if (isDone()) {
+                return;
+            }
+
+            double result;
+            try {
+                result = mapper.applyAsDouble(value);
+            } catch (Exception e) {
+                fail(e);
+                return;
+            }
+            doubleDownstream.acceptDouble(result);
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package local.vqvu.rxstream.operator;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.function.Function;
 
 import local.vqvu.rxstream.Publisher.Operator;
 import local.vqvu.rxstream.emitter.StreamEmitter;
+import local.vqvu.rxstream.emitter.Poller;
 import local.vqvu.rxstream.emitter.StreamEmitter.EmitCallback;
 import local.vqvu.rxstream.emitter.TransformingStreamEmitter;
 import local.vqvu.rxstream.emitter.TransformingStreamEmitter.TransformCallback;
@@ -21,19 +25,24 @@ public final class MapOperator<T, R> implements Operator<T, R> {
         return new TransformingStreamEmitter<T,R>(source, new Callback());
     }
 
-    private class Callback implements TransformCallback<T, R> {
-
-        @Override
-        public void accept(StreamToken<? extends T> token, EmitCallback<? super R> cb) {
-            cb.accept(map(token));
+    /**
+     * Fuses consecutive maps into one operator that applies every mapper in
+     * turn, so a chain of maps only costs one emitter stage.
+     */
+    @Override
+    public <V> Operator<T, V> fuseWith(Operator<? super R, ? extends V> next) {
+        if (!(next instanceof MapOperator)) {
+            return null;
         }
 
-        private StreamToken<R> map(StreamToken<? extends T> token) {
-            if (!token.isValue()) {
-                return token.safeCast();
-            }
+        MapOperator<?, ?> nextMap = (MapOperator<?, ?>) next;
+        return new MapOperator<T, V>(new FusedFunction<>(mapper, nextMap.mapper));
+    }
+
+    private class Callback implements TransformCallback<T, R> {
 
-            T val = token.unwrap();
+        @Override
+        public void acceptValue(T val, EmitCallback<? super R> cb) {
             R mappedValue = null;
             Throwable error = null;
 
@@ -44,10 +53,65 @@ public final class MapOperator<T, R> implements Operator<T, R> {
             }
 
             if (error != null) {
-                return StreamToken.error(error);
+                cb.acceptError(error);
+            } else {
+                cb.acceptValue(mappedValue);
+            }
+        }
+
+        @Override
+        public void acceptTerminal(StreamToken<? extends T> token, EmitCallback<? super R> cb) {
+            cb.acceptTerminal(token.safeCast());
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Poller<R> fuseSync(Poller<? extends T> upstream) {
+            return () -> {
+                Object val = upstream.poll();
+                if (val == Poller.END) {
+                    return Poller.END;
+                }
+                return mapper.apply((T) val);
+            };
+        }
+    }
+
+    /**
+     * A {@link Function} that applies a sequence of functions in a loop
+     * rather than through nested {@link Function#andThen(Function)} calls.
+     */
+    private static final class FusedFunction<T, R> implements Function<T, R> {
+        private final List<Function<Object, Object>> stages;
+
+        public FusedFunction(Function<?, ?> first, Function<?, ?> second) {
+            List<Function<Object, Object>> firstStages = stagesOf(first);
+            List<Function<Object, Object>> secondStages = stagesOf(second);
+
+            List<Function<Object, Object>> stages =
+                    new ArrayList<>(firstStages.size() + secondStages.size());
+            stages.addAll(firstStages);
+            stages.addAll(secondStages);
+            this.stages = stages;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static List<Function<Object, Object>> stagesOf(Function<?, ?> fn) {
+            if (fn instanceof FusedFunction) {
+                return ((FusedFunction<?, ?>) fn).stages;
             } else {
-                return StreamToken.value(mappedValue);
+                return Collections.singletonList((Function<Object, Object>) fn);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public R apply(T val) {
+            Object result = val;
+            for (int i = 0, n = stages.size(); i < n; i++) {
+                result = stages.get(i).apply(result);
             }
+            return (R) result;
         }
     }
-}
\ No newline at end of file
+}
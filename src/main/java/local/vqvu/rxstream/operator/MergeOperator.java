@@ -0,0 +1,342 @@
+package local.vqvu.rxstream.operator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import local.vqvu.rxstream.Publisher;
+import local.vqvu.rxstream.Publisher.Operator;
+import local.vqvu.rxstream.emitter.StreamEmitter;
+import local.vqvu.rxstream.util.SpscArrayQueue;
+import local.vqvu.rxstream.util.StreamToken;
+import local.vqvu.rxstream.util.Trampoline;
+
+/**
+ * Emits the values of up to {@code maxConcurrency} child publishers at once,
+ * interleaved in whatever order they arrive. Each child emitter is driven by
+ * its own {@link Trampoline} into a bounded {@link SpscArrayQueue}, and a
+ * single drain loop moves values from those queues to the downstream. A new
+ * child publisher is only pulled from the source once a running child ends.
+ * <p>
+ * The first error from the source or any child is emitted as soon as it is
+ * seen, and all other emitters are stopped.
+ * <p>
+ * {@link ConcatEagerOperator} runs the same loop, but only ever drains the
+ * oldest child.
+ *
+ * @author vqvu
+ *
+ * @param <T>
+ */
+public class MergeOperator<T> implements Operator<Publisher<? extends T>, T> {
+    static final int DEFAULT_CHILD_CAPACITY = 32;
+
+    private final int maxConcurrency;
+    private final int childCapacity;
+    private final boolean ordered;
+
+    public MergeOperator(int maxConcurrency) {
+        this(maxConcurrency, DEFAULT_CHILD_CAPACITY);
+    }
+
+    /**
+     * @param maxConcurrency the maximum number of child publishers to emit
+     *            from at once.
+     * @param childCapacity the maximum number of values to buffer per child.
+     */
+    public MergeOperator(int maxConcurrency, int childCapacity) {
+        this(maxConcurrency, childCapacity, false);
+    }
+
+    /**
+     * @param ordered if {@code true}, only emit from the oldest running child,
+     *            so that the children's values are emitted in order. The other
+     *            children still run ahead into their queues.
+     */
+    MergeOperator(int maxConcurrency, int childCapacity, boolean ordered) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive. Actual: " + maxConcurrency);
+        }
+        if (childCapacity <= 0) {
+            throw new IllegalArgumentException("childCapacity must be positive. Actual: " + childCapacity);
+        }
+
+        this.maxConcurrency = maxConcurrency;
+        this.childCapacity = childCapacity;
+        this.ordered = ordered;
+    }
+
+    @Override
+    public StreamEmitter<T> apply(StreamEmitter<? extends Publisher<? extends T>> source) {
+        return new Emitter<>(source, maxConcurrency, childCapacity, ordered);
+    }
+
+    private static class Emitter<T> implements StreamEmitter<T> {
+        // Stands in for null values, which the child queues do not accept.
+        private static final Object NULL = new Object();
+
+        private final int maxConcurrency;
+        private final int childCapacity;
+        private final long childLimit;
+        private final boolean ordered;
+
+        private final Trampoline<Publisher<? extends T>> parent;
+        private volatile boolean parentDone;
+
+        // Children are handed to the drain loop through newChildren, and the
+        // drain loop owns children from then on. numActive counts both.
+        private final ConcurrentLinkedQueue<Child> newChildren;
+        private final List<Child> children;
+        private final AtomicInteger numActive;
+        private int cursor;
+
+        private final AtomicReference<Throwable> error;
+        private boolean started;
+        private boolean done;
+
+        // The downstream callback that is waiting for something to emit.
+        private final AtomicReference<EmitCallback<? super T>> waiting;
+        private volatile long waitingNumValues;
+
+        // Bumped by every producer before it looks for a waiting callback, so
+        // that the holder of the callback can tell whether it missed one
+        // without reading the children.
+        private final AtomicLong numSignals;
+
+        public Emitter(StreamEmitter<? extends Publisher<? extends T>> source,
+                       int maxConcurrency, int childCapacity, boolean ordered) {
+            this.maxConcurrency = maxConcurrency;
+            this.childCapacity = childCapacity;
+            this.childLimit = Math.max(childCapacity - (childCapacity >> 2), 1);
+            this.ordered = ordered;
+
+            this.parent = new Trampoline<Publisher<? extends T>>(source, this::addChild,
+                    this::parentTerminated, this::parentDemand);
+            this.parentDone = false;
+
+            this.newChildren = new ConcurrentLinkedQueue<>();
+            this.children = new ArrayList<>();
+            this.numActive = new AtomicInteger(0);
+            this.cursor = 0;
+
+            this.error = new AtomicReference<>(null);
+            this.started = false;
+            this.done = false;
+
+            this.waiting = new AtomicReference<>(null);
+            this.waitingNumValues = 0;
+            this.numSignals = new AtomicLong(0);
+        }
+
+        private long parentDemand() {
+            return maxConcurrency - numActive.get();
+        }
+
+        private void addChild(Publisher<? extends T> pub) {
+            if (pub == null) {
+                return;
+            }
+
+            Child child = new Child(pub.createEmitter());
+            numActive.incrementAndGet();
+            newChildren.add(child);
+            child.upstream.resume();
+            notifyWaiting();
+        }
+
+        private void parentTerminated(StreamToken<? extends Publisher<? extends T>> token) {
+            if (token.isError()) {
+                fail(((StreamToken.ErrorStreamToken<?>) token).getError());
+            } else {
+                parentDone = true;
+                notifyWaiting();
+            }
+        }
+
+        private void fail(Throwable t) {
+            if (error.compareAndSet(null, t)) {
+                notifyWaiting();
+            }
+        }
+
+        private void notifyWaiting() {
+            numSignals.incrementAndGet();
+            if (waiting.get() != null) {
+                EmitCallback<? super T> cb = waiting.getAndSet(null);
+                if (cb != null) {
+                    drainOrWait(waitingNumValues, cb);
+                }
+            }
+        }
+
+        @Override
+        public void emitOne(EmitCallback<? super T> cb) {
+            emitMany(1, cb);
+        }
+
+        @Override
+        public void emitMany(long n, EmitCallback<? super T> cb) {
+            if (!started) {
+                started = true;
+                parent.resume();
+            }
+
+            drainOrWait(n, cb);
+        }
+
+        /**
+         * Drain to the callback, or leave it for a producer if there is
+         * nothing to emit yet. Whoever holds the callback must be prepared to
+         * put it back, since a producer may claim it after another drain
+         * already consumed the value that woke the producer up.
+         */
+        private void drainOrWait(long n, EmitCallback<? super T> cb) {
+            while (true) {
+                long signals = numSignals.get();
+                if (drain(n, cb)) {
+                    return;
+                }
+
+                waitingNumValues = n;
+                waiting.set(cb);
+
+                // Check again in case a producer signalled during the drain
+                // and missed the callback. Once the callback is published,
+                // only thread-safe state may be read here.
+                if (numSignals.get() == signals || !waiting.compareAndSet(cb, null)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Emit up to {@code n} values from the children, followed by either
+         * {@code next()} or a terminal token.
+         *
+         * @return {@code false} if there was nothing to emit.
+         */
+        @SuppressWarnings("unchecked")
+        private boolean drain(long n, EmitCallback<? super T> cb) {
+            if (done) {
+                return true;
+            }
+
+            Child newChild;
+            while ((newChild = newChildren.poll()) != null) {
+                children.add(newChild);
+            }
+
+            long numEmitted = 0;
+            int numChildren = children.size();
+            for (int i = 0; i < numChildren && numEmitted < n && error.get() == null; i++) {
+                if (cursor >= children.size()) {
+                    cursor = 0;
+                }
+
+                Child child = children.get(cursor);
+                long numFromChild = 0;
+                while (numEmitted < n) {
+                    Object value = child.queue.poll();
+                    if (value == null) {
+                        break;
+                    }
+
+                    cb.acceptValue((value == NULL) ? null : (T) value);
+                    numEmitted++;
+                    numFromChild++;
+
+                    if (cb.isCancelled()) {
+                        stopAll();
+                        return true;
+                    }
+                }
+
+                if (child.terminal != null && child.queue.isEmpty()) {
+                    children.remove(cursor);
+                    numActive.decrementAndGet();
+                    parent.resume();
+                } else {
+                    if (numFromChild > 0 && child.demand() > 0) {
+                        child.upstream.resume();
+                    }
+                    if (ordered) {
+                        // The oldest child is not done, so nothing else can go.
+                        break;
+                    }
+                    cursor++;
+                }
+            }
+
+            Throwable err = error.get();
+            if (err != null) {
+                stopAll();
+                cb.acceptError(err);
+                return true;
+            }
+
+            if (parentDone && numActive.get() == 0) {
+                done = true;
+                cb.acceptEnd();
+                return true;
+            }
+
+            if (numEmitted > 0) {
+                cb.next();
+                return true;
+            }
+            return false;
+        }
+
+        private void stopAll() {
+            done = true;
+            parent.stop();
+
+            Child newChild;
+            while ((newChild = newChildren.poll()) != null) {
+                children.add(newChild);
+            }
+            for (Child child : children) {
+                child.upstream.stop();
+            }
+        }
+
+        private class Child {
+            private final SpscArrayQueue<Object> queue;
+            private final Trampoline<T> upstream;
+            private volatile StreamToken<? extends T> terminal;
+
+            public Child(StreamEmitter<? extends T> emitter) {
+                this.queue = new SpscArrayQueue<>(childCapacity);
+                this.upstream = new Trampoline<T>(emitter, this::offer, this::terminate,
+                                                  this::demand);
+                this.terminal = null;
+            }
+
+            long demand() {
+                long free = queue.capacity() - queue.size();
+                return (free >= childLimit) ? free : 0;
+            }
+
+            private void offer(T value) {
+                if (!queue.offer((value == null) ? NULL : value)) {
+                    upstream.stop();
+                    fail(new IllegalStateException("Source emitted more values than requested."));
+                    return;
+                }
+                notifyWaiting();
+            }
+
+            private void terminate(StreamToken<? extends T> token) {
+                if (token.isError()) {
+                    fail(((StreamToken.ErrorStreamToken<?>) token).getError());
+                } else {
+                    terminal = token;
+                    notifyWaiting();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package local.vqvu.rxstream.operator;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import local.vqvu.rxstream.Publisher.Operator;
+import local.vqvu.rxstream.emitter.StreamEmitter;
+import local.vqvu.rxstream.scheduler.Scheduler;
+import local.vqvu.rxstream.util.SpscArrayQueue;
+import local.vqvu.rxstream.util.StreamToken;
+import local.vqvu.rxstream.util.Trampoline;
+
+/**
+ * Emits every token from the source on the {@link Scheduler}. Values from the
+ * source are held in a bounded {@link SpscArrayQueue}, which is refilled the
+ * way {@link PrefetchOperator} refills its queue, so the source keeps
+ * producing while the scheduler emits. Only one task emits to the downstream
+ * at a time, so values stay in order even on a multi-threaded scheduler.
+ * <p>
+ * Once the queue has drained down to a quarter of its capacity, the source is
+ * asked for more from a separate task on the scheduler rather than from the
+ * task that emits. On a multi-threaded scheduler, a synchronous source then
+ * runs alongside the downstream instead of taking turns with it.
+ *
+ * @author vqvu
+ *
+ * @param <T>
+ */
+public class ObserveOnOperator<T> implements Operator<T, T> {
+    /**
+     * The maximum number of values to hold ahead of the downstream.
+     */
+    private static final int CAPACITY = 128;
+
+    private final Scheduler scheduler;
+
+    public ObserveOnOperator(Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public StreamEmitter<T> apply(StreamEmitter<? extends T> source) {
+        return new Emitter<>(source, scheduler);
+    }
+
+    private static class Emitter<T> implements StreamEmitter<T> {
+        // Stands in for null values, which the queue does not accept.
+        private static final Object NULL = new Object();
+
+        private final Scheduler scheduler;
+        private final SpscArrayQueue<Object> queue;
+        private final long limit;
+        private final Trampoline<T> upstream;
+        private final Runnable resumeUpstream;
+
+        private volatile StreamToken<? extends T> terminal;
+        private boolean started;
+
+        // The downstream callback that is waiting for values. Whoever takes
+        // it out hands it to the scheduler.
+        private final AtomicReference<EmitCallback<? super T>> waiting;
+        private volatile long waitingNumValues;
+
+        public Emitter(StreamEmitter<? extends T> source, Scheduler scheduler) {
+            this.scheduler = scheduler;
+            this.queue = new SpscArrayQueue<>(CAPACITY);
+            this.limit = Math.max(CAPACITY - (CAPACITY >> 2), 1);
+            this.upstream = new Trampoline<T>(source, this::offer, this::terminate,
+                                              this::upstreamDemand);
+            this.resumeUpstream = upstream::resume;
+
+            this.terminal = null;
+            this.started = false;
+
+            this.waiting = new AtomicReference<>(null);
+            this.waitingNumValues = 0;
+        }
+
+        private long upstreamDemand() {
+            long free = queue.capacity() - queue.size();
+            return (free >= limit) ? free : 0;
+        }
+
+        private void offer(T value) {
+            if (!queue.offer((value == null) ? NULL : value)) {
+                upstream.stop();
+                terminate(StreamToken.error(new IllegalStateException(
+                        "Source emitted more values than requested.")));
+                return;
+            }
+            notifyWaiting();
+        }
+
+        private void terminate(StreamToken<? extends T> token) {
+            if (terminal == null) {
+                terminal = token;
+            }
+            notifyWaiting();
+        }
+
+        private void notifyWaiting() {
+            if (waiting.get() != null) {
+                EmitCallback<? super T> cb = waiting.getAndSet(null);
+                if (cb != null) {
+                    schedule(waitingNumValues, cb);
+                }
+            }
+        }
+
+        @Override
+        public void emitOne(EmitCallback<? super T> cb) {
+            emitMany(1, cb);
+        }
+
+        @Override
+        public void emitMany(long n, EmitCallback<? super T> cb) {
+            if (!started) {
+                started = true;
+                upstream.resume();
+            }
+
+            schedule(n, cb);
+        }
+
+        private void schedule(long n, EmitCallback<? super T> cb) {
+            try {
+                scheduler.execute(() -> drainOrWait(n, cb));
+            } catch (RejectedExecutionException e) {
+                upstream.stop();
+                cb.acceptError(e);
+            }
+        }
+
+        /**
+         * Drain to the callback, or leave it for the source if there is
+         * nothing to emit yet. Only ever runs on the scheduler. See
+         * {@link PrefetchOperator}.
+         */
+        private void drainOrWait(long n, EmitCallback<? super T> cb) {
+            while (!drain(n, cb)) {
+                waitingNumValues = n;
+                waiting.set(cb);
+
+                // Check again in case the source missed the callback.
+                if ((terminal == null && queue.isEmpty()) || !waiting.compareAndSet(cb, null)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Emit up to {@code n} queued values, followed by either
+         * {@code next()} or the terminal token.
+         *
+         * @return {@code false} if there was nothing to emit.
+         */
+        @SuppressWarnings("unchecked")
+        private boolean drain(long n, EmitCallback<? super T> cb) {
+            // The terminal token is only set after the last value is queued,
+            // so read it first.
+            StreamToken<? extends T> token = terminal;
+
+            long numEmitted = 0;
+            while (numEmitted < n) {
+                Object value = queue.poll();
+                if (value == null) {
+                    break;
+                }
+
+                cb.acceptValue((value == NULL) ? null : (T) value);
+                numEmitted++;
+
+                if (cb.isCancelled()) {
+                    upstream.stop();
+                    return true;
+                }
+            }
+
+            if (numEmitted > 0 && token == null && upstreamDemand() > 0) {
+                requestMore();
+            }
+
+            if (token != null && queue.isEmpty()) {
+                cb.acceptTerminal(token);
+                return true;
+            }
+
+            if (numEmitted > 0) {
+                cb.next();
+                return true;
+            }
+            return false;
+        }
+
+        private void requestMore() {
+            try {
+                scheduler.execute(resumeUpstream);
+            } catch (RejectedExecutionException e) {
+                upstream.stop();
+                terminate(StreamToken.error(e));
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package local.vqvu.rxstream.operator;
+
+import java.util.function.Consumer;
+
+import local.vqvu.rxstream.OverflowStrategy;
+import local.vqvu.rxstream.Publisher.Operator;
+import local.vqvu.rxstream.emitter.PushEmitter;
+import local.vqvu.rxstream.emitter.StreamEmitter;
+import local.vqvu.rxstream.util.OverflowBuffer;
+import local.vqvu.rxstream.util.Trampoline;
+
+/**
+ * Requests values from the source without bound, and holds the ones the
+ * downstream has not asked for yet in an {@link OverflowBuffer}. Meant for
+ * sources that cannot be slowed down, such as
+ * {@link local.vqvu.rxstream.Publishers#push(Consumer)}. A synchronous
+ * source is drained as soon as the downstream first asks for a value.
+ * <p>
+ * A push source is not wrapped. Its own buffer is replaced by one with this
+ * operator's policy, since the default buffer would overflow whenever the
+ * source gets ahead of this operator.
+ *
+ * @author vqvu
+ *
+ * @param <T>
+ */
+public class OnBackpressureOperator<T> implements Operator<T, T> {
+    private final int capacity;
+    private final OverflowStrategy strategy;
+    private final Consumer<? super T> onDrop;
+
+    /**
+     * @see OverflowBuffer#OverflowBuffer(int, OverflowStrategy, Consumer)
+     */
+    public OnBackpressureOperator(int capacity, OverflowStrategy strategy,
+                                  Consumer<? super T> onDrop) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative. Actual: " + capacity);
+        }
+        if (capacity == 0 && strategy == OverflowStrategy.DROP_OLDEST) {
+            throw new IllegalArgumentException("DROP_OLDEST needs a positive capacity.");
+        }
+
+        this.capacity = capacity;
+        this.strategy = strategy;
+        this.onDrop = onDrop;
+    }
+
+    @Override
+    public StreamEmitter<T> apply(StreamEmitter<? extends T> source) {
+        if (source instanceof PushEmitter) {
+            // The push emitter only ever hands out values it was given, so
+            // widening its type is safe.
+            @SuppressWarnings("unchecked")
+            PushEmitter<T> push = (PushEmitter<T>) source;
+            return push.withOverflow(capacity, strategy, onDrop);
+        }
+        return new Emitter<>(source, capacity, strategy, onDrop);
+    }
+
+    private static class Emitter<T> extends OverflowBuffer<T> {
+        private final Trampoline<T> upstream;
+
+        public Emitter(StreamEmitter<? extends T> source, int capacity,
+                       OverflowStrategy strategy, Consumer<? super T> onDrop) {
+            super(capacity, strategy, onDrop);
+            this.upstream = new Trampoline<T>(source, this::accept, this::terminate,
+                                              () -> Long.MAX_VALUE);
+        }
+
+        private void accept(T value) {
+            if (!offer(value)) {
+                upstream.stop();
+            }
+        }
+
+        @Override
+        protected void onStart() {
+            upstream.resume();
+        }
+
+        @Override
+        protected void onCancel() {
+            upstream.stop();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package local.vqvu.rxstream.operator;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import local.vqvu.rxstream.Publisher.Operator;
+import local.vqvu.rxstream.emitter.Poller;
+import local.vqvu.rxstream.emitter.StreamEmitter;
+import local.vqvu.rxstream.util.SpscArrayQueue;
+import local.vqvu.rxstream.util.StreamToken;
+import local.vqvu.rxstream.util.Trampoline;
+
+/**
+ * Requests values from the source ahead of the downstream and holds them in a
+ * bounded {@link SpscArrayQueue}. The source is asked for as many values as
+ * the queue can hold, and is asked again once the queue has drained down to a
+ * quarter of its capacity. This lets an asynchronous source keep producing
+ * while the downstream consumes.
+ * <p>
+ * Errors are emitted after all values queued before them. A synchronous source
+ * that can be fused (see {@link StreamEmitter#fuseSync()}) is pulled from
+ * directly, since there is nothing to gain from queueing its values.
+ *
+ * @author vqvu
+ *
+ * @param <T>
+ */
+public class PrefetchOperator<T> implements Operator<T, T> {
+    private final int capacity;
+
+    public PrefetchOperator(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive. Actual: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    @Override
+    public StreamEmitter<T> apply(StreamEmitter<? extends T> source) {
+        return new Emitter<>(source, capacity);
+    }
+
+    private static class Emitter<T> implements StreamEmitter<T> {
+        // Stands in for null values, which the queue does not accept.
+        private static final Object NULL = new Object();
+
+        private final StreamEmitter<? extends T> source;
+        private final SpscArrayQueue<Object> queue;
+        private final long limit;
+        private final Trampoline<T> upstream;
+
+        private volatile StreamToken<? extends T> terminal;
+        private boolean started;
+
+        // The downstream callback that is waiting for the queue to fill.
+        private final AtomicReference<EmitCallback<? super T>> waiting;
+        private volatile long waitingNumValues;
+
+        public Emitter(StreamEmitter<? extends T> source, int capacity) {
+            this.source = source;
+            this.queue = new SpscArrayQueue<>(capacity);
+            this.limit = Math.max(capacity - (capacity >> 2), 1);
+            this.upstream = new Trampoline<T>(source, this::offer, this::terminate,
+                                              this::upstreamDemand);
+
+            this.terminal = null;
+            this.started = false;
+
+            this.waiting = new AtomicReference<>(null);
+            this.waitingNumValues = 0;
+        }
+
+        private long upstreamDemand() {
+            long free = queue.capacity() - queue.size();
+            return (free >= limit) ? free : 0;
+        }
+
+        private void offer(T value) {
+            if (!queue.offer((value == null) ? NULL : value)) {
+                upstream.stop();
+                terminal = StreamToken.error(new IllegalStateException(
+                        "Source emitted more values than requested."));
+            }
+            notifyWaiting();
+        }
+
+        private void terminate(StreamToken<? extends T> token) {
+            terminal = token;
+            notifyWaiting();
+        }
+
+        private void notifyWaiting() {
+            if (waiting.get() != null) {
+                EmitCallback<? super T> cb = waiting.getAndSet(null);
+                if (cb != null) {
+                    drainOrWait(waitingNumValues, cb);
+                }
+            }
+        }
+
+        @Override
+        public Poller<T> fuseSync() {
+            Poller<? extends T> poller = source.fuseSync();
+            return (poller == null) ? null : poller::poll;
+        }
+
+        @Override
+        public void emitOne(EmitCallback<? super T> cb) {
+            emitMany(1, cb);
+        }
+
+        @Override
+        public void emitMany(long n, EmitCallback<? super T> cb) {
+            if (!started) {
+                started = true;
+                upstream.resume();
+            }
+
+            drainOrWait(n, cb);
+        }
+
+        /**
+         * Drain to the callback, or leave it for the producer if there is
+         * nothing to emit yet. The producer may claim a callback after the
+         * value that woke it up was already drained by an earlier callback, so
+         * whoever holds the callback must be prepared to put it back.
+         */
+        private void drainOrWait(long n, EmitCallback<? super T> cb) {
+            while (!drain(n, cb)) {
+                waitingNumValues = n;
+                waiting.set(cb);
+
+                // Check again in case the producer missed the callback.
+                if ((terminal == null && queue.isEmpty()) || !waiting.compareAndSet(cb, null)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Emit up to {@code n} queued values, followed by either
+         * {@code next()} or the terminal token.
+         *
+         * @return {@code false} if there was nothing to emit.
+         */
+        @SuppressWarnings("unchecked")
+        private boolean drain(long n, EmitCallback<? super T> cb) {
+            long numEmitted = 0;
+            while (numEmitted < n) {
+                Object value = queue.poll();
+                if (value == null) {
+                    break;
+                }
+
+                cb.acceptValue((value == NULL) ? null : (T) value);
+                numEmitted++;
+
+                if (cb.isCancelled()) {
+                    upstream.stop();
+                    return true;
+                }
+            }
+
+            if (numEmitted > 0 && upstreamDemand() > 0) {
+                upstream.resume();
+            }
+
+            // The terminal token is only set after the last value is queued.
+            StreamToken<? extends T> token = terminal;
+            if (token != null && queue.isEmpty()) {
+                cb.acceptTerminal(token);
+                return true;
+            }
+
+            if (numEmitted > 0) {
+                cb.next();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package local.vqvu.rxstream.operator;
+
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+import local.vqvu.rxstream.Publisher.Operator;
+import local.vqvu.rxstream.emitter.StreamEmitter;
+import local.vqvu.rxstream.emitter.Poller;
+import local.vqvu.rxstream.emitter.StreamEmitter.EmitCallback;
+import local.vqvu.rxstream.emitter.TransformingStreamEmitter;
+import local.vqvu.rxstream.emitter.TransformingStreamEmitter.TransformCallback;
+import local.vqvu.rxstream.util.StreamToken;
+
+/**
+ * Folds every value from the source into an accumulator and emits the
+ * accumulator once the source ends. The accumulator either starts out as the
+ * value of a {@link Supplier}, or, for {@link #fromFirst(BinaryOperator)}, as
+ * the first value from the source. In the latter case, nothing is emitted if
+ * the source is empty.
+ *
+ * @author vqvu
+ *
+ * @param <T>
+ * @param <R>
+ */
+public final class ReduceOperator<T, R> implements Operator<T, R> {
+    // null if the first value is the initial accumulator.
+    private final Supplier<? extends R> initial;
+    private final BiFunction<R, ? super T, R> reducer;
+
+    public ReduceOperator(Supplier<? extends R> initial, BiFunction<R, ? super T, R> reducer) {
+        if (initial == null) {
+            throw new NullPointerException();
+        }
+
+        this.initial = initial;
+        this.reducer = reducer;
+    }
+
+    private ReduceOperator(BiFunction<R, ? super T, R> reducer) {
+        this.initial = null;
+        this.reducer = reducer;
+    }
+
+    /**
+     * Returns an operator that starts out with the first value from the
+     * source as the accumulator.
+     */
+    public static <T> ReduceOperator<T, T> fromFirst(BinaryOperator<T> reducer) {
+        return new ReduceOperator<T, T>(reducer);
+    }
+
+    @Override
+    public StreamEmitter<R> apply(StreamEmitter<? extends T> source) {
+        return new TransformingStreamEmitter<T,R>(source, new Callback());
+    }
+
+    private class Callback implements TransformCallback<T, R> {
+        // Whether acc holds a value, which may be null.
+        private boolean hasValue;
+        private R acc;
+        private boolean done;
+
+        public Callback() {
+            this.hasValue = false;
+            this.acc = null;
+            this.done = false;
+        }
+
+        @Override
+        public long sourceDemand(long n) {
+            // Only the end token produces a value.
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public void acceptValue(T val, EmitCallback<? super R> cb) {
+            try {
+                accumulate(val);
+            } catch (Exception e) {
+                clear();
+                cb.acceptError(e);
+            }
+        }
+
+        @Override
+        public void acceptTerminal(StreamToken<? extends T> token, EmitCallback<? super R> cb) {
+            if (token.isError()) {
+                clear();
+                cb.acceptTerminal(token.safeCast());
+                return;
+            }
+
+            try {
+                start();
+            } catch (Exception e) {
+                cb.acceptError(e);
+                return;
+            }
+
+            if (hasValue) {
+                R result = acc;
+                clear();
+                cb.acceptValue(result);
+            }
+            cb.acceptEnd();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Poller<R> fuseSync(Poller<? extends T> upstream) {
+            return () -> {
+                if (done) {
+                    // The result was already returned.
+                    return Poller.END;
+                }
+                done = true;
+
+                Object val;
+                while ((val = upstream.poll()) != Poller.END) {
+                    accumulate((T) val);
+                }
+                start();
+
+                if (!hasValue) {
+                    return Poller.END;
+                }
+                R result = acc;
+                clear();
+                return result;
+            };
+        }
+
+        /**
+         * Set the accumulator to its initial value, if there is one and it
+         * has not been set yet.
+         */
+        private void start() {
+            if (!hasValue && initial != null) {
+                acc = initial.get();
+                hasValue = true;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void accumulate(T val) {
+            start();
+            if (hasValue) {
+                acc = reducer.apply(acc, val);
+            } else {
+                // Only reached by fromFirst, where T and R are the same.
+                acc = (R) val;
+                hasValue = true;
+            }
+        }
+
+        private void clear() {
+            hasValue = false;
+            acc = null;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package local.vqvu.rxstream.operator;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import local.vqvu.rxstream.Publisher.Operator;
+import local.vqvu.rxstream.emitter.StreamEmitter;
+import local.vqvu.rxstream.scheduler.Scheduler;
+
+/**
+ * Makes every call to the source emitter on the {@link Scheduler}. Since a
+ * synchronous source emits from within those calls, its values are emitted on
+ * the scheduler too.
+ *
+ * @author vqvu
+ *
+ * @param <T>
+ */
+public class SubscribeOnOperator<T> implements Operator<T, T> {
+    private final Scheduler scheduler;
+
+    public SubscribeOnOperator(Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public StreamEmitter<T> apply(StreamEmitter<? extends T> source) {
+        return new Emitter<>(source, scheduler);
+    }
+
+    private static class Emitter<T> implements StreamEmitter<T>, Runnable {
+        private final StreamEmitter<? extends T> source;
+        private final Scheduler scheduler;
+
+        // Only one call is ever in flight, so the task is reused.
+        private long numValues;
+        private EmitCallback<? super T> cb;
+
+        public Emitter(StreamEmitter<? extends T> source, Scheduler scheduler) {
+            this.source = source;
+            this.scheduler = scheduler;
+            this.numValues = 0;
+            this.cb = null;
+        }
+
+        @Override
+        public void emitOne(EmitCallback<? super T> cb) {
+            emitMany(1, cb);
+        }
+
+        @Override
+        public void emitMany(long n, EmitCallback<? super T> cb) {
+            this.numValues = n;
+            this.cb = cb;
+
+            try {
+                scheduler.execute(this);
+            } catch (RejectedExecutionException e) {
+                cb.acceptError(e);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (numValues > 1) {
+                source.emitMany(numValues, cb);
+            } else {
+                source.emitOne(cb);
+            }
+        }
+    }
+}
@@ -1,64 +1,280 @@
 package local.vqvu.rxstream.operator;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingDeque;
-import java.util.function.Supplier;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
 
 import local.vqvu.rxstream.Publisher.Operator;
+import local.vqvu.rxstream.emitter.Poller;
 import local.vqvu.rxstream.emitter.StreamEmitter;
 import local.vqvu.rxstream.emitter.SyncStreamEmitter;
+import local.vqvu.rxstream.jfr.RxEvents;
 import local.vqvu.rxstream.util.StreamToken;
 
-
+/**
+ * Turns any {@link StreamEmitter} into a {@link SyncStreamEmitter} by blocking
+ * the calling thread until the source has emitted.
+ * <p>
+ * Tokens the source emits on the calling thread, before its emit method
+ * returns, are passed straight through. Tokens emitted on other threads are
+ * handed over through a single value slot: the source thread parks while the
+ * slot is full, and the calling thread parks while it is empty.
+ * <p>
+ * If the calling thread is interrupted, or the source takes longer than the
+ * timeout to emit a value, the emitter emits an error and ignores everything
+ * else from the source. An interrupt leaves the thread's interrupt flag set.
+ *
+ * @author vqvu
+ *
+ * @param <T>
+ */
 public class SynchronizeOperator<T> implements Operator<T, T> {
+    private final long timeoutNanos;
+
+    public SynchronizeOperator() {
+        this.timeoutNanos = 0;
+    }
+
+    /**
+     * @param timeout the maximum time to wait for the source to emit each
+     *            token.
+     */
+    public SynchronizeOperator(Duration timeout) {
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("Timeout must be positive. Actual: " + timeout);
+        }
+        this.timeoutNanos = timeout.toNanos();
+    }
 
     @Override
     public SyncStreamEmitter<T> apply(StreamEmitter<? extends T> t) {
-        return new Emitter<>(t);
+        return new Emitter<>(t, timeoutNanos);
     }
 
     private static class Emitter<T> implements SyncStreamEmitter<T> {
+        private static final Object EMPTY = new Object();
+        private static final Object NEXT = new Object();
+
         private final StreamEmitter<? extends T> source;
-        private final BlockingQueue<Supplier<Boolean>> actionQueue;
+        private final long timeoutNanos;
+        private final SourceCallback sourceCb;
+
+        private volatile EmitCallback<? super T> cb;
+        private volatile Thread consumer;
+        private volatile boolean consumerParked;
+        private volatile Thread waitingProducer;
 
-        public Emitter(StreamEmitter<? extends T> source) {
+        // A value that has not been passed to cb yet, or EMPTY.
+        private volatile Object slot;
+        // NEXT or a terminal token once the source is done with this call.
+        private volatile Object signal;
+        // Whether cb has received next() or a terminal token for this call.
+        private volatile boolean finished;
+        private volatile boolean abandoned;
+
+        public Emitter(StreamEmitter<? extends T> source, long timeoutNanos) {
             this.source = source;
-            this.actionQueue = new LinkedBlockingDeque<>(2);
+            this.timeoutNanos = timeoutNanos;
+            this.sourceCb = new SourceCallback();
+
+            this.cb = null;
+            this.consumer = null;
+            this.consumerParked = false;
+            this.waitingProducer = null;
+
+            this.slot = EMPTY;
+            this.signal = null;
+            this.finished = false;
+            this.abandoned = false;
+        }
+
+        /**
+         * A fused source only ever emits on the calling thread, so there is
+         * nothing to synchronize.
+         */
+        @Override
+        public Poller<T> fuseSync() {
+            Poller<? extends T> poller = source.fuseSync();
+            return (poller == null) ? null : poller::poll;
         }
 
         @Override
         public void emitOne(EmitCallback<? super T> cb) {
-            source.emitOne(new EmitCallback<T>() {
-                @Override
-                public void accept(StreamToken<? extends T> token) {
-                    setAction(() -> {
-                        cb.accept(token);
-                        return !token.isValue();
-                    });
+            this.cb = cb;
+            this.consumer = Thread.currentThread();
+            this.signal = null;
+            this.finished = false;
+
+            source.emitOne(sourceCb);
+            if (!finished) {
+                await();
+            }
+        }
+
+        @Override
+        public void emitMany(long n, EmitCallback<? super T> cb) {
+            this.cb = cb;
+            this.consumer = Thread.currentThread();
+            this.signal = null;
+            this.finished = false;
+
+            source.emitMany(n, sourceCb);
+            if (!finished) {
+                await();
+            }
+        }
+
+        /**
+         * Passes tokens from other threads to {@code cb} until the source
+         * signals {@code next()} or a terminal token.
+         */
+        @SuppressWarnings("unchecked")
+        private void await() {
+            long deadline = (timeoutNanos > 0) ? System.nanoTime() + timeoutNanos : 0;
+            while (true) {
+                // The source only signals after its last value is in the slot,
+                // so read the signal first.
+                Object sig = signal;
+                Object value = slot;
+                if (value != EMPTY) {
+                    slot = EMPTY;
+                    Thread producer = waitingProducer;
+                    if (producer != null) {
+                        LockSupport.unpark(producer);
+                    }
+
+                    cb.acceptValue((T) value);
+                    if (timeoutNanos > 0) {
+                        deadline = System.nanoTime() + timeoutNanos;
+                    }
+                    continue;
                 }
 
-                @Override
-                public void next() throws IllegalStateException {
-                    setAction(() -> {
-                        cb.next();
-                        return true;
-                    });
+                if (sig != null) {
+                    finished = true;
+                    dispatch(sig);
+                    return;
                 }
-            });
 
-            while (true) {
-                try {
-                    Supplier<Boolean> shouldContinue = actionQueue.take();
-                    if (shouldContinue.get()) {
-                        break;
+                consumerParked = true;
+                if (slot == EMPTY && signal == null) {
+                    Object wait = RxEvents.beginBlockingWait("consumer");
+                    if (timeoutNanos > 0) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            consumerParked = false;
+                            abandon(new TimeoutException(
+                                    "Source did not emit within " + Duration.ofNanos(timeoutNanos)));
+                            return;
+                        }
+                        LockSupport.parkNanos(this, remaining);
+                    } else {
+                        LockSupport.park(this);
                     }
-                } catch (InterruptedException e) {
+                    RxEvents.endBlockingWait(wait);
                 }
+                consumerParked = false;
+
+                if (Thread.interrupted()) {
+                    abandon(new InterruptedException("Interrupted while waiting for the source."));
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void dispatch(Object sig) {
+            if (sig == NEXT) {
+                cb.next();
+            } else {
+                cb.acceptTerminal((StreamToken<? extends T>) sig);
+            }
+        }
+
+        /**
+         * Stop waiting on the source and emit {@code error} instead.
+         */
+        private void abandon(Throwable error) {
+            abandoned = true;
+            finished = true;
+            slot = EMPTY;
+
+            Thread producer = waitingProducer;
+            if (producer != null) {
+                LockSupport.unpark(producer);
             }
+            cb.acceptError(error);
         }
 
-        private void setAction(Supplier<Boolean> action) {
-            actionQueue.add(action);
+        /**
+         * Reused for every call to the source.
+         */
+        private class SourceCallback implements EmitCallback<T> {
+            @Override
+            public void acceptValue(T value) {
+                if (abandoned) {
+                    return;
+                }
+
+                if (Thread.currentThread() == consumer) {
+                    cb.acceptValue(value);
+                    return;
+                }
+
+                while (slot != EMPTY) {
+                    waitingProducer = Thread.currentThread();
+                    if (slot != EMPTY && !abandoned) {
+                        Object wait = RxEvents.beginBlockingWait("producer");
+                        LockSupport.park(this);
+                        RxEvents.endBlockingWait(wait);
+                    }
+                    waitingProducer = null;
+
+                    if (abandoned) {
+                        return;
+                    }
+                }
+
+                slot = value;
+                wakeConsumer();
+            }
+
+            @Override
+            public void acceptTerminal(StreamToken<? extends T> token) {
+                signal(token);
+            }
+
+            @Override
+            public void next() throws IllegalStateException {
+                signal(NEXT);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return abandoned || cb.isCancelled();
+            }
+
+            private void signal(Object sig) {
+                if (abandoned) {
+                    return;
+                }
+
+                if (Thread.currentThread() == consumer) {
+                    finished = true;
+                    dispatch(sig);
+                    return;
+                }
+
+                signal = sig;
+                wakeConsumer();
+            }
+
+            private void wakeConsumer() {
+                if (consumerParked) {
+                    LockSupport.unpark(consumer);
+                }
+            }
         }
     }
 }
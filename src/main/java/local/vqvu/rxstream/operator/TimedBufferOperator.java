@@ -0,0 +1,271 @@
+package local.vqvu.rxstream.operator;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import local.vqvu.rxstream.Publisher.Operator;
+import local.vqvu.rxstream.emitter.StreamEmitter;
+import local.vqvu.rxstream.scheduler.Scheduler;
+import local.vqvu.rxstream.util.StreamToken;
+import local.vqvu.rxstream.util.Trampoline;
+
+/**
+ * Collects values into lists of up to {@code maxSize} values. A list is
+ * emitted once it is full, or once {@code maxWait} has passed since its first
+ * value, whichever comes first. The timer runs on the {@link Scheduler}, so
+ * partial lists may be emitted on the scheduler's thread.
+ * <p>
+ * Completed lists are held until the downstream asks for them. The source is
+ * only asked for more values while fewer than {@link #MAX_READY} lists are
+ * waiting. Lists are allocated with room for as many values as the previous
+ * list held. On error, the partial list is dropped.
+ *
+ * @author vqvu
+ *
+ * @param <T>
+ */
+public class TimedBufferOperator<T> implements Operator<T, List<T>> {
+    static final int MAX_READY = 2;
+
+    private final int maxSize;
+    private final long maxWaitNanos;
+    private final Scheduler scheduler;
+
+    public TimedBufferOperator(int maxSize, Duration maxWait, Scheduler scheduler) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive. Actual: " + maxSize);
+        }
+        if (maxWait.isNegative() || maxWait.isZero()) {
+            throw new IllegalArgumentException("maxWait must be positive. Actual: " + maxWait);
+        }
+        this.maxSize = maxSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public StreamEmitter<List<T>> apply(StreamEmitter<? extends T> source) {
+        return new Emitter(source);
+    }
+
+    private class Emitter implements StreamEmitter<List<T>> {
+        private final Trampoline<T> upstream;
+        private final Object lock;
+
+        // Guarded by lock.
+        private List<T> buffer;
+        private long generation;
+        private Future<?> timer;
+        private final ArrayDeque<List<T>> ready;
+        private int lastSize;
+
+        private volatile StreamToken<? extends List<T>> terminal;
+        private boolean started;
+
+        // The downstream callback that is waiting for a list.
+        private final AtomicReference<EmitCallback<? super List<T>>> waiting;
+        private volatile long waitingNumValues;
+
+        public Emitter(StreamEmitter<? extends T> source) {
+            this.upstream = new Trampoline<T>(source, this::add, this::terminate,
+                                              this::upstreamDemand);
+            this.lock = new Object();
+
+            this.buffer = null;
+            this.generation = 0;
+            this.timer = null;
+            this.ready = new ArrayDeque<>(MAX_READY + 1);
+            this.lastSize = 1;
+
+            this.terminal = null;
+            this.started = false;
+
+            this.waiting = new AtomicReference<>(null);
+            this.waitingNumValues = 0;
+        }
+
+        private long upstreamDemand() {
+            synchronized (lock) {
+                if (ready.size() >= MAX_READY) {
+                    return 0;
+                }
+                return (buffer == null) ? maxSize : maxSize - buffer.size();
+            }
+        }
+
+        private void add(T value) {
+            boolean flushed;
+            synchronized (lock) {
+                if (buffer == null) {
+                    buffer = new ArrayList<>(Math.min(lastSize, maxSize));
+                    long gen = ++generation;
+                    timer = scheduler.schedule(() -> flushIfCurrent(gen),
+                                               maxWaitNanos, TimeUnit.NANOSECONDS);
+                }
+
+                buffer.add(value);
+                flushed = buffer.size() >= maxSize;
+                if (flushed) {
+                    flush();
+                }
+            }
+
+            if (flushed) {
+                notifyWaiting();
+            }
+        }
+
+        private void flushIfCurrent(long gen) {
+            synchronized (lock) {
+                if (gen != generation || buffer == null) {
+                    return;
+                }
+                flush();
+            }
+
+            notifyWaiting();
+            // The buffer was partial, so the upstream may have stopped asking.
+            upstream.resume();
+        }
+
+        /**
+         * Move the current list to the ready queue. Must hold the lock.
+         */
+        private void flush() {
+            if (timer != null) {
+                timer.cancel(false);
+                timer = null;
+            }
+            lastSize = buffer.size();
+            ready.add(buffer);
+            buffer = null;
+            generation++;
+        }
+
+        private void terminate(StreamToken<? extends T> token) {
+            synchronized (lock) {
+                if (buffer != null) {
+                    if (token.isError()) {
+                        timer.cancel(false);
+                        timer = null;
+                        buffer = null;
+                        generation++;
+                    } else {
+                        flush();
+                    }
+                }
+            }
+
+            terminal = token.isError() ? token.safeCast() : StreamToken.end();
+            notifyWaiting();
+        }
+
+        private void cancel() {
+            upstream.stop();
+            synchronized (lock) {
+                if (timer != null) {
+                    timer.cancel(false);
+                    timer = null;
+                }
+                buffer = null;
+                ready.clear();
+                generation++;
+            }
+        }
+
+        private void notifyWaiting() {
+            if (waiting.get() != null) {
+                EmitCallback<? super List<T>> cb = waiting.getAndSet(null);
+                if (cb != null) {
+                    drainOrWait(waitingNumValues, cb);
+                }
+            }
+        }
+
+        @Override
+        public void emitOne(EmitCallback<? super List<T>> cb) {
+            emitMany(1, cb);
+        }
+
+        @Override
+        public void emitMany(long n, EmitCallback<? super List<T>> cb) {
+            if (!started) {
+                started = true;
+                upstream.resume();
+            }
+
+            drainOrWait(n, cb);
+        }
+
+        private boolean hasReady() {
+            synchronized (lock) {
+                return !ready.isEmpty();
+            }
+        }
+
+        /**
+         * Drain to the callback, or leave it for the producer or the timer if
+         * there is nothing to emit yet.
+         */
+        private void drainOrWait(long n, EmitCallback<? super List<T>> cb) {
+            while (!drain(n, cb)) {
+                waitingNumValues = n;
+                waiting.set(cb);
+
+                // Check again in case the producer missed the callback.
+                if ((terminal == null && !hasReady()) || !waiting.compareAndSet(cb, null)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Emit up to {@code n} completed lists, followed by either
+         * {@code next()} or the terminal token.
+         *
+         * @return {@code false} if there was nothing to emit.
+         */
+        private boolean drain(long n, EmitCallback<? super List<T>> cb) {
+            long numEmitted = 0;
+            while (numEmitted < n) {
+                List<T> list;
+                synchronized (lock) {
+                    list = ready.poll();
+                }
+                if (list == null) {
+                    break;
+                }
+
+                cb.acceptValue(list);
+                numEmitted++;
+
+                if (cb.isCancelled()) {
+                    cancel();
+                    return true;
+                }
+            }
+
+            if (numEmitted > 0) {
+                upstream.resume();
+            }
+
+            // The terminal token is only set after the last list is queued.
+            StreamToken<? extends List<T>> token = terminal;
+            if (token != null && !hasReady()) {
+                cb.acceptTerminal(token);
+                return true;
+            }
+
+            if (numEmitted > 0) {
+                cb.next();
+                return true;
+            }
+            return false;
+        }
+    }
+}
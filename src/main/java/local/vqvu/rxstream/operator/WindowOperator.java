@@ -0,0 +1,281 @@
+package local.vqvu.rxstream.operator;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import local.vqvu.rxstream.Publisher;
+import local.vqvu.rxstream.Publisher.Operator;
+import local.vqvu.rxstream.Publishers;
+import local.vqvu.rxstream.emitter.ErrorEmitter;
+import local.vqvu.rxstream.emitter.StreamEmitter;
+import local.vqvu.rxstream.util.StreamToken;
+
+/**
+ * Splits the source into windows of up to {@code size} values, starting a new
+ * window every {@code skip} values. Values between windows are dropped.
+ * <p>
+ * Each window is a {@link Publisher} that pulls its values straight from the
+ * source as it is requested, so no window is ever held in memory. The only
+ * value the operator holds is the first value of the latest window, which it
+ * reads ahead so that it never emits an empty window. This means that windows
+ * must be consumed one after another, as {@link Publishers#concat(Publisher)}
+ * does. Each window may only be subscribed to once. A window that is not
+ * consumed before the next one is requested is skipped over, and subscribing
+ * to it afterwards emits an {@link IllegalStateException}.
+ *
+ * @author vqvu
+ *
+ * @param <T>
+ */
+public class WindowOperator<T> implements Operator<T, Publisher<T>> {
+    private final int size;
+    private final int skip;
+
+    public WindowOperator(int size, int skip) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive. Actual: " + size);
+        }
+        if (skip < size) {
+            throw new IllegalArgumentException(
+                    "skip must be at least size. Actual: size=" + size + ", skip=" + skip);
+        }
+        this.size = size;
+        this.skip = skip;
+    }
+
+    @Override
+    public StreamEmitter<Publisher<T>> apply(StreamEmitter<? extends T> source) {
+        return new Emitter(source);
+    }
+
+    private class Emitter implements StreamEmitter<Publisher<T>> {
+        private final StreamEmitter<? extends T> source;
+        private final Object lock;
+
+        // Guarded by lock.
+        private long position;
+        private long windowIndex;
+        private long skippedIndex;
+        private T lookahead;
+        private boolean hasLookahead;
+        private StreamToken<? extends T> terminal;
+
+        public Emitter(StreamEmitter<? extends T> source) {
+            this.source = source;
+            this.lock = new Object();
+
+            this.position = 0;
+            this.windowIndex = -1;
+            this.skippedIndex = -1;
+            this.lookahead = null;
+            this.hasLookahead = false;
+            this.terminal = null;
+        }
+
+        @Override
+        public void emitOne(EmitCallback<? super Publisher<T>> cb) {
+            emitMany(1, cb);
+        }
+
+        /**
+         * Emits at most one window per call, since the source must be read up
+         * to the first value of a window before the window is emitted.
+         */
+        @Override
+        public void emitMany(long n, EmitCallback<? super Publisher<T>> cb) {
+            StreamToken<? extends T> token;
+            synchronized (lock) {
+                // Whatever is left of the current window is dropped.
+                skippedIndex = windowIndex;
+                lookahead = null;
+                hasLookahead = false;
+                token = terminal;
+            }
+
+            if (token != null) {
+                cb.acceptTerminal(token.safeCast());
+            } else {
+                new OpenWindow(cb).pull();
+            }
+        }
+
+        /**
+         * Reads the source up to the first value of the next window, dropping
+         * everything before it. Sources that call {@code next()} before
+         * returning are pulled from a loop instead of recursively.
+         */
+        private class OpenWindow implements EmitCallback<T> {
+            private final EmitCallback<? super Publisher<T>> cb;
+            private final long start;
+            private final AtomicInteger wip;
+
+            public OpenWindow(EmitCallback<? super Publisher<T>> cb) {
+                this.cb = cb;
+                synchronized (lock) {
+                    this.start = (windowIndex + 1) * skip;
+                }
+                this.wip = new AtomicInteger(0);
+            }
+
+            void pull() {
+                if (wip.getAndIncrement() != 0) {
+                    return;
+                }
+
+                do {
+                    long toSkip;
+                    synchronized (lock) {
+                        toSkip = start - position;
+                    }
+                    source.emitMany(toSkip + 1, this);
+                } while (wip.decrementAndGet() != 0);
+            }
+
+            @Override
+            public void acceptValue(T value) {
+                synchronized (lock) {
+                    if (position++ == start) {
+                        lookahead = value;
+                        hasLookahead = true;
+                    }
+                }
+            }
+
+            @Override
+            public void acceptTerminal(StreamToken<? extends T> token) {
+                synchronized (lock) {
+                    terminal = token;
+                }
+                if (!emitWindow()) {
+                    cb.acceptTerminal(token.safeCast());
+                }
+            }
+
+            @Override
+            public void next() {
+                if (!emitWindow()) {
+                    pull();
+                }
+            }
+
+            private boolean emitWindow() {
+                long index;
+                synchronized (lock) {
+                    if (!hasLookahead) {
+                        return false;
+                    }
+                    index = ++windowIndex;
+                }
+
+                cb.acceptValue(newWindow(index));
+                cb.next();
+                return true;
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return cb.isCancelled();
+            }
+        }
+
+        private Publisher<T> newWindow(long index) {
+            AtomicBoolean subscribed = new AtomicBoolean(false);
+            return Publishers.create(() -> {
+                if (!subscribed.compareAndSet(false, true)) {
+                    return new ErrorEmitter<T>(new IllegalStateException(
+                            "A window may only be subscribed to once."));
+                }
+                return new Window(index);
+            });
+        }
+
+        private class Window implements StreamEmitter<T> {
+            private final long index;
+            private final long end;
+
+            public Window(long index) {
+                this.index = index;
+                this.end = index * skip + size;
+            }
+
+            @Override
+            public void emitOne(EmitCallback<? super T> cb) {
+                emitMany(1, cb);
+            }
+
+            @Override
+            public void emitMany(long n, EmitCallback<? super T> cb) {
+                T first = null;
+                boolean emitFirst = false;
+                long remaining;
+                StreamToken<? extends T> token;
+                synchronized (lock) {
+                    if (index <= skippedIndex) {
+                        cb.acceptError(new IllegalStateException(
+                                "Window was skipped before it was consumed."));
+                        return;
+                    }
+
+                    if (hasLookahead) {
+                        first = lookahead;
+                        emitFirst = true;
+                        lookahead = null;
+                        hasLookahead = false;
+                    }
+                    remaining = end - position;
+                    token = terminal;
+                }
+
+                if (emitFirst) {
+                    cb.acceptValue(first);
+                    if (remaining == 0) {
+                        cb.acceptEnd();
+                    } else {
+                        cb.next();
+                    }
+                } else if (remaining == 0) {
+                    cb.acceptEnd();
+                } else if (token != null) {
+                    cb.acceptTerminal(token);
+                } else {
+                    source.emitMany(Math.min(n, remaining), new EmitCallback<T>() {
+                        @Override
+                        public void acceptValue(T value) {
+                            synchronized (lock) {
+                                position++;
+                            }
+                            cb.acceptValue(value);
+                        }
+
+                        @Override
+                        public void acceptTerminal(StreamToken<? extends T> token) {
+                            synchronized (lock) {
+                                terminal = token;
+                            }
+                            cb.acceptTerminal(token);
+                        }
+
+                        @Override
+                        public void next() {
+                            boolean done;
+                            synchronized (lock) {
+                                done = position >= end;
+                            }
+
+                            if (done) {
+                                cb.acceptEnd();
+                            } else {
+                                cb.next();
+                            }
+                        }
+
+                        @Override
+                        public boolean isCancelled() {
+                            return cb.isCancelled();
+                        }
+                    });
+                }
+            }
+        }
+    }
+}
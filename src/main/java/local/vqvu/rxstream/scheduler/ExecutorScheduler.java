@@ -0,0 +1,40 @@
+package local.vqvu.rxstream.scheduler;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link Scheduler} backed by an {@link ExecutorService}. If the executor is
+ * not a {@link ScheduledExecutorService}, delayed tasks wait on the shared
+ * timer thread before they are handed to the executor.
+ *
+ * @author vqvu
+ */
+public class ExecutorScheduler implements Scheduler {
+    private final ExecutorService executor;
+
+    public ExecutorScheduler(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    @Override
+    public Future<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        if (executor instanceof ScheduledExecutorService) {
+            return ((ScheduledExecutorService) executor).schedule(task, delay, unit);
+        } else {
+            return Schedulers.timer().schedule(() -> execute(task), delay, unit);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
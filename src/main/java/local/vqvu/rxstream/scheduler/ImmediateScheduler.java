@@ -0,0 +1,22 @@
+package local.vqvu.rxstream.scheduler;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link Scheduler} that runs tasks on the calling thread. Delayed tasks run
+ * on the shared timer thread.
+ *
+ * @author vqvu
+ */
+public class ImmediateScheduler implements Scheduler {
+    @Override
+    public void execute(Runnable task) {
+        task.run();
+    }
+
+    @Override
+    public Future<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        return Schedulers.timer().schedule(task, delay, unit);
+    }
+}
@@ -0,0 +1,41 @@
+package local.vqvu.rxstream.scheduler;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs tasks, possibly on other threads. Used to move emission and
+ * consumption of a stream off of the calling thread.
+ *
+ * @author vqvu
+ *
+ * @see Schedulers
+ */
+public interface Scheduler extends Executor {
+    /**
+     * Run the task as soon as possible. The task may run on any thread,
+     * including the calling thread.
+     *
+     * @param task the task to run.
+     */
+    @Override
+    void execute(Runnable task);
+
+    /**
+     * Run the task after the specified delay.
+     *
+     * @param task the task to run.
+     * @param delay the delay before running the task.
+     * @param unit the unit of {@code delay}.
+     * @return a {@link Future} that can be used to cancel the task.
+     */
+    Future<?> schedule(Runnable task, long delay, TimeUnit unit);
+
+    /**
+     * Release any threads held by this scheduler. Tasks that have not started
+     * yet may never run. The default implementation does nothing.
+     */
+    default void shutdown() {
+    }
+}
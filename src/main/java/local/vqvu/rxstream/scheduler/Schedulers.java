@@ -0,0 +1,86 @@
+package local.vqvu.rxstream.scheduler;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class Schedulers {
+    private static final Scheduler IMMEDIATE = new ImmediateScheduler();
+
+    private Schedulers() {}
+
+    /**
+     * Returns a {@link Scheduler} that runs tasks on the calling thread.
+     */
+    public static Scheduler immediate() {
+        return IMMEDIATE;
+    }
+
+    /**
+     * Returns a {@link Scheduler} that runs tasks on the specified executor.
+     *
+     * @param executor the executor to run tasks on.
+     */
+    public static Scheduler from(ExecutorService executor) {
+        return new ExecutorScheduler(executor);
+    }
+
+    /**
+     * Returns a new {@link Scheduler} backed by a fixed pool of daemon
+     * threads.
+     *
+     * @param numThreads the number of threads in the pool.
+     */
+    public static Scheduler newFixed(int numThreads) {
+        return from(Executors.newScheduledThreadPool(numThreads, daemonThreads("rx-fixed")));
+    }
+
+    /**
+     * Returns a new {@link Scheduler} backed by a single daemon thread. Tasks
+     * run one at a time in the order they were submitted.
+     */
+    public static Scheduler newEventLoop() {
+        return from(Executors.newSingleThreadScheduledExecutor(daemonThreads("rx-event-loop")));
+    }
+
+    /**
+     * Returns a {@link Scheduler} backed by the common {@link ForkJoinPool}.
+     */
+    public static Scheduler forkJoin() {
+        return forkJoin(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns a {@link Scheduler} backed by the specified {@link ForkJoinPool}.
+     *
+     * @param pool the pool to run tasks on.
+     */
+    public static Scheduler forkJoin(ForkJoinPool pool) {
+        return from(pool);
+    }
+
+    /**
+     * Returns the shared timer used to wait out the delay of delayed tasks
+     * for schedulers that cannot do it themselves.
+     */
+    static ScheduledExecutorService timer() {
+        return TimerHolder.TIMER;
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger(0);
+        return (task) -> {
+            Thread thread = new Thread(task, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static class TimerHolder {
+        static final ScheduledExecutorService TIMER =
+            Executors.newSingleThreadScheduledExecutor(daemonThreads("rx-timer"));
+    }
+}
@@ -1,24 +1,69 @@
 package local.vqvu.rxstream.util;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
+import local.vqvu.rxstream.emitter.Poller;
 import local.vqvu.rxstream.emitter.StreamEmitter;
+import local.vqvu.rxstream.hooks.LatencyRecorder;
+import local.vqvu.rxstream.jfr.RxEvents;
 
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 
 public class BasicSubcription<T> implements Subscription {
     private final Subscriber<? super T> subscription;
-    private final Trampoline<T> trampoline;
 
     private final AtomicLong numRequests;
 
+    // Exactly one of these is set, depending on whether the emitter chain
+    // can be fused into a Poller. See StreamEmitter#fuseSync().
+    private final Trampoline<T> trampoline;
+    private final Poller<? extends T> poller;
+
+    // Only used in fused mode.
+    private final AtomicInteger wip;
+    private final AtomicBoolean done;
+
+    // The Flight Recorder event for this subscription, if it is enabled.
+    private final AtomicReference<Object> event;
+
+    // Only set if the publisher was measured. See Publisher#measured(String).
+    private final LatencyRecorder.Probe probe;
+
+    // Only written by the emit loop, which runs on one thread at a time.
+    private volatile long numEmitted;
+
     public BasicSubcription(Subscriber<? super T> sub,
                             StreamEmitter<? extends T> emitter) {
-        this.subscription = sub;
-        this.trampoline = new Trampoline<>(emitter, this::emit);
+        this(sub, emitter, null);
+    }
 
+    /**
+     * @param probe records the latency of every value delivered to
+     *            {@code sub}. May be {@code null}.
+     */
+    public BasicSubcription(Subscriber<? super T> sub,
+                            StreamEmitter<? extends T> emitter,
+                            LatencyRecorder.Probe probe) {
+        this.subscription = sub;
+        this.probe = probe;
+        this.numEmitted = 0;
         this.numRequests = new AtomicLong(0);
+
+        this.poller = emitter.fuseSync();
+        if (poller == null) {
+            this.trampoline = new Trampoline<T>(emitter, this::emitValue, this::emitTerminal,
+                                                numRequests::get);
+        } else {
+            this.trampoline = null;
+        }
+
+        this.wip = new AtomicInteger(0);
+        this.done = new AtomicBoolean(false);
+        this.event = new AtomicReference<>(RxEvents.beginSubscription(sub.getClass().getName()));
     }
 
     @Override
@@ -28,7 +73,7 @@ public class BasicSubcription<T> implements Subscription {
                 + "must be positive. Actual: %d";
             String msg = String.format(format, num);
             Throwable err = new IllegalArgumentException(msg);
-            emit(StreamToken.<T>error(err));
+            stop(StreamToken.<T>error(err));
             return;
         }
 
@@ -37,30 +82,140 @@ public class BasicSubcription<T> implements Subscription {
                 + "Current pending: %d, additional request: %d";
             String msg = String.format(format, Long.MAX_VALUE, numRequests, num);
             Throwable err = new IllegalStateException(msg);
-            emit(StreamToken.<T>error(err));
+            stop(StreamToken.<T>error(err));
             return;
         }
 
         long numPending = numRequests.addAndGet(num);
+        RxEvents.request(num, numPending);
+        if (probe != null && numPending == num) {
+            probe.demandArrived();
+        }
         if (numPending > 0) {
-            trampoline.resume();
+            if (poller != null) {
+                drainFused();
+            } else {
+                trampoline.resume();
+            }
         }
     }
 
     @Override
     public void cancel() {
-        trampoline.stop();
+        endEvent("cancel");
+        if (poller != null) {
+            done.set(true);
+        } else {
+            trampoline.stop();
+        }
+    }
+
+    private void stop(StreamToken<T> token) {
+        if (poller != null) {
+            if (done.compareAndSet(false, true)) {
+                emitTerminal(token);
+            }
+        } else {
+            trampoline.stop(token);
+        }
     }
 
-    private void emit(StreamToken<? extends T> token) {
-        long numPending = numRequests.decrementAndGet();
+    /**
+     * The fused equivalent of the trampoline: pulls values from the poller in
+     * a tight loop for as long as there is demand. Uses the same
+     * work-in-progress counter to serialize the loop and keep it from
+     * recursing when the subscriber requests more from within onNext.
+     */
+    @SuppressWarnings("unchecked")
+    private void drainFused() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+
+        int missed = 1;
+        do {
+            long n = numRequests.get();
+            long emitted = 0;
+            while (emitted != n) {
+                if (done.get()) {
+                    return;
+                }
+
+                Object value;
+                try {
+                    value = poller.poll();
+                } catch (Exception e) {
+                    stop(StreamToken.<T>error(e));
+                    return;
+                }
+
+                if (value == Poller.END) {
+                    stop(StreamToken.<T>end());
+                    return;
+                }
+
+                if (probe != null) {
+                    probe.delivered();
+                }
+                subscription.onNext((T) value);
+                emitted++;
+            }
+            numRequests.addAndGet(-emitted);
+            numEmitted += emitted;
+
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /**
+     * The number of values requested but not yet emitted.
+     */
+    public long pendingDemand() {
+        return numRequests.get();
+    }
 
-        // Immediately pause the trampoline, since the next call to
-        // StreamToken#emit may cause a resume by calling #request().
-        if (numPending <= 0) {
-            trampoline.pause();
+    /**
+     * The number of values emitted so far. Values emitted by a fused pipeline
+     * are counted once the current batch of requests has been filled.
+     */
+    public long emitted() {
+        return numEmitted;
+    }
+
+    /**
+     * Returns a best-effort snapshot of what the emit loop is doing.
+     */
+    public Trampoline.State state() {
+        if (poller == null) {
+            return trampoline.state();
+        } else if (done.get()) {
+            return Trampoline.State.DONE;
+        } else if (wip.get() != 0) {
+            return Trampoline.State.RUNNING;
+        } else {
+            return Trampoline.State.IDLE;
         }
+    }
 
+    private void emitValue(T value) {
+        // The trampoline checks the demand before every call to the emitter,
+        // so there is no need to pause it explicitly when this reaches zero.
+        numRequests.decrementAndGet();
+        numEmitted++;
+        if (probe != null) {
+            probe.delivered();
+        }
+        subscription.onNext(value);
+    }
+
+    private void emitTerminal(StreamToken<? extends T> token) {
+        endEvent(token.isError() ? "error" : "complete");
         token.emit(subscription);
     }
+
+    private void endEvent(String outcome) {
+        if (event.get() != null) {
+            RxEvents.endSubscription(event.getAndSet(null), outcome);
+        }
+    }
 }
@@ -0,0 +1,120 @@
+package local.vqvu.rxstream.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free queue backed by a ring buffer, like
+ * {@link SpscArrayQueue}, except that any number of threads may
+ * {@link #offer(Object)} and {@link #poll()} at once. Each slot carries a
+ * sequence number that tells producers and consumers whether it is free to
+ * write or ready to read, so a slot is never reused while it is being read.
+ * The queue does not accept {@code null} values.
+ *
+ * @author vqvu
+ *
+ * @param <T>
+ */
+public class MpmcArrayQueue<T> {
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<T> buffer;
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong producerIndex;
+    private final AtomicLong consumerIndex;
+
+    public MpmcArrayQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive. Actual: " + capacity);
+        }
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+
+        this.capacity = capacity;
+        this.mask = size - 1;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.lazySet(i, i);
+        }
+        this.producerIndex = new AtomicLong(0);
+        this.consumerIndex = new AtomicLong(0);
+    }
+
+    /**
+     * Add the value to the tail of the queue.
+     *
+     * @param value the value to add.
+     * @return {@code false} if the queue is full.
+     * @throws NullPointerException if {@code value} is {@code null}.
+     */
+    public boolean offer(T value) throws NullPointerException {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+
+        while (true) {
+            long index = producerIndex.get();
+            if (index - consumerIndex.get() >= capacity) {
+                return false;
+            }
+
+            int offset = (int) index & mask;
+            long seq = sequences.get(offset);
+            if (seq == index && producerIndex.compareAndSet(index, index + 1)) {
+                buffer.lazySet(offset, value);
+                sequences.set(offset, index + 1);
+                return true;
+            }
+            // Otherwise, another producer claimed the slot, or a consumer
+            // has claimed the value in it but not released it yet.
+        }
+    }
+
+    /**
+     * Remove and return the value at the head of the queue.
+     *
+     * @return the value, or {@code null} if the queue is empty.
+     */
+    public T poll() {
+        while (true) {
+            long index = consumerIndex.get();
+            int offset = (int) index & mask;
+            long seq = sequences.get(offset);
+            if (seq < index + 1) {
+                if (index >= producerIndex.get()) {
+                    return null;
+                }
+                // A producer has claimed the slot but not written it yet.
+            } else if (seq == index + 1 && consumerIndex.compareAndSet(index, index + 1)) {
+                T value = buffer.get(offset);
+                buffer.lazySet(offset, null);
+                sequences.set(offset, index + mask + 1);
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of values in the queue. The result is only a
+     * snapshot if the queue is in use by other threads.
+     */
+    public int size() {
+        long consumed = consumerIndex.get();
+        long produced = producerIndex.get();
+        return (int) Math.max(produced - consumed, 0);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
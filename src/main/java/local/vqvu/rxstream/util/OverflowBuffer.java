@@ -0,0 +1,245 @@
+package local.vqvu.rxstream.util;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import local.vqvu.rxstream.OverflowStrategy;
+import local.vqvu.rxstream.emitter.StreamEmitter;
+import local.vqvu.rxstream.exception.BackpressureOverflowException;
+
+/**
+ * An emitter for values that are offered to it regardless of the downstream
+ * demand. Values that arrive while the downstream is waiting are handed to it
+ * right away. The others are held in a bounded, lock-free
+ * {@link MpmcArrayQueue}, and once that is full, the {@link OverflowStrategy}
+ * decides what to do. Memory use is bounded by the capacity no matter how far
+ * the downstream falls behind.
+ * <p>
+ * A capacity of zero buffers nothing: values are either handed to a waiting
+ * downstream or dropped.
+ * <p>
+ * {@link #offer(Object)} and {@link #terminate(StreamToken)} must not be
+ * called concurrently with each other. Subclasses start their source in
+ * {@link #onStart()}, which is called before the first emit.
+ *
+ * @author vqvu
+ *
+ * @param <T>
+ */
+public class OverflowBuffer<T> implements StreamEmitter<T> {
+    private final MpmcArrayQueue<T> queue;
+    private final OverflowStrategy strategy;
+    private final Consumer<? super T> onDrop;
+
+    private volatile StreamToken<? extends T> terminal;
+    private boolean started;
+
+    // The last callback seen, used to notice cancelled subscribers.
+    private volatile EmitCallback<? super T> lastCallback;
+
+    // The downstream callback that is waiting for a value.
+    private final AtomicReference<EmitCallback<? super T>> waiting;
+    private volatile long waitingNumValues;
+
+    /**
+     * @param capacity the maximum number of values to hold. May be zero.
+     * @param strategy what to do when a value arrives while the buffer is
+     *            full. Must not be {@link OverflowStrategy#DROP_OLDEST} if
+     *            {@code capacity} is zero.
+     * @param onDrop called with every value that is dropped. May be
+     *            {@code null}.
+     */
+    public OverflowBuffer(int capacity, OverflowStrategy strategy, Consumer<? super T> onDrop) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative. Actual: " + capacity);
+        }
+        if (capacity == 0 && strategy == OverflowStrategy.DROP_OLDEST) {
+            throw new IllegalArgumentException("DROP_OLDEST needs a positive capacity.");
+        }
+
+        this.queue = (capacity == 0) ? null : new MpmcArrayQueue<>(capacity);
+        this.strategy = strategy;
+        this.onDrop = onDrop;
+
+        this.terminal = null;
+        this.started = false;
+        this.lastCallback = null;
+        this.waiting = new AtomicReference<>(null);
+        this.waitingNumValues = 0;
+    }
+
+    /**
+     * Called before the first emit. The default implementation does nothing.
+     */
+    protected void onStart() {
+    }
+
+    /**
+     * Called once the downstream is seen to have cancelled. The default
+     * implementation does nothing.
+     */
+    protected void onCancel() {
+    }
+
+    /**
+     * Returns {@code true} if the downstream has cancelled.
+     */
+    public boolean isCancelled() {
+        EmitCallback<? super T> cb = lastCallback;
+        return cb != null && cb.isCancelled();
+    }
+
+    /**
+     * Offer a value.
+     *
+     * @return {@code false} if the stream has terminated, because of this
+     *         value or otherwise, and the source should stop.
+     * @throws NullPointerException if {@code value} is {@code null}.
+     */
+    public boolean offer(T value) throws NullPointerException {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        if (terminal != null || isCancelled()) {
+            return false;
+        }
+
+        if (queue == null) {
+            EmitCallback<? super T> cb = waiting.getAndSet(null);
+            if (cb != null) {
+                cb.acceptValue(value);
+                cb.next();
+                return true;
+            }
+            return drop(value);
+        }
+
+        boolean accepted = true;
+        if (!queue.offer(value)) {
+            switch (strategy) {
+            case DROP_NEWEST:
+                accepted = drop(value);
+                break;
+            case DROP_OLDEST:
+                // The downstream may have taken the oldest value by now, in
+                // which case there is room anyway.
+                T oldest = queue.poll();
+                accepted = (oldest == null || drop(oldest))
+                    && (queue.offer(value) || drop(value));
+                break;
+            default:
+                String msg = "Buffer of " + queue.capacity() + " values is full.";
+                terminal = StreamToken.error(new BackpressureOverflowException(msg));
+                accepted = false;
+                break;
+            }
+        }
+
+        notifyWaiting();
+        return accepted;
+    }
+
+    private boolean drop(T value) {
+        if (onDrop != null) {
+            try {
+                onDrop.accept(value);
+            } catch (Exception e) {
+                terminate(StreamToken.error(e));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * End the stream with {@code token}, after the values already held. Does
+     * nothing if the stream has already terminated.
+     */
+    public void terminate(StreamToken<? extends T> token) {
+        if (terminal == null) {
+            terminal = token;
+        }
+        notifyWaiting();
+    }
+
+    private void notifyWaiting() {
+        if (waiting.get() != null) {
+            EmitCallback<? super T> cb = waiting.getAndSet(null);
+            if (cb != null) {
+                drainOrWait(waitingNumValues, cb);
+            }
+        }
+    }
+
+    @Override
+    public void emitOne(EmitCallback<? super T> cb) {
+        emitMany(1, cb);
+    }
+
+    @Override
+    public void emitMany(long n, EmitCallback<? super T> cb) {
+        lastCallback = cb;
+        if (!started) {
+            started = true;
+            onStart();
+        }
+
+        drainOrWait(n, cb);
+    }
+
+    /**
+     * Drain to the callback, or leave it for the producer if there is nothing
+     * to emit yet. See {@link local.vqvu.rxstream.operator.PrefetchOperator}.
+     */
+    private void drainOrWait(long n, EmitCallback<? super T> cb) {
+        while (!drain(n, cb)) {
+            waitingNumValues = n;
+            waiting.set(cb);
+
+            // Check again in case the producer missed the callback.
+            if ((terminal == null && (queue == null || queue.isEmpty()))
+                    || !waiting.compareAndSet(cb, null)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Emit up to {@code n} held values, followed by either {@code next()} or
+     * the terminal token.
+     *
+     * @return {@code false} if there was nothing to emit.
+     */
+    private boolean drain(long n, EmitCallback<? super T> cb) {
+        // The terminal token is only set after the last value is queued, so
+        // read it first.
+        StreamToken<? extends T> token = terminal;
+
+        long numEmitted = 0;
+        while (queue != null && numEmitted < n) {
+            T value = queue.poll();
+            if (value == null) {
+                break;
+            }
+
+            cb.acceptValue(value);
+            numEmitted++;
+
+            if (cb.isCancelled()) {
+                onCancel();
+                return true;
+            }
+        }
+
+        if (token != null && (queue == null || queue.isEmpty())) {
+            cb.acceptTerminal(token);
+            return true;
+        }
+
+        if (numEmitted > 0) {
+            cb.next();
+            return true;
+        }
+        return false;
+    }
+}
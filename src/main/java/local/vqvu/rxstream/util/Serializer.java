@@ -0,0 +1,31 @@
+package local.vqvu.rxstream.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts values to and from bytes, so that they can be stored outside of
+ * the Java heap.
+ *
+ * @author vqvu
+ *
+ * @param <T>
+ */
+public interface Serializer<T> {
+    /**
+     * Returns the number of bytes {@link #write(Object, ByteBuffer)} will
+     * write for {@code value}.
+     */
+    int sizeOf(T value);
+
+    /**
+     * Writes {@code value} to {@code out}, starting at its position. Exactly
+     * {@link #sizeOf(Object)} bytes must be written.
+     */
+    void write(T value, ByteBuffer out);
+
+    /**
+     * Reads a value from {@code in}, which holds exactly the bytes written
+     * for it by {@link #write(Object, ByteBuffer)}.
+     */
+    T read(ByteBuffer in);
+}
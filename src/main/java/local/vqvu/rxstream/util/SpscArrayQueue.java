@@ -0,0 +1,102 @@
+package local.vqvu.rxstream.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free queue backed by a ring buffer. It is safe for one
+ * thread to {@link #offer(Object)} while another thread {@link #poll()}s, as
+ * long as there is only ever one producer and one consumer at a time. The
+ * queue does not accept {@code null} values.
+ *
+ * @author vqvu
+ *
+ * @param <T>
+ */
+public class SpscArrayQueue<T> {
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<T> buffer;
+
+    private final AtomicLong producerIndex;
+    private final AtomicLong consumerIndex;
+
+    public SpscArrayQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive. Actual: " + capacity);
+        }
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+
+        this.capacity = capacity;
+        this.mask = size - 1;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.producerIndex = new AtomicLong(0);
+        this.consumerIndex = new AtomicLong(0);
+    }
+
+    /**
+     * Add the value to the tail of the queue. Must only be called by the
+     * producer.
+     *
+     * @param value the value to add.
+     * @return {@code false} if the queue is full.
+     * @throws NullPointerException if {@code value} is {@code null}.
+     */
+    public boolean offer(T value) throws NullPointerException {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+
+        long index = producerIndex.get();
+        if (index - consumerIndex.get() >= capacity) {
+            return false;
+        }
+
+        buffer.lazySet((int) index & mask, value);
+        // A full write so that a consumer that is about to wait for a value
+        // is guaranteed to either see this one or be seen by the producer.
+        producerIndex.set(index + 1);
+        return true;
+    }
+
+    /**
+     * Remove and return the value at the head of the queue. Must only be
+     * called by the consumer.
+     *
+     * @return the value, or {@code null} if the queue is empty.
+     */
+    public T poll() {
+        long index = consumerIndex.get();
+        if (index >= producerIndex.get()) {
+            return null;
+        }
+
+        int offset = (int) index & mask;
+        T value = buffer.get(offset);
+        buffer.lazySet(offset, null);
+        consumerIndex.lazySet(index + 1);
+        return value;
+    }
+
+    /**
+     * Returns the number of values in the queue. The result is only a
+     * snapshot if the queue is in use by other threads.
+     */
+    public int size() {
+        long consumed = consumerIndex.get();
+        long produced = producerIndex.get();
+        return (int) (produced - consumed);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
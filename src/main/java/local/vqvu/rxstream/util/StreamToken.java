@@ -5,6 +5,8 @@ import local.vqvu.rxstream.exception.EmitterTokenException;
 import org.reactivestreams.Subscriber;
 
 public abstract class StreamToken<T> {
+    private static final EndStreamToken<?> END = new EndStreamToken<>();
+
     private StreamToken() {
     }
 
@@ -71,10 +73,12 @@ public abstract class StreamToken<T> {
     }
 
     /**
-     * Returns an {@code end} token.
+     * Returns an {@code end} token. The token is a shared singleton, since it
+     * carries no data.
      */
+    @SuppressWarnings("unchecked")
     public static <T> EndStreamToken<T> end() {
-        return new EndStreamToken<T>();
+        return (EndStreamToken<T>) END;
     }
 
     /**
@@ -1,68 +1,200 @@
 package local.vqvu.rxstream.util;
 
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 
 import local.vqvu.rxstream.emitter.StreamEmitter;
 import local.vqvu.rxstream.emitter.StreamEmitter.EmitCallback;
+import local.vqvu.rxstream.emitter.SyncStreamEmitter;
+import local.vqvu.rxstream.jfr.RxEvents;
 
+/**
+ * Repeatedly pulls tokens from a {@link StreamEmitter} and pushes them to a
+ * consumer for as long as the consumer has demand.
+ * <p>
+ * The trampoline takes no locks. Calls to the emitter are serialized with a
+ * work-in-progress counter: whichever thread increments it from zero runs the
+ * emit loop, and any other thread that wants the loop to run (because of new
+ * demand or a call to {@link EmitCallback#next()}) simply increments the
+ * counter so that the running loop makes another pass. This also keeps the
+ * loop from recursing when the consumer reacts to a value by asking for more.
+ * The consumers are always called without holding any lock.
+ *
+ * @author vqvu
+ *
+ * @param <T>
+ */
 public class Trampoline<T> {
+    /**
+     * What the loop is doing, as reported by {@link Trampoline#state()}.
+     */
+    public enum State {
+        /** Not resumed yet, or paused. */
+        PAUSED,
+        /** Running the loop. */
+        RUNNING,
+        /** Waiting for the emitter to call back. */
+        WAITING_ON_EMIT,
+        /** Not running, most likely because there is no demand. */
+        IDLE,
+        /** Stopped for good. */
+        DONE
+    }
+
     private final StreamEmitter<? extends T> emitter;
-    private final Consumer<StreamToken<? extends T>> consumer;
+    private final Consumer<? super T> valueConsumer;
+    private final Consumer<StreamToken<? extends T>> terminalConsumer;
+    private final LongSupplier demand;
+    private final boolean isSync;
+    private final Callback callback;
 
-    private boolean done;
-    private boolean paused;
-    private boolean inEventLoop;
-    private boolean waitingOnEmit;
+    private final AtomicInteger wip;
+    private final AtomicBoolean done;
+    private volatile boolean paused;
+    private volatile boolean waitingOnEmit;
 
-    private final Object lock;
+    // Flight Recorder stall events, only touched by the loop. The loop ends
+    // them once the trampoline stops.
+    private Object demandStall;
+    private Object emitStall;
 
+    /**
+     * Creates a trampoline that asks the emitter for as many values as
+     * {@code demand} reports. The loop makes no calls to the emitter while
+     * {@code demand} is not positive. Whenever the demand is greater than one,
+     * the values are requested in bulk using
+     * {@link StreamEmitter#emitMany(long, EmitCallback)}.
+     *
+     * @param emitter the emitter to pull from.
+     * @param valueConsumer the consumer to push values to.
+     * @param terminalConsumer the consumer to push the {@code error} or
+     *            {@code end} token to.
+     * @param demand the number of values the consumer is ready to accept. The
+     *            consumer must call {@link #resume()} whenever this goes from
+     *            zero to positive.
+     */
     public Trampoline(StreamEmitter<? extends T> emitter,
-                    Consumer<StreamToken<? extends T>> consumer) {
+                    Consumer<? super T> valueConsumer,
+                    Consumer<StreamToken<? extends T>> terminalConsumer,
+                    LongSupplier demand) {
         this.emitter = emitter;
-        this.consumer = consumer;
+        this.valueConsumer = valueConsumer;
+        this.terminalConsumer = terminalConsumer;
+        this.demand = demand;
+        this.isSync = emitter instanceof SyncStreamEmitter;
+        this.callback = new Callback();
 
-        this.done = false;
+        this.wip = new AtomicInteger(0);
+        this.done = new AtomicBoolean(false);
         this.paused = true;
-        this.inEventLoop = false;
         this.waitingOnEmit = false;
-
-        this.lock = this;
+        this.demandStall = null;
+        this.emitStall = null;
     }
 
     /**
-     * Resume emitting if the loop is currently paused.
+     * Resume emitting if the loop is currently paused, or make the loop check
+     * for new demand.
      */
     public void resume() {
-        synchronized (lock) {
-            paused = false;
-            runEmitLoop();
-        }
+        paused = false;
+        drain();
     }
 
-    private void runEmitLoop() {
-        // Don't recurse into the event loop.
-        if (inEventLoop) {
+    private void drain() {
+        // Someone else is already running the loop. Make it do another pass.
+        if (wip.getAndIncrement() != 0) {
             return;
         }
 
-        inEventLoop = true;
-        while (!paused && !done && !waitingOnEmit) {
-            waitingOnEmit = true;
-            emitter.emitOne(new Callback());
+        int missed = 1;
+        do {
+            while (!paused && !done.get() && !waitingOnEmit) {
+                if (emitStall != null) {
+                    RxEvents.endStall(emitStall);
+                    emitStall = null;
+                }
+
+                long n = demand.getAsLong();
+                if (n <= 0) {
+                    if (demandStall == null) {
+                        demandStall = RxEvents.beginStall("demand");
+                    }
+                    break;
+                }
+                if (demandStall != null) {
+                    RxEvents.endStall(demandStall);
+                    demandStall = null;
+                }
+                callback.open(n);
+
+                waitingOnEmit = true;
+                if (n > 1) {
+                    emitter.emitMany(n, callback);
+                } else {
+                    emitter.emitOne(callback);
+                }
+
+                // A synchronous emitter must have called back by the time it
+                // returns. If it did not, it never will.
+                if (isSync && !done.get() && callback.closeIfOpen()) {
+                    waitingOnEmit = false;
+                    stop(StreamToken.error(new IllegalStateException(
+                            "Synchronous emitter returned without calling next() "
+                            + "or emitting an error or end token.")));
+                } else if (waitingOnEmit && !isSync) {
+                    // An asynchronous emitter returned before calling back.
+                    emitStall = RxEvents.beginStall("emit");
+                }
+            }
+
+            if (done.get()) {
+                endStalls();
+            }
+
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void endStalls() {
+        if (demandStall != null) {
+            RxEvents.endStall(demandStall);
+            demandStall = null;
+        }
+        if (emitStall != null) {
+            RxEvents.endStall(emitStall);
+            emitStall = null;
+        }
+    }
+
+    /**
+     * Returns a best-effort snapshot of what the loop is doing. Meant for
+     * monitoring only.
+     */
+    public State state() {
+        if (done.get()) {
+            return State.DONE;
+        } else if (waitingOnEmit) {
+            return State.WAITING_ON_EMIT;
+        } else if (paused) {
+            return State.PAUSED;
+        } else if (wip.get() != 0) {
+            return State.RUNNING;
+        } else {
+            return State.IDLE;
         }
-        inEventLoop = false;
     }
 
     /**
      * Pause emitting if the loop is currently emitting. The pause may not be
-     * immediate. The loop may emit one more token after this call returns if it
+     * immediate. The loop may emit more tokens after this call returns if it
      * was already in the process of emitting.
      */
     public void pause() {
-        synchronized (lock) {
-            paused = true;
-        }
+        paused = true;
     }
 
     /**
@@ -70,10 +202,23 @@ public class Trampoline<T> {
      * nothing.
      */
     public void stop() {
-        synchronized (lock) {
-            pause();
-            done = true;
-            waitingOnEmit = false;
+        paused = true;
+        done.set(true);
+        // Make the loop end any open stall.
+        drain();
+    }
+
+    /**
+     * Stop emitting forever and push the {@code error} or {@code end} token
+     * to the consumer, unless the trampoline has already stopped.
+     *
+     * @param token the terminal token to push.
+     */
+    public void stop(StreamToken<? extends T> token) {
+        paused = true;
+        if (done.compareAndSet(false, true)) {
+            terminalConsumer.accept(token);
+            drain();
         }
     }
 
@@ -82,56 +227,90 @@ public class Trampoline<T> {
      * attempt to emit the next token.
      */
     private void next() {
-        synchronized (lock) {
-            waitingOnEmit = false;
-
-            runEmitLoop();
-        }
+        waitingOnEmit = false;
+        drain();
     }
 
-    private void emit(StreamToken<? extends T> token) {
-        synchronized (lock) {
-            if (done) {
-                return;
-            }
-
-            waitingOnEmit = false;
-            consumer.accept(token);
-
-            if (!token.isValue()) {
-                stop();
-            }
+    private void emitValue(T value) {
+        if (!done.get()) {
+            valueConsumer.accept(value);
         }
     }
 
+    /**
+     * The callback passed to the emitter. A single instance is reused for
+     * every call to the emitter. Each call opens a new generation, and the
+     * callback remembers which generation was last closed by a
+     * {@code next()} or terminal token in order to detect emitters that call
+     * it too many times.
+     */
     private class Callback implements EmitCallback<T> {
-        private static final int STATE_UNUSED = 0;
-        private static final int STATE_SEEN_VALUE = 1;
-        private static final int STATE_SEEN_END_OR_NEXT = 2;
-
-        private final AtomicInteger state;
+        private volatile long generation;
+        private volatile long maxValues;
+        private final AtomicLong numValues;
+        private final AtomicLong closedGeneration;
 
         public Callback() {
-            this.state = new AtomicInteger(STATE_UNUSED);
+            this.generation = 0;
+            this.maxValues = 0;
+            this.numValues = new AtomicLong(0);
+            this.closedGeneration = new AtomicLong(0);
+        }
+
+        /**
+         * Starts a new generation that accepts up to {@code maxValues}
+         * values. Must only be called while the previous generation is
+         * closed.
+         */
+        void open(long maxValues) {
+            this.maxValues = maxValues;
+            numValues.lazySet(0);
+            generation++;
         }
 
-        private void checkNotUsed(int nextState, String method) throws IllegalStateException {
-            if (state.getAndSet(nextState) >= nextState) {
+        private void checkNotClosed(String method) throws IllegalStateException {
+            long gen = generation;
+            if (closedGeneration.getAndSet(gen) == gen) {
                 throw new IllegalStateException(method + " called too many times.");
             }
         }
 
+        /**
+         * Closes the current generation if it has not seen a {@code next()}
+         * or a terminal token yet.
+         *
+         * @return {@code true} if the generation was closed by this call.
+         */
+        boolean closeIfOpen() {
+            long gen = generation;
+            long closed = closedGeneration.get();
+            return closed != gen && closedGeneration.compareAndSet(closed, gen);
+        }
+
         @Override
-        public void accept(StreamToken<? extends T> token) throws IllegalStateException {
-            checkNotUsed(token.isValue() ? STATE_SEEN_VALUE : STATE_SEEN_END_OR_NEXT, "accept");
-            emit(token);
+        public void acceptValue(T value) throws IllegalStateException {
+            if (closedGeneration.get() == generation
+                    || numValues.incrementAndGet() > maxValues) {
+                throw new IllegalStateException("accept called too many times.");
+            }
+            emitValue(value);
+        }
+
+        @Override
+        public void acceptTerminal(StreamToken<? extends T> token) throws IllegalStateException {
+            checkNotClosed("accept");
+            stop(token);
         }
 
         @Override
         public void next() throws IllegalStateException {
-            checkNotUsed(STATE_SEEN_END_OR_NEXT, "next");
+            checkNotClosed("next");
             Trampoline.this.next();
         }
 
+        @Override
+        public boolean isCancelled() {
+            return done.get();
+        }
     }
 }
@@ -0,0 +1,121 @@
+package local.vqvu.rxstream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import local.vqvu.rxstream.emitter.PushSink;
+import local.vqvu.rxstream.exception.BackpressureOverflowException;
+
+import org.junit.Test;
+
+public class BackpressureTest {
+    @Test
+    public void pushBuffersUntilTheBufferOverflows() {
+        Publisher<Integer> pub = Publishers.push(sink -> {
+            for (int i = 0; i < 200; i++) {
+                sink.next(i);
+            }
+            sink.complete();
+        });
+
+        RecordingSubscriber<Integer> sub = new RecordingSubscriber<>(1);
+        pub.subscribe(sub);
+        assertThat(sub.values, equalTo(Arrays.asList(0)));
+
+        sub.sub.request(Long.MAX_VALUE);
+        assertThat(sub.values.size(), equalTo(Publishers.PUSH_CAPACITY));
+        assertThat(sub.error instanceof BackpressureOverflowException, equalTo(true));
+    }
+
+    @Test
+    public void onBackpressureDropDropsUnrequestedValues() {
+        AtomicReference<PushSink<Integer>> sink = new AtomicReference<>();
+        List<Integer> dropped = new ArrayList<>();
+        Publisher<Integer> pub = Publishers.<Integer>push(sink::set).onBackpressureDrop(dropped::add);
+
+        RecordingSubscriber<Integer> sub = new RecordingSubscriber<>(1);
+        pub.subscribe(sub);
+        sink.get().next(1);
+        sink.get().next(2);
+        sub.sub.request(1);
+        sink.get().next(3);
+        sink.get().complete();
+        sub.sub.request(1);
+
+        assertThat(sub.values, equalTo(Arrays.asList(1, 3)));
+        assertThat(dropped, equalTo(Arrays.asList(2)));
+        assertThat(sub.completed, equalTo(true));
+    }
+
+    @Test
+    public void onBackpressureLatestKeepsTheLatestValue() {
+        AtomicReference<PushSink<Integer>> sink = new AtomicReference<>();
+        Publisher<Integer> pub = Publishers.<Integer>push(sink::set).onBackpressureLatest();
+
+        RecordingSubscriber<Integer> sub = new RecordingSubscriber<>(1);
+        pub.subscribe(sub);
+        for (int i = 1; i <= 5; i++) {
+            sink.get().next(i);
+        }
+        sink.get().complete();
+        sub.sub.request(2);
+
+        assertThat(sub.values, equalTo(Arrays.asList(1, 5)));
+        assertThat(sub.completed, equalTo(true));
+    }
+
+    @Test
+    public void onBackpressureBufferAppliesTheOverflowStrategy() {
+        List<List<Integer>> expected = Arrays.asList(Arrays.asList(1, 2, 3),
+                                                     Arrays.asList(1, 3, 4),
+                                                     Arrays.asList(1, 2, 3));
+        List<OverflowStrategy> strategies = Arrays.asList(OverflowStrategy.DROP_NEWEST,
+                                                          OverflowStrategy.DROP_OLDEST,
+                                                          OverflowStrategy.ERROR);
+        for (int i = 0; i < strategies.size(); i++) {
+            AtomicReference<PushSink<Integer>> sink = new AtomicReference<>();
+            Publisher<Integer> pub = Publishers.<Integer>push(sink::set)
+                .onBackpressureBuffer(2, strategies.get(i));
+
+            RecordingSubscriber<Integer> sub = new RecordingSubscriber<>(1);
+            pub.subscribe(sub);
+            for (int j = 1; j <= 4; j++) {
+                sink.get().next(j);
+            }
+            sink.get().complete();
+            sub.sub.request(10);
+
+            assertThat(sub.values, equalTo(expected.get(i)));
+            if (strategies.get(i) == OverflowStrategy.ERROR) {
+                assertThat(sub.error instanceof BackpressureOverflowException, equalTo(true));
+            } else {
+                assertThat(sub.completed, equalTo(true));
+            }
+        }
+    }
+
+    @Test
+    public void onBackpressureBufferReplacesThePushBuffer() {
+        Publisher<Integer> pub = Publishers.<Integer>push(sink -> {
+            for (int i = 0; i < 200; i++) {
+                sink.next(i);
+            }
+            sink.complete();
+        }).onBackpressureBuffer(16, OverflowStrategy.DROP_OLDEST);
+
+        RecordingSubscriber<Integer> sub = new RecordingSubscriber<>(Long.MAX_VALUE);
+        pub.subscribe(sub);
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 184; i < 200; i++) {
+            expected.add(i);
+        }
+        assertThat(sub.values, equalTo(expected));
+        assertThat(sub.completed, equalTo(true));
+    }
+}
@@ -0,0 +1,94 @@
+package local.vqvu.rxstream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Test;
+
+public class FlightRecorderTest {
+    @Test
+    public void flightRecorderSeesSubscriptionsAndRequests() throws Exception {
+        Path file = Files.createTempFile("rx-stream", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable("local.vqvu.rxstream.Subscription");
+                recording.enable("local.vqvu.rxstream.Request");
+                recording.start();
+
+                RecordingSubscriber<Integer> sub = new RecordingSubscriber<>(2);
+                Publishers.just(1, 2, 3).subscribe(sub);
+                sub.sub.request(5);
+                assertThat(sub.completed, equalTo(true));
+
+                recording.stop();
+                recording.dump(file);
+            }
+
+            List<String> outcomes = new ArrayList<>();
+            List<Long> requests = new ArrayList<>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                String name = event.getEventType().getName();
+                if (name.equals("local.vqvu.rxstream.Subscription")) {
+                    outcomes.add(event.getString("outcome"));
+                } else if (name.equals("local.vqvu.rxstream.Request")) {
+                    requests.add(event.getLong("requested"));
+                }
+            }
+            assertThat(outcomes, equalTo(Arrays.asList("complete")));
+            assertThat(requests, equalTo(Arrays.asList(2L, 5L)));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void flightRecorderEndsStallsOnCancel() throws Exception {
+        Path file = Files.createTempFile("rx-stream", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable("local.vqvu.rxstream.TrampolineStall").withThreshold(Duration.ZERO);
+                recording.start();
+
+                // Never calls back.
+                RecordingSubscriber<Integer> waitingOnEmit = new RecordingSubscriber<>(1);
+                Publishers.<Integer>create(() -> cb -> {}).subscribe(waitingOnEmit);
+
+                // Emits forever, but only one value is requested.
+                RecordingSubscriber<Integer> waitingOnDemand = new RecordingSubscriber<>(1);
+                Publishers.<Integer>create(() -> cb -> {
+                    cb.acceptValue(1);
+                    cb.next();
+                }).subscribe(waitingOnDemand);
+
+                waitingOnEmit.sub.cancel();
+                waitingOnDemand.sub.cancel();
+
+                recording.stop();
+                recording.dump(file);
+            }
+
+            List<String> reasons = new ArrayList<>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                if (event.getEventType().getName().equals("local.vqvu.rxstream.TrampolineStall")) {
+                    reasons.add(event.getString("reason"));
+                }
+            }
+            Collections.sort(reasons);
+            assertThat(reasons, equalTo(Arrays.asList("demand", "emit")));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package local.vqvu.rxstream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import local.vqvu.rxstream.emitter.StreamEmitter;
+import local.vqvu.rxstream.hooks.LatencyHistogram;
+import local.vqvu.rxstream.hooks.LatencyRecorder;
+import local.vqvu.rxstream.scheduler.Schedulers;
+
+import org.junit.Test;
+
+public class LatencyTest {
+    @Test
+    public void latencyHistogramBoundsPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshotAndReset();
+        assertThat(snapshot.count(), equalTo(1000L));
+        for (double p : new double[] { 50, 99, 99.9, 100 }) {
+            long exact = (long) Math.ceil(p * 10) * 1000;
+            long actual = snapshot.percentile(p);
+            assertThat(actual >= exact && actual <= exact + exact / 8, equalTo(true));
+        }
+        assertThat(histogram.snapshot().count(), equalTo(0L));
+    }
+
+    @Test
+    public void measuredRecordsEveryValue() {
+        List<Integer> source = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            source.add(i);
+        }
+
+        // Fused, then through the trampoline.
+        Publisher<Integer> fused = Publishers.from(source).map(x -> x + 1).measured("fused");
+        Publisher<Integer> looped = Publishers.just(source).flatMap(Publishers::from).measured("looped");
+        for (Publisher<Integer> pub : Arrays.asList(fused, looped)) {
+            RecordingSubscriber<Integer> sub = new RecordingSubscriber<>(Long.MAX_VALUE);
+            pub.subscribe(sub);
+            assertThat(sub.values.size(), equalTo(1000));
+        }
+
+        for (String name : Arrays.asList("fused", "looped")) {
+            LatencyRecorder recorder = LatencyRecorder.get(name);
+            assertThat(recorder.requestToNext().snapshot().count(), equalTo(1000L));
+            assertThat(recorder.sourceToSink().snapshotAndReset().count(), equalTo(1000L));
+            assertThat(recorder.sourceToSink().snapshot().count(), equalTo(0L));
+        }
+    }
+
+    @Test
+    public void measuredTimesEachValueFromItsOwnEmission() {
+        // The first value waits in observeOn's queue while the source sleeps
+        // and emits the second.
+        Publisher<Integer> pub = Publishers.<Integer>create(() -> new StreamEmitter<Integer>() {
+            @Override
+            public void emitOne(EmitCallback<? super Integer> cb) {
+                emitMany(1, cb);
+            }
+
+            @Override
+            public void emitMany(long n, EmitCallback<? super Integer> cb) {
+                cb.acceptValue(1);
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                cb.acceptValue(2);
+                cb.acceptEnd();
+            }
+        }).observeOn(Schedulers.immediate()).measured("queued");
+
+        RecordingSubscriber<Integer> sub = new RecordingSubscriber<>(Long.MAX_VALUE);
+        pub.subscribe(sub);
+        assertThat(sub.values, equalTo(Arrays.asList(1, 2)));
+
+        LatencyHistogram.Snapshot latencies = LatencyRecorder.get("queued").sourceToSink().snapshot();
+        assertThat(latencies.count(), equalTo(2L));
+        assertThat(latencies.max() >= TimeUnit.MILLISECONDS.toNanos(100), equalTo(true));
+        assertThat(latencies.percentile(50) < TimeUnit.MILLISECONDS.toNanos(50), equalTo(true));
+    }
+}
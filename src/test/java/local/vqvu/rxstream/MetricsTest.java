@@ -0,0 +1,93 @@
+package local.vqvu.rxstream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import local.vqvu.rxstream.emitter.PushSink;
+import local.vqvu.rxstream.emitter.StreamEmitter;
+import local.vqvu.rxstream.hooks.RxHooks;
+import local.vqvu.rxstream.hooks.RxMetrics;
+import local.vqvu.rxstream.hooks.RxMetrics.StageMetrics;
+
+import org.junit.Test;
+
+public class MetricsTest {
+    @Test
+    public void metricsCountEveryStage() {
+        List<Integer> source = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            source.add(i);
+        }
+
+        RxMetrics metrics = new RxMetrics();
+        RxHooks.install(metrics);
+        try {
+            Publisher<Integer> pub = Publishers.just(source.subList(0, 500), source.subList(500, 1000))
+                .flatMap(Publishers::from)
+                .filter(x -> x >= 0);
+            RecordingSubscriber<Integer> sub = new RecordingSubscriber<>(Long.MAX_VALUE);
+            pub.subscribe(sub);
+            assertThat(sub.values.size(), equalTo(1000));
+        } finally {
+            RxHooks.reset();
+        }
+
+        StageMetrics concat = metrics.get("ConcatOperator");
+        assertThat(concat.emitted(), equalTo(1000L));
+        assertThat(concat.pendingDemand(), equalTo(0L));
+        assertThat(concat.emitCalls() > 0, equalTo(true));
+
+        StageMetrics filter = metrics.get("FilterOperator");
+        assertThat(filter.emitted(), equalTo(1000L));
+        assertThat(filter.delivered(), equalTo(1000L));
+        assertThat(filter.pendingDemand(), equalTo(0L));
+    }
+
+    @Test
+    public void metricsCountUnboundedDemandSeparately() {
+        RxMetrics metrics = new RxMetrics();
+        RxHooks.install(metrics);
+        AtomicReference<PushSink<Integer>> sink = new AtomicReference<>();
+        RecordingSubscriber<Integer> sub = new RecordingSubscriber<>(Long.MAX_VALUE);
+        try {
+            Publishers.<Integer>push(sink::set).map(x -> x).subscribe(sub);
+        } finally {
+            RxHooks.reset();
+        }
+
+        for (int i = 0; i < 3; i++) {
+            sink.get().next(i);
+        }
+        assertThat(sub.values, equalTo(Arrays.asList(0, 1, 2)));
+
+        StageMetrics source = metrics.get("source");
+        StageMetrics map = metrics.get("MapOperator");
+        assertThat(source.pendingDemand(), equalTo(0L));
+        assertThat(source.unboundedEmitCalls(), equalTo(1L));
+        assertThat(map.pendingDemand(), equalTo(0L));
+        assertThat(map.unboundedEmitCalls(), equalTo(1L));
+        assertThat(map.pendingRequests(), equalTo(0L));
+        assertThat(map.unboundedSubscriptions(), equalTo(1L));
+
+        sink.get().complete();
+        assertThat(sub.completed, equalTo(true));
+        for (StageMetrics stage : Arrays.asList(source, map)) {
+            assertThat(stage.pendingDemand(), equalTo(0L));
+            assertThat(stage.unboundedEmitCalls(), equalTo(0L));
+            assertThat(stage.pendingRequests(), equalTo(0L));
+            assertThat(stage.unboundedSubscriptions(), equalTo(0L));
+        }
+    }
+
+    @Test
+    public void nothingIsWrappedWithoutHooks() {
+        RxHooks.reset();
+        StreamEmitter<Integer> emitter = Publishers.just(1, 2, 3).map(x -> x).createEmitter();
+        assertThat(emitter.getClass().getName().startsWith("local.vqvu.rxstream.hooks"), equalTo(false));
+    }
+}
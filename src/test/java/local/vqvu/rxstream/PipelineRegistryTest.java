@@ -0,0 +1,45 @@
+package local.vqvu.rxstream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import local.vqvu.rxstream.jmx.PipelineRegistry;
+
+import org.junit.Test;
+
+public class PipelineRegistryTest {
+    @Test
+    public void registryExposesLiveSubscriptions() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(PipelineRegistry.OBJECT_NAME);
+
+        PipelineRegistry.enable();
+        try {
+            RecordingSubscriber<Integer> stalled = new RecordingSubscriber<>(1);
+            Publishers.<Integer>create(() -> cb -> {}).map(x -> x).subscribe(stalled);
+            Publishers.just(1, 2, 3).subscribe(new RecordingSubscriber<>(Long.MAX_VALUE));
+
+            assertThat(server.getAttribute(name, "TotalSubscriptions"), equalTo((Object) 2L));
+            assertThat(server.getAttribute(name, "LiveSubscriptions"), equalTo((Object) 1));
+            assertThat(server.getAttribute(name, "StalledSubscriptions"), equalTo((Object) 1));
+            assertThat(server.getAttribute(name, "TotalPendingDemand"), equalTo((Object) 1L));
+
+            CompositeData[] subs = (CompositeData[]) server.getAttribute(name, "Subscriptions");
+            assertThat(subs.length, equalTo(1));
+            assertThat(subs[0].get("pipeline"), equalTo((Object) "source -> MapOperator"));
+            assertThat(subs[0].get("state"), equalTo((Object) "WAITING_ON_EMIT"));
+
+            stalled.sub.cancel();
+            assertThat(server.getAttribute(name, "LiveSubscriptions"), equalTo((Object) 0));
+        } finally {
+            PipelineRegistry.disable();
+        }
+        assertThat(server.isRegistered(name), equalTo(false));
+    }
+}
@@ -0,0 +1,108 @@
+package local.vqvu.rxstream;
+
+import static local.vqvu.rxstream.matcher.Emits.emits;
+import static local.vqvu.rxstream.matcher.Emits.emitsValues;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import local.vqvu.rxstream.emitter.LongEmitCallback;
+import local.vqvu.rxstream.emitter.StreamEmitter;
+import local.vqvu.rxstream.util.StreamToken;
+
+import org.junit.Test;
+
+public class PrimitivePublisherTest {
+    @Test
+    public void rangeWorks() {
+        assertThat(Publishers.range(3, 4).boxed(), emitsValues(Arrays.asList(3, 4, 5, 6)));
+        assertThat(Publishers.rangeLong(Long.MAX_VALUE - 1, 2).boxed(),
+                   emitsValues(Arrays.asList(Long.MAX_VALUE - 1, Long.MAX_VALUE)));
+        assertThat(Publishers.range(0, 0).boxed(), emitsValues(Arrays.asList()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rangeRejectsOverflow() {
+        Publishers.range(Integer.MAX_VALUE, 2);
+    }
+
+    @Test
+    public void intChainWorks() {
+        Publisher<String> pub = Publishers.range(0, 10)
+            .map(x -> x * 3)
+            .filter(x -> x % 2 == 0)
+            .mapToObj(x -> "v" + x);
+        assertThat(pub, emitsValues(Arrays.asList("v0", "v6", "v12", "v18", "v24")));
+    }
+
+    @Test
+    public void reduceWorks() {
+        assertThat(Publishers.range(1, 100).sum().boxed(), emitsValues(Arrays.asList(5050)));
+        assertThat(Publishers.rangeLong(1, 20).reduce(1, (a, b) -> a * b).boxed(),
+                   emitsValues(Arrays.asList(2432902008176640000L)));
+        assertThat(Publishers.range(0, 4).asDoublePublisher().map(x -> x / 2).sum().boxed(),
+                   emitsValues(Arrays.asList(3.0)));
+        assertThat(Publishers.range(0, 0).sum().boxed(), emitsValues(Arrays.asList(0)));
+    }
+
+    @Test
+    public void mapFromObjectsWorks() {
+        Publisher<String> pub = Publishers.just("a", "bb", "ccc")
+            .mapToLong(String::length)
+            .mapToDouble(x -> x * 1.5)
+            .mapToObj(Double::toString);
+        assertThat(pub, emitsValues(Arrays.asList("1.5", "3.0", "4.5")));
+    }
+
+    @Test
+    public void errorsStopTheChain() {
+        RuntimeException e = new RuntimeException();
+        Publisher<Integer> pub = Publishers.range(0, 10)
+            .map(x -> {
+                if (x == 2) {
+                    throw e;
+                }
+                return x;
+            })
+            .boxed();
+        assertThat(pub, emits(StreamToken.value(0), StreamToken.value(1), StreamToken.error(e)));
+    }
+
+    @Test
+    public void primitiveCallbacksAreNotBoxed() {
+        List<Long> values = new ArrayList<>();
+        StreamEmitter<Long> emitter = Publishers.rangeLong(0, 5)
+            .map(x -> x + 1)
+            .filter(x -> x != 3)
+            .boxed()
+            .createEmitter();
+
+        emitter.emitMany(10, new LongEmitCallback() {
+            @Override
+            public void acceptLong(long value) {
+                values.add(value);
+            }
+
+            @Override
+            public void acceptValue(Long value) {
+                fail("Value was boxed: " + value);
+            }
+
+            @Override
+            public void acceptTerminal(StreamToken<? extends Long> token) {
+                assertThat(token, equalTo(StreamToken.end()));
+            }
+
+            @Override
+            public void next() {
+                fail("Range should have ended.");
+            }
+        });
+
+        assertThat(values, equalTo(Arrays.asList(1L, 2L, 4L, 5L)));
+    }
+}
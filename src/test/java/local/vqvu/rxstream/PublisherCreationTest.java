@@ -8,13 +8,26 @@ import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BinaryOperator;
 
+import local.vqvu.rxstream.emitter.PushSink;
+import local.vqvu.rxstream.util.Serializer;
 import local.vqvu.rxstream.util.StreamToken;
 import local.vqvu.util.Iterables;
 
+import org.junit.Assume;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -147,6 +160,71 @@ public class PublisherCreationTest {
         pub.toSynchronousPublisher().iterator().hasNext();
     }
 
+    @Test
+    public void createMapWorks() {
+        List<Integer> expected = Arrays.asList(2, 6, 10, 14);
+        Publisher<Integer> pub = Publishers.just(1, 3, 5, 7).map(x -> x * 2);
+        assertThat(pub, emitsValues(expected));
+        assertThat(pub, emitsValues(expected));
+        assertThat(Iterables.asList(pub.toSynchronousPublisher()), equalTo(expected));
+    }
+
+    @Test
+    public void mapChainWorks() {
+        List<Integer> expected = Arrays.asList(11, 13, 15, 17);
+        Publisher<Integer> pub = Publishers.just(1, 3, 5, 7);
+        for (int i = 0; i < 10; i++) {
+            pub = pub.map(x -> x + 1);
+        }
+        Publisher<String> strPub = pub.map(x -> x.toString());
+        assertThat(pub, emitsValues(expected));
+        assertThat(pub, emitsValues(expected));
+        assertThat(strPub, emitsValues("11", "13", "15", "17"));
+    }
+
+    @Test
+    public void adjacentMapsAreFused() {
+        Publisher<Integer> pub = Publishers.just(1, 3, 5, 7);
+        for (int i = 0; i < 10; i++) {
+            pub = pub.map(x -> x + 1);
+        }
+        assertThat(pub.describe(), equalTo("source -> MapOperator"));
+        assertThat(pub, emitsValues(11, 13, 15, 17));
+
+        Publisher<Integer> split = Publishers.just(1, 3, 5, 7)
+            .map(x -> x + 1)
+            .filter(x -> x > 2)
+            .map(x -> x * 2)
+            .map(x -> x + 1);
+        assertThat(split.describe(), equalTo("source -> MapOperator -> FilterOperator -> MapOperator"));
+        assertThat(split, emitsValues(9, 13, 17));
+    }
+
+    @Test
+    public void mapChainHandlesErrors() {
+        RuntimeException e = new RuntimeException();
+        Publisher<Integer> pub = Publishers.just(1, 3, 5, 7)
+            .map(x -> x + 1)
+            .map(x -> {
+                if (x == 6) {
+                    throw e;
+                }
+                return x;
+            })
+            .map(x -> x * 2);
+        assertThat(pub, emits(StreamToken.value(4), StreamToken.value(8), StreamToken.error(e)));
+    }
+
+    @Test
+    public void mapAfterBufferWorks() {
+        Publisher<Integer> pub = Publishers.just(1, 3, 5, 7, 9)
+            .map(x -> x + 1)
+            .buffer(2)
+            .map(List::size)
+            .map(x -> x * 10);
+        assertThat(pub, emitsValues(20, 20, 10));
+    }
+
     @Test
     public void createBufferWorks() {
         List<List<Integer>> expected = Arrays.asList(Arrays.asList(1, 3),
@@ -166,6 +244,517 @@ public class PublisherCreationTest {
         assertThat(Iterables.asList(pub.toSynchronousPublisher()), equalTo(new ArrayList<>()));
     }
 
+    @Test
+    public void weightedBufferWorks() {
+        List<List<String>> expected = Arrays.asList(Arrays.asList("ab", "cd"),
+                                                    Arrays.asList("efghij"),
+                                                    Arrays.asList("k", "l", "m"));
+        Publisher<List<String>> pub = Publishers.just("ab", "cd", "efghij", "k", "l", "m")
+            .buffer(4L, String::length);
+        assertThat(pub, emitsValues(expected));
+        assertThat(Iterables.asList(pub.toSynchronousPublisher()), equalTo(expected));
+    }
+
+    @Test
+    public void windowWorks() {
+        Publisher<List<Integer>> pub = Publishers.just(1, 3, 5, 7, 9)
+            .window(2)
+            .flatMap(w -> w.buffer(Integer.MAX_VALUE));
+        List<List<Integer>> expected = Arrays.asList(Arrays.asList(1, 3),
+                                                     Arrays.asList(5, 7),
+                                                     Arrays.asList(9));
+        assertThat(pub, emitsValues(expected));
+        assertThat(Iterables.asList(pub.toSynchronousPublisher()), equalTo(expected));
+        assertThat(Publishers.empty().window(3), emitsNothing());
+    }
+
+    @Test
+    public void windowWithSkipDropsValuesBetweenWindows() {
+        Publisher<Integer> pub = Publishers.range(0, 10).boxed()
+            .window(2, 3)
+            .flatMap(w -> w);
+        assertThat(pub, emitsValues(0, 1, 3, 4, 6, 7, 9));
+    }
+
+    @Test
+    public void windowsStreamLargeGroups() {
+        Publisher<Long> pub = Publishers.rangeLong(0, 300000).boxed()
+            .window(100000)
+            .flatMap(w -> w.reduce(() -> 0L, (acc, x) -> acc + 1));
+        assertThat(pub, emitsValues(100000L, 100000L, 100000L));
+    }
+
+    @Test
+    public void unconsumedWindowsAreSkipped() {
+        List<Publisher<Integer>> windows =
+            Iterables.asList(Publishers.just(1, 2, 3, 4, 5).window(2).toSynchronousPublisher());
+        assertThat(windows.size(), equalTo(3));
+        for (Publisher<Integer> window : windows) {
+            assertThat(window, emits(StreamToken.error(new IllegalStateException(
+                    "Window was skipped before it was consumed."))));
+        }
+    }
+
+    @Test
+    public void concatMapEagerPreservesOrder() {
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            expected.add(i);
+        }
+
+        Publisher<Integer> pub = Publishers.range(0, 10).boxed()
+            .concatMapEager(i -> Publishers.from(expected.subList(i * 100, (i + 1) * 100)), 3);
+        assertThat(pub, emitsValues(expected));
+        assertThat(Iterables.asList(pub.toSynchronousPublisher()), equalTo(expected));
+    }
+
+    @Test
+    public void concatSkipsEmptyInnersWithoutRecursion() throws InterruptedException {
+        assertConcatSkipsEmptyInners(10000);
+    }
+
+    /**
+     * Takes several seconds. Run with {@code -Drxstream.slowTests=true}.
+     */
+    @Test
+    public void concatSkipsManyEmptyInnersWithoutRecursion() throws InterruptedException {
+        Assume.assumeTrue(Boolean.getBoolean("rxstream.slowTests"));
+        assertConcatSkipsEmptyInners(10000000);
+    }
+
+    /**
+     * Concatenates {@code count} inners, of which only every 2500th is not
+     * empty, on a thread with a small stack. The subscriber asks for one
+     * value at a time, so each request has to skip thousands of empty inners.
+     * Skipping them recursively would overflow the stack.
+     */
+    private static void assertConcatSkipsEmptyInners(int count) throws InterruptedException {
+        Publisher<Publisher<Integer>> inners = Publishers.range(0, count).boxed()
+            .map(i -> (i % 2500 == 2499) ? Publishers.just(i) : Publishers.<Integer>empty());
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 2499; i < count; i += 2500) {
+            expected.add(i);
+        }
+
+        List<Integer> actual = new ArrayList<>();
+        AtomicBoolean completed = new AtomicBoolean(false);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread thread = new Thread(null, () -> {
+            try {
+                Publishers.concat(inners).subscribe(new Subscriber<Integer>() {
+                    private Subscription sub;
+
+                    @Override
+                    public void onSubscribe(Subscription sub) {
+                        this.sub = sub;
+                        sub.request(1);
+                    }
+
+                    @Override
+                    public void onNext(Integer value) {
+                        actual.add(value);
+                        sub.request(1);
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        error.set(t);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        completed.set(true);
+                    }
+                });
+            } catch (Throwable t) {
+                error.set(t);
+            }
+        }, "small-stack", 128 * 1024);
+        thread.start();
+        thread.join();
+
+        assertThat(error.get(), equalTo(null));
+        assertThat(actual, equalTo(expected));
+        assertThat(completed.get(), equalTo(true));
+    }
+
+    @Test
+    public void publishSharesOneSubscription() {
+        AtomicInteger subscriptions = new AtomicInteger(0);
+        Publisher<Integer> source = Publishers.create(() -> {
+            subscriptions.incrementAndGet();
+            return Publishers.range(0, 1000).boxed().createEmitter();
+        });
+
+        Publisher<Integer> pub = source.publish(16).autoConnect(2);
+        Publisher<Integer> both = Publishers.merge(pub, pub.map(x -> -x - 1));
+        List<Integer> actual = Iterables.asList(both.toSynchronousPublisher());
+        actual.sort(null);
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = -1000; i < 1000; i++) {
+            expected.add(i);
+        }
+        assertThat(actual, equalTo(expected));
+        assertThat(subscriptions.get(), equalTo(1));
+    }
+
+    @Test
+    public void shareResubscribesAfterTheEnd() {
+        AtomicInteger subscriptions = new AtomicInteger(0);
+        Publisher<Integer> pub = Publishers.create(() -> {
+            subscriptions.incrementAndGet();
+            return Publishers.just(1, 2, 3).createEmitter();
+        }).share();
+
+        assertThat(pub, emitsValues(1, 2, 3));
+        assertThat(Iterables.asList(pub.toSynchronousPublisher()), equalTo(Arrays.asList(1, 2, 3)));
+        assertThat(subscriptions.get(), equalTo(2));
+    }
+
+    @Test
+    public void cacheSubscribesOnce() {
+        AtomicInteger subscriptions = new AtomicInteger(0);
+        Exception e = new Exception();
+        Publisher<Integer> pub = Publishers.create(() -> {
+            subscriptions.incrementAndGet();
+            return Publishers.just(1, 2).concat(Publishers.error(e)).createEmitter();
+        }).cache();
+
+        assertThat(pub, emits(StreamToken.value(1), StreamToken.value(2), StreamToken.error(e)));
+        assertThat(pub, emits(StreamToken.value(1), StreamToken.value(2), StreamToken.error(e)));
+        assertThat(subscriptions.get(), equalTo(1));
+    }
+
+    @Test
+    public void replayKeepsTheLastValues() {
+        Publisher<Integer> pub = Publishers.range(0, 1000).boxed().replay(10);
+        List<Integer> all = Iterables.asList(pub.toSynchronousPublisher());
+        assertThat(all.size(), equalTo(1000));
+        assertThat(Iterables.asList(pub.toSynchronousPublisher()), equalTo(all.subList(990, 1000)));
+    }
+
+    @Test
+    public void offHeapReplayRoundTripsValues() {
+        Serializer<String> utf8 = new Serializer<String>() {
+            @Override
+            public int sizeOf(String value) {
+                return value.getBytes(StandardCharsets.UTF_8).length;
+            }
+
+            @Override
+            public void write(String value, ByteBuffer out) {
+                out.put(value.getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public String read(ByteBuffer in) {
+                byte[] bytes = new byte[in.remaining()];
+                in.get(bytes);
+                return StandardCharsets.UTF_8.decode(ByteBuffer.wrap(bytes)).toString();
+            }
+        };
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            expected.add("value-" + i);
+        }
+
+        Publisher<String> all = Publishers.from(expected).replay(Long.MAX_VALUE, utf8);
+        assertThat(Iterables.asList(all.toSynchronousPublisher()), equalTo(expected));
+        assertThat(Iterables.asList(all.toSynchronousPublisher()), equalTo(expected));
+
+        // Only whole segments are dropped, so a late subscriber sees a suffix
+        // of at least maxBytes.
+        Publisher<String> bounded = Publishers.from(expected).replay(1000L, utf8);
+        assertThat(Iterables.asList(bounded.toSynchronousPublisher()), equalTo(expected));
+        List<String> suffix = Iterables.asList(bounded.toSynchronousPublisher());
+        assertThat(suffix.size() >= 1000 / 10 && suffix.size() < expected.size(), equalTo(true));
+        assertThat(suffix, equalTo(expected.subList(expected.size() - suffix.size(), expected.size())));
+    }
+
+    @Test
+    public void mergeWithConcurrencyOfOneIsConcat() {
+        Publisher<Integer> pub = Publishers.just(1, 4, 7)
+            .flatMap(x -> Publishers.just(x, x + 1, x + 2), 1);
+        assertThat(pub, emitsValues(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9)));
+    }
+
+    @Test
+    public void mergeEmitsEverything() {
+        List<Integer> expected = new ArrayList<>();
+        List<Publisher<Integer>> pubs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            List<Integer> values = new ArrayList<>();
+            for (int j = 0; j < 100; j++) {
+                values.add(i * 100 + j);
+            }
+            expected.addAll(values);
+            pubs.add(Publishers.from(values));
+        }
+
+        Publisher<Integer> pub = Publishers.merge(Publishers.from(pubs), 4);
+        List<Integer> actual = Iterables.asList(pub.toSynchronousPublisher());
+        actual.sort(null);
+        assertThat(actual, equalTo(expected));
+    }
+
+    @Test
+    public void mergeAndConcatMapEagerEmitNullValues() {
+        List<Integer> values = Arrays.asList(1, null, 2);
+        Publisher<Integer> merged = Publishers.from(values)
+            .flatMap(x -> Publishers.from(Collections.singletonList(x)), 2);
+        List<Integer> actual = Iterables.asList(merged.toSynchronousPublisher());
+        actual.sort(Comparator.nullsFirst(Comparator.naturalOrder()));
+        assertThat(actual, equalTo(Arrays.asList(null, 1, 2)));
+
+        Publisher<Integer> eager = Publishers.from(values)
+            .concatMapEager(x -> Publishers.from(Collections.singletonList(x)), 2);
+        assertThat(eager, emitsValues(values));
+    }
+
+    @Test
+    public void mergeHandlesErrors() {
+        RuntimeException e = new RuntimeException();
+        Publisher<Integer> pub = Publishers.merge(
+                Publishers.<Publisher<Integer>>just(Publishers.just(1, 2), Publishers.error(e)), 1);
+        assertThat(pub, emits(StreamToken.value(1), StreamToken.value(2), StreamToken.error(e)));
+    }
+
+    @Test
+    public void filterAndReduceWork() {
+        Publisher<Integer> pub = Publishers.just(1, 2, 3, 4, 5, 6)
+            .filter(x -> x % 2 == 0)
+            .reduce(Integer::sum);
+        assertThat(pub, emitsValues(Arrays.asList(12)));
+        assertThat(Publishers.<Integer>empty().reduce(Integer::sum), emitsNothing());
+        assertThat(Publishers.<Integer>empty().reduce(() -> 0, Integer::sum),
+                   emitsValues(Arrays.asList(0)));
+    }
+
+    @Test
+    public void filterWorks() {
+        Publisher<Integer> fused = Publishers.just(1, 2, 3, 4, 5, 6).filter(x -> x % 3 != 0);
+        Publisher<Integer> looped = Publishers.just(1, 2, 3, 4, 5, 6)
+            .flatMap(Publishers::just)
+            .filter(x -> x % 3 != 0);
+        assertThat(fused, emitsValues(1, 2, 4, 5));
+        assertThat(looped, emitsValues(1, 2, 4, 5));
+        assertThat(Iterables.asList(looped.toSynchronousPublisher()), equalTo(Arrays.asList(1, 2, 4, 5)));
+    }
+
+    @Test
+    public void filterHandlesErrors() {
+        RuntimeException e = new RuntimeException();
+        Publisher<Integer> pub = Publishers.just(1, 2, 3, 4)
+            .flatMap(Publishers::just)
+            .filter(x -> {
+                if (x == 3) {
+                    throw e;
+                }
+                return true;
+            });
+        assertThat(pub, emits(StreamToken.value(1), StreamToken.value(2), StreamToken.error(e)));
+    }
+
+    @Test
+    public void reduceStartsOverForEverySubscription() {
+        Publisher<List<Integer>> fused = Publishers.just(1, 2, 3)
+            .reduce(ArrayList::new, (acc, x) -> {
+                acc.add(x);
+                return acc;
+            });
+        Publisher<List<Integer>> looped = Publishers.just(1, 2, 3)
+            .flatMap(Publishers::just)
+            .reduce(ArrayList::new, (acc, x) -> {
+                acc.add(x);
+                return acc;
+            });
+        for (Publisher<List<Integer>> pub : Arrays.asList(fused, looped)) {
+            assertThat(pub, emitsValues(Arrays.asList(Arrays.asList(1, 2, 3))));
+            assertThat(pub, emitsValues(Arrays.asList(Arrays.asList(1, 2, 3))));
+        }
+    }
+
+    @Test
+    public void reduceHandlesNullValues() {
+        Publisher<Integer> fused = Publishers.just(null, 2, null);
+        Publisher<Integer> looped = fused.flatMap(Publishers::just);
+        for (Publisher<Integer> pub : Arrays.asList(fused, looped)) {
+            // A null first value is still the initial accumulator.
+            assertThat(pub.reduce((acc, x) -> (acc == null) ? -x : acc),
+                       emitsValues(Arrays.asList(-2)));
+            assertThat(pub.reduce((acc, x) -> x),
+                       emitsValues(Arrays.asList((Integer) null)));
+            assertThat(pub.reduce(() -> 0, (acc, x) -> null),
+                       emitsValues(Arrays.asList((Integer) null)));
+        }
+        assertThat(Publishers.<Integer>empty().reduce(() -> null, (acc, x) -> x),
+                   emitsValues(Arrays.asList((Integer) null)));
+    }
+
+    @Test
+    public void reduceHandlesErrors() {
+        RuntimeException e = new RuntimeException();
+        BinaryOperator<Integer> reducer = (acc, x) -> {
+            if (x == 3) {
+                throw e;
+            }
+            return acc + x;
+        };
+        assertThat(Publishers.just(1, 2, 3).reduce(reducer), emits(StreamToken.error(e)));
+        assertThat(Publishers.just(1, 2, 3).flatMap(Publishers::just).reduce(reducer),
+                   emits(StreamToken.error(e)));
+
+        Publisher<Integer> upstreamError = Publishers.concat(
+            Publishers.just(Publishers.just(1), Publishers.<Integer>error(e)));
+        assertThat(upstreamError.reduce(Integer::sum), emits(StreamToken.error(e)));
+    }
+
+    @Test
+    public void parallelSequentialEmitsEverything() {
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            expected.add(i * 2);
+        }
+
+        Publisher<Integer> pub = Publishers.from(expected)
+            .map(x -> x / 2)
+            .parallel(3, 16)
+            .map(x -> x * 2)
+            .sequential();
+
+        List<Integer> actual = Iterables.asList(pub.toSynchronousPublisher());
+        actual.sort(null);
+        assertThat(actual, equalTo(expected));
+    }
+
+    @Test
+    public void parallelReduceWorks() {
+        List<Integer> values = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            values.add(i);
+        }
+
+        Publisher<Integer> pub = Publishers.from(values)
+            .parallel(4, 10)
+            .filter(x -> x % 2 == 1)
+            .reduce(Integer::sum);
+        assertThat(pub, emitsValues(Arrays.asList(250000)));
+    }
+
+    @Test
+    public void cancellingParallelStopsTheSource() {
+        AtomicReference<PushSink<Integer>> sink = new AtomicReference<>();
+        Publisher<Integer> pub = Publishers.<Integer>push(sink::set)
+            .parallel(2, 1)
+            .sequential();
+
+        RecordingSubscriber<Integer> sub = new RecordingSubscriber<Integer>(1) {
+            @Override
+            public void onNext(Integer val) {
+                super.onNext(val);
+                this.sub.cancel();
+            }
+        };
+        pub.subscribe(sub);
+        sink.get().next(0);
+        sink.get().next(1);
+
+        assertThat(sub.values, equalTo(Arrays.asList(0)));
+        assertThat(sink.get().isCancelled(), equalTo(true));
+    }
+
+    @Test
+    public void chunkedIteratorWorks() {
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            expected.add(i);
+        }
+
+        List<Integer> actual = new ArrayList<>();
+        Iterator<Integer> it = Publishers.from(expected).iterator(3);
+        while (it.hasNext()) {
+            actual.add(it.next());
+        }
+        assertThat(actual, equalTo(expected));
+    }
+
+    @Test
+    public void chunkedIteratorEmitsValuesBeforeError() {
+        RuntimeException e = new RuntimeException();
+        Iterator<Integer> it = Publishers.just(1, 2).concat(Publishers.error(e))
+            .toSynchronousPublisher()
+            .iterator(8);
+        assertThat(it.next(), equalTo(1));
+        assertThat(it.next(), equalTo(2));
+
+        thrown.expect(equalTo(e));
+        it.hasNext();
+    }
+
+    @Test
+    public void closingChunkedIteratorStopsTheSource() {
+        AtomicInteger numPulled = new AtomicInteger(0);
+        Iterator<Integer> source = new Iterator<Integer>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Integer next() {
+                return numPulled.incrementAndGet();
+            }
+        };
+
+        SyncPublisher.ChunkedIterator<Integer> it = Publishers.from(source).iterator(4);
+        assertThat(it.next(), equalTo(1));
+        assertThat(it.next(), equalTo(2));
+        it.close();
+
+        int numPulledBeforeClose = numPulled.get();
+        assertThat(it.hasNext(), equalTo(false));
+        assertThat(numPulled.get(), equalTo(numPulledBeforeClose));
+    }
+
+    @Test
+    public void spliteratorKnowsTheSize() {
+        List<Integer> values = Arrays.asList(1, 2, 3, 4);
+        Spliterator<Integer> spliterator = Publishers.from(values).spliterator();
+        assertThat(spliterator.hasCharacteristics(Spliterator.SIZED), equalTo(true));
+        assertThat(spliterator.hasCharacteristics(Spliterator.ORDERED), equalTo(true));
+        assertThat(spliterator.getExactSizeIfKnown(), equalTo(4L));
+
+        assertThat(Publishers.from(values).stream().mapToInt(x -> x).sum(), equalTo(10));
+        assertThat(Publishers.range(0, 5).boxed().toSynchronousPublisher()
+                       .spliterator().getExactSizeIfKnown(), equalTo(5L));
+        assertThat(Publishers.from(values.iterator()).spliterator().getExactSizeIfKnown(),
+                   equalTo(-1L));
+    }
+
+    @Test
+    public void createPrefetchWorks() {
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            expected.add(i);
+        }
+        Publisher<Integer> pub = Publishers.from(expected).prefetch(8);
+        assertThat(pub, emitsValues(expected));
+        assertThat(pub, emitsValues(expected));
+        assertThat(Iterables.asList(pub.toSynchronousPublisher()), equalTo(expected));
+    }
+
+    @Test
+    public void prefetchEmitsErrorsAfterValues() {
+        RuntimeException e = new RuntimeException();
+        Publisher<Integer> pub = Publishers.just(1, 2, 3)
+            .concat(Publishers.error(e))
+            .prefetch(2);
+        assertThat(pub, emits(StreamToken.value(1), StreamToken.value(2),
+                              StreamToken.value(3), StreamToken.error(e)));
+    }
+
     @Test
     public void badSubscriberShouldThrow() {
         Publishers.empty()
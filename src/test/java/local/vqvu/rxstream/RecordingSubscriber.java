@@ -0,0 +1,45 @@
+package local.vqvu.rxstream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Records every signal it receives, and requests {@code initialRequest}
+ * values as soon as it is subscribed.
+ */
+class RecordingSubscriber<T> implements Subscriber<T> {
+    final long initialRequest;
+    final List<T> values;
+    Subscription sub;
+    boolean completed;
+    Throwable error;
+
+    RecordingSubscriber(long initialRequest) {
+        this.initialRequest = initialRequest;
+        this.values = new ArrayList<>();
+    }
+
+    @Override
+    public void onSubscribe(Subscription sub) {
+        this.sub = sub;
+        sub.request(initialRequest);
+    }
+
+    @Override
+    public void onNext(T val) {
+        values.add(val);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        error = t;
+    }
+
+    @Override
+    public void onComplete() {
+        completed = true;
+    }
+}
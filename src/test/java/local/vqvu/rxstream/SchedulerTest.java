@@ -0,0 +1,382 @@
+package local.vqvu.rxstream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import local.vqvu.rxstream.scheduler.Scheduler;
+import local.vqvu.rxstream.scheduler.Schedulers;
+import local.vqvu.util.Iterables;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SchedulerTest {
+    private Scheduler eventLoop;
+    private Scheduler fixed;
+
+    @Before
+    public void setUp() {
+        eventLoop = Schedulers.newEventLoop();
+        fixed = Schedulers.newFixed(4);
+    }
+
+    @After
+    public void tearDown() {
+        eventLoop.shutdown();
+        fixed.shutdown();
+    }
+
+    @Test
+    public void subscribeOnEmitsOnScheduler() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        Publisher<Integer> pub = Publishers.just(1, 2, 3)
+            .map(x -> {
+                threads.add(Thread.currentThread().getName());
+                return x * 2;
+            })
+            .subscribeOn(eventLoop);
+
+        List<Integer> actual = Iterables.asList(pub.toSynchronousPublisher());
+        assertThat(actual, equalTo(Arrays.asList(2, 4, 6)));
+        assertThat(threads.size(), equalTo(1));
+        assertThat(threads.iterator().next(), startsWith("rx-event-loop"));
+    }
+
+    @Test
+    public void observeOnEmitsOnScheduler() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        Publisher<Integer> pub = Publishers.just(1, 2, 3)
+            .observeOn(eventLoop)
+            .map(x -> {
+                threads.add(Thread.currentThread().getName());
+                return x * 2;
+            });
+
+        List<Integer> actual = Iterables.asList(pub.toSynchronousPublisher());
+        assertThat(actual, equalTo(Arrays.asList(2, 4, 6)));
+        assertThat(threads.size(), equalTo(1));
+        assertThat(threads.iterator().next(), startsWith("rx-event-loop"));
+    }
+
+    @Test
+    public void observeOnPreservesOrderOnMultipleThreads() {
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            expected.add(i);
+        }
+
+        Publisher<Integer> pub = Publishers.from(expected)
+            .subscribeOn(fixed)
+            .map(x -> x)
+            .observeOn(fixed);
+        assertThat(Iterables.asList(pub.toSynchronousPublisher()), equalTo(expected));
+    }
+
+    @Test
+    public void observeOnRequestsAheadOfTheDownstream() throws Exception {
+        AtomicInteger produced = new AtomicInteger(0);
+        Publisher<Integer> pub = Publishers.range(0, 1000).boxed()
+            .map(x -> {
+                produced.incrementAndGet();
+                return x;
+            })
+            .observeOn(fixed);
+
+        RecordingSubscriber<Integer> sub = new RecordingSubscriber<>(1);
+        pub.subscribe(sub);
+
+        // The subscriber only asked for one value, but observeOn keeps its
+        // queue full so that the scheduler never has to wait on the source.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (produced.get() < 100 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(produced.get() >= 100, equalTo(true));
+        assertThat(produced.get() < 1000, equalTo(true));
+        sub.sub.cancel();
+    }
+
+    @Test
+    public void flatMapWithConcurrencyAcrossThreads() {
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            expected.add(i);
+        }
+
+        Publisher<Integer> pub = Publishers.just(0, 1, 2, 3, 4, 5, 6, 7, 8, 9)
+            .flatMap(i -> Publishers.from(expected.subList(i * 10000, (i + 1) * 10000))
+                                    .subscribeOn(fixed), 4);
+
+        List<Integer> actual = Iterables.asList(pub.toSynchronousPublisher());
+        actual.sort(null);
+        assertThat(actual, equalTo(expected));
+    }
+
+    @Test
+    public void concatMapEagerStartsInnersAhead() {
+        AtomicInteger started = new AtomicInteger(0);
+        List<Integer> startedBeforeEmit = new ArrayList<>();
+        Publisher<Integer> pub = Publishers.just(0, 1, 2, 3, 4, 5)
+            .concatMapEager(i -> Publishers.create(() -> {
+                started.incrementAndGet();
+                return Publishers.just(i * 2, i * 2 + 1).subscribeOn(fixed).createEmitter();
+            }), 4)
+            .map(x -> {
+                if (x % 2 == 0) {
+                    startedBeforeEmit.add(started.get());
+                }
+                return x;
+            });
+
+        assertThat(Iterables.asList(pub.toSynchronousPublisher()),
+                   equalTo(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11)));
+        assertThat(startedBeforeEmit.get(0), equalTo(4));
+    }
+
+    @Test
+    public void publishPacesTheSourceAcrossThreads() {
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            expected.add(i);
+            expected.add(i);
+        }
+
+        Publisher<Integer> pub = Publishers.range(0, 100000).boxed()
+            .subscribeOn(fixed)
+            .publish(16)
+            .autoConnect(2);
+        Publisher<Integer> both = Publishers.merge(pub.observeOn(fixed), pub.observeOn(eventLoop));
+
+        List<Integer> actual = Iterables.asList(both.toSynchronousPublisher());
+        actual.sort(null);
+        assertThat(actual, equalTo(expected));
+    }
+
+    @Test
+    public void onBackpressureBufferBoundsAFastPushSource() {
+        int count = 100000;
+        Publisher<Integer> pub = Publishers.<Integer>push(sink -> {
+            new Thread(() -> {
+                for (int i = 0; i < count && !sink.isCancelled(); i++) {
+                    sink.next(i);
+                }
+                sink.complete();
+            }).start();
+        }).onBackpressureBuffer(16, OverflowStrategy.DROP_OLDEST).observeOn(eventLoop);
+
+        List<Integer> actual = Iterables.asList(pub.toSynchronousPublisher());
+        for (int i = 1; i < actual.size(); i++) {
+            assertThat(actual.get(i) > actual.get(i - 1), equalTo(true));
+        }
+        assertThat(actual.get(actual.size() - 1), equalTo(count - 1));
+    }
+
+    @Test
+    public void cacheServesConcurrentSubscribers() {
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            expected.add(i);
+            expected.add(i);
+        }
+
+        Publisher<Integer> pub = Publishers.range(0, 100000).boxed()
+            .subscribeOn(fixed)
+            .cache();
+        Publisher<Integer> both = Publishers.merge(pub.observeOn(fixed), pub.observeOn(eventLoop));
+
+        List<Integer> actual = Iterables.asList(both.toSynchronousPublisher());
+        actual.sort(null);
+        assertThat(actual, equalTo(expected));
+    }
+
+    @Test
+    public void parallelRunsOnScheduler() {
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            expected.add(i);
+        }
+
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        Publisher<Integer> pub = Publishers.from(expected)
+            .parallel(4)
+            .runOn(fixed)
+            .map(x -> {
+                threads.add(Thread.currentThread().getName());
+                return x;
+            })
+            .sorted(Integer::compare);
+
+        assertThat(Iterables.asList(pub.toSynchronousPublisher()), equalTo(expected));
+        for (String thread : threads) {
+            assertThat(thread, startsWith("rx-fixed"));
+        }
+    }
+
+    @Test
+    public void toSynchronousPublisherTimesOut() {
+        Publisher<Integer> never = Publishers.create(() -> cb -> {});
+        try {
+            never.toSynchronousPublisher(Duration.ofMillis(20)).iterator().hasNext();
+            fail("Expected a timeout.");
+        } catch (RuntimeException e) {
+            assertThat(e.getCause(), instanceOf(TimeoutException.class));
+        }
+    }
+
+    @Test
+    public void toSynchronousPublisherHonorsInterrupts() {
+        Publisher<Integer> never = Publishers.create(() -> cb -> {});
+        Thread.currentThread().interrupt();
+        try {
+            never.toSynchronousPublisher().iterator().hasNext();
+            fail("Expected an interrupt.");
+        } catch (RuntimeException e) {
+            assertThat(e.getCause(), instanceOf(InterruptedException.class));
+        }
+        assertThat(Thread.interrupted(), equalTo(true));
+    }
+
+    @Test
+    public void toSynchronousPublisherWaitsForSlowSources() {
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            expected.add(i);
+        }
+
+        Publisher<Integer> pub = Publishers.from(expected).subscribeOn(fixed);
+        assertThat(Iterables.asList(pub.toSynchronousPublisher(Duration.ofSeconds(10))),
+                   equalTo(expected));
+    }
+
+    @Test
+    public void iteratorReturnsEachValueOfASlowSourceRightAway() {
+        int count = 5;
+        long intervalMillis = 200;
+        Publisher<Integer> pub = Publishers.<Integer>push(sink -> {
+            new Thread(() -> {
+                try {
+                    for (int i = 0; i < count; i++) {
+                        Thread.sleep(intervalMillis);
+                        sink.next(i);
+                    }
+                    sink.complete();
+                } catch (InterruptedException e) {
+                    sink.error(e);
+                }
+            }).start();
+        });
+
+        long start = System.nanoTime();
+        List<Integer> actual = new ArrayList<>();
+        List<Long> arrivalMillis = new ArrayList<>();
+        for (int value : pub.toSynchronousPublisher()) {
+            actual.add(value);
+            arrivalMillis.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+
+        assertThat(actual, equalTo(Arrays.asList(0, 1, 2, 3, 4)));
+        // Waiting for a full chunk would hold every value until the end.
+        long spread = arrivalMillis.get(count - 1) - arrivalMillis.get(0);
+        assertThat(spread >= (count - 2) * intervalMillis, equalTo(true));
+    }
+
+    @Test
+    public void iteratorKeepsAnAsyncSourceBusy() throws Exception {
+        AtomicInteger produced = new AtomicInteger(0);
+        Publisher<Integer> pub = Publishers.range(0, 100000).boxed()
+            .map(x -> {
+                produced.incrementAndGet();
+                return x;
+            })
+            .subscribeOn(fixed);
+
+        try (SyncPublisher.ChunkedIterator<Integer> it = pub.toSynchronousPublisher().iterator()) {
+            assertThat(it.next(), equalTo(0));
+
+            // The source keeps going while the consumer sits on the first value.
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (produced.get() < SyncPublisher.DEFAULT_PREFETCH && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertThat(produced.get() >= SyncPublisher.DEFAULT_PREFETCH, equalTo(true));
+            assertThat(it.next(), equalTo(1));
+        }
+    }
+
+    @Test
+    public void timedBufferFlushesPartialLists() throws Exception {
+        Publisher<Integer> never = Publishers.create(() -> cb -> {});
+        Publisher<List<Integer>> pub = Publishers.just(1, 2, 3).concat(never)
+            .buffer(10, Duration.ofMillis(20), fixed);
+
+        try (SyncPublisher.ChunkedIterator<List<Integer>> it =
+                pub.toSynchronousPublisher(Duration.ofSeconds(10)).iterator(1)) {
+            assertThat(it.next(), equalTo(Arrays.asList(1, 2, 3)));
+        }
+    }
+
+    @Test
+    public void timedBufferEmitsFullListsWithoutWaiting() {
+        List<List<Integer>> expected = new ArrayList<>();
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            if (i % 100 == 0) {
+                expected.add(new ArrayList<>());
+            }
+            expected.get(expected.size() - 1).add(i);
+            values.add(i);
+        }
+
+        Publisher<List<Integer>> pub = Publishers.from(values)
+            .subscribeOn(fixed)
+            .buffer(100, Duration.ofHours(1), fixed);
+        assertThat(Iterables.asList(pub.toSynchronousPublisher(Duration.ofSeconds(10))),
+                   equalTo(expected));
+    }
+
+    @Test
+    public void prefetchAcrossThreads() {
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            expected.add(i);
+        }
+
+        Publisher<Integer> pub = Publishers.from(expected)
+            .subscribeOn(fixed)
+            .prefetch(64)
+            .observeOn(eventLoop)
+            .prefetch(16);
+
+        assertThat(Iterables.asList(pub.toSynchronousPublisher()), equalTo(expected));
+    }
+
+    @Test
+    public void immediateRunsInline() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        Publisher<Integer> pub = Publishers.just(1, 2, 3)
+            .subscribeOn(Schedulers.immediate())
+            .observeOn(Schedulers.immediate())
+            .map(x -> {
+                threads.add(Thread.currentThread().getName());
+                return x;
+            });
+
+        assertThat(Iterables.asList(pub.toSynchronousPublisher()), equalTo(Arrays.asList(1, 2, 3)));
+        assertThat(threads.size(), equalTo(1));
+        assertThat(threads.iterator().next(), equalTo(Thread.currentThread().getName()));
+    }
+}
@@ -0,0 +1,260 @@
+package local.vqvu.rxstream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import local.vqvu.rxstream.emitter.StreamEmitter;
+import local.vqvu.rxstream.scheduler.Schedulers;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class SubscriptionTest {
+    @Rule
+    public final ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void requestMaxEmitsEverything() {
+        List<Integer> source = new ArrayList<>();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            source.add(i);
+            expected.add(i * 2);
+        }
+
+        Publisher<Integer> pub = Publishers.from(source).map(x -> x * 2);
+        RecordingSubscriber<Integer> sub = new RecordingSubscriber<>(Long.MAX_VALUE);
+        pub.subscribe(sub);
+        assertThat(sub.values, equalTo(expected));
+        assertThat(sub.completed, equalTo(true));
+    }
+
+    @Test
+    public void bulkRequestsRespectDemand() {
+        Publisher<List<Integer>> pub = Publishers.just(1, 2, 3, 4, 5, 6, 7).buffer(2);
+        RecordingSubscriber<List<Integer>> sub = new RecordingSubscriber<>(2);
+        pub.subscribe(sub);
+        assertThat(sub.values, equalTo(Arrays.asList(Arrays.asList(1, 2),
+                                                     Arrays.asList(3, 4))));
+        assertThat(sub.completed, equalTo(false));
+
+        sub.sub.request(5);
+        assertThat(sub.values, equalTo(Arrays.asList(Arrays.asList(1, 2),
+                                                     Arrays.asList(3, 4),
+                                                     Arrays.asList(5, 6),
+                                                     Arrays.asList(7))));
+        assertThat(sub.completed, equalTo(true));
+    }
+
+    @Test
+    public void syncPipelinesAreFused() {
+        Publisher<List<Integer>> pub = Publishers.just(1, 2, 3)
+            .map(x -> x + 1)
+            .filter(x -> x > 2)
+            .buffer(2);
+        assertThat(pub.createEmitter().fuseSync() != null, equalTo(true));
+        assertThat(pub.subscribeOn(Schedulers.immediate()).createEmitter().fuseSync() != null,
+                   equalTo(false));
+        assertThat(pub.concat(pub).createEmitter().fuseSync() != null, equalTo(false));
+    }
+
+    @Test
+    public void fusedPipelinesEmitErrorsAfterValues() {
+        RuntimeException e = new RuntimeException();
+        Publisher<Integer> pub = Publishers.just(1, 2, 3, 4)
+            .map(x -> {
+                if (x == 3) {
+                    throw e;
+                }
+                return x;
+            });
+        RecordingSubscriber<Integer> sub = new RecordingSubscriber<>(1);
+        pub.subscribe(sub);
+        assertThat(sub.values, equalTo(Arrays.asList(1)));
+
+        sub.sub.request(10);
+        assertThat(sub.values, equalTo(Arrays.asList(1, 2)));
+        assertThat(sub.error, equalTo((Throwable) e));
+        assertThat(sub.completed, equalTo(false));
+    }
+
+    @Test
+    public void nullValuesAreEmittedWhetherFusedOrNot() {
+        Publisher<Integer> fused = Publishers.from(Arrays.asList(1, null, 2, 3))
+            .map(x -> (x != null && x == 3) ? null : x);
+        Publisher<Integer> notFused = fused.subscribeOn(Schedulers.immediate());
+        assertThat(fused.createEmitter().fuseSync() != null, equalTo(true));
+
+        for (Publisher<Integer> pub : Arrays.asList(fused, notFused)) {
+            RecordingSubscriber<Integer> sub = new RecordingSubscriber<>(Long.MAX_VALUE);
+            pub.subscribe(sub);
+            assertThat(sub.values, equalTo(Arrays.asList(1, null, 2, null)));
+            assertThat(sub.completed, equalTo(true));
+
+            List<List<Integer>> buffers = new ArrayList<>();
+            pub.buffer(3).subscribe(new RecordingSubscriber<List<Integer>>(Long.MAX_VALUE) {
+                @Override
+                public void onNext(List<Integer> value) {
+                    buffers.add(value);
+                }
+            });
+            assertThat(buffers, equalTo(Arrays.asList(Arrays.asList(1, null, 2),
+                                                      Arrays.asList((Integer) null))));
+        }
+
+        List<Integer> iterated = new ArrayList<>();
+        fused.toSynchronousPublisher().forEach(iterated::add);
+        assertThat(iterated, equalTo(Arrays.asList(1, null, 2, null)));
+    }
+
+    @Test
+    public void bulkRequestsWorkWithConcat() {
+        Publisher<Integer> pub = Publishers.just(1, 2, 3)
+            .flatMap(x -> Publishers.just(x, x));
+        RecordingSubscriber<Integer> sub = new RecordingSubscriber<>(3);
+        pub.subscribe(sub);
+        assertThat(sub.values, equalTo(Arrays.asList(1, 1, 2)));
+
+        sub.sub.request(Long.MAX_VALUE - 3);
+        assertThat(sub.values, equalTo(Arrays.asList(1, 1, 2, 2, 3, 3)));
+        assertThat(sub.completed, equalTo(true));
+    }
+
+    @Test
+    public void cancelStopsBulkEmission() {
+        Iterator<Integer> infinite = new Iterator<Integer>() {
+            int count = 0;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Integer next() {
+                return count++;
+            }
+        };
+
+        RecordingSubscriber<Integer> sub = new RecordingSubscriber<Integer>(Long.MAX_VALUE) {
+            @Override
+            public void onNext(Integer val) {
+                super.onNext(val);
+                if (values.size() == 10) {
+                    sub.cancel();
+                }
+            }
+        };
+        Publishers.from(infinite).map(x -> x + 1).subscribe(sub);
+        assertThat(sub.values, equalTo(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10)));
+        assertThat(sub.completed, equalTo(false));
+    }
+
+    @Test
+    public void callbackRejectsExtraNextAcrossCalls() {
+        Publisher<Integer> pub = Publishers.<Integer>createSync(() -> {
+            List<Object> count = new ArrayList<>();
+            return (cb) -> {
+                count.add(this);
+                cb.acceptValue(count.size());
+                cb.next();
+                if (count.size() == 3) {
+                    cb.next();
+                }
+            };
+        });
+
+        RecordingSubscriber<Integer> sub = new RecordingSubscriber<>(2);
+        pub.subscribe(sub);
+        assertThat(sub.values, equalTo(Arrays.asList(1, 2)));
+
+        thrown.expect(IllegalStateException.class);
+        thrown.expectMessage("next called too many times.");
+        sub.sub.request(1);
+    }
+
+    @Test
+    public void syncEmitterThatSkipsNextIsReported() {
+        Publisher<Integer> pub = Publishers.<Integer>createSync(() -> {
+            AtomicInteger count = new AtomicInteger(0);
+            return (cb) -> {
+                int val = count.incrementAndGet();
+                cb.acceptValue(val);
+                if (val < 2) {
+                    cb.next();
+                }
+            };
+        });
+
+        RecordingSubscriber<Integer> sub = new RecordingSubscriber<>(10);
+        pub.subscribe(sub);
+        assertThat(sub.values, equalTo(Arrays.asList(1, 2)));
+        assertThat(sub.error instanceof IllegalStateException, equalTo(true));
+        assertThat(sub.completed, equalTo(false));
+    }
+
+    @Test
+    public void concurrentRequestsAndAsyncEmitsAreSerialized() throws InterruptedException {
+        int size = 10000;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Publisher<Integer> pub = Publishers.create(() -> {
+                AtomicInteger count = new AtomicInteger(0);
+                return (StreamEmitter<Integer>) cb -> executor.execute(() -> {
+                    int val = count.getAndIncrement();
+                    if (val < size) {
+                        cb.acceptValue(val);
+                        cb.next();
+                    } else {
+                        cb.acceptEnd();
+                    }
+                });
+            });
+
+            AtomicBoolean inOnNext = new AtomicBoolean(false);
+            AtomicBoolean overlapped = new AtomicBoolean(false);
+            CountDownLatch done = new CountDownLatch(1);
+            RecordingSubscriber<Integer> sub = new RecordingSubscriber<Integer>(1) {
+                @Override
+                public void onNext(Integer val) {
+                    if (!inOnNext.compareAndSet(false, true)) {
+                        overlapped.set(true);
+                    }
+                    super.onNext(val);
+                    inOnNext.set(false);
+                }
+
+                @Override
+                public void onComplete() {
+                    super.onComplete();
+                    done.countDown();
+                }
+            };
+            pub.subscribe(sub);
+            for (int i = 0; i < size; i++) {
+                sub.sub.request(1);
+            }
+
+            assertThat(done.await(10, TimeUnit.SECONDS), equalTo(true));
+            assertThat(overlapped.get(), equalTo(false));
+            assertThat(sub.values.size(), equalTo(size));
+            for (int i = 0; i < size; i++) {
+                assertThat(sub.values.get(i), equalTo(i));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}